@@ -0,0 +1,75 @@
+package org.finetree.finechat.bench;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Minimal Player stand-in for benchmarks: answers name/display name/UUID/world and
+ * permission checks, and returns a zero value for everything else.
+ */
+public final class StubPlayer {
+
+    private StubPlayer() {}
+
+    public static Player create(String name) {
+        return create(name, name, "world", Set.of());
+    }
+
+    public static Player create(String name, String displayName, String worldName, Set<String> permissions) {
+        UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes());
+        World world = stub(World.class, (method, args) -> {
+            switch (method) {
+                case "getName": return worldName;
+                case "getUID": return UUID.nameUUIDFromBytes(worldName.getBytes());
+                default: return null;
+            }
+        });
+
+        return stub(Player.class, (method, args) -> {
+            switch (method) {
+                case "getName": return name;
+                case "getDisplayName": return displayName;
+                case "getUniqueId": return uuid;
+                case "getWorld": return world;
+                case "isOnline": return true;
+                case "hasPermission": return args[0] instanceof String && permissions.contains(args[0]);
+                default: return null;
+            }
+        });
+    }
+
+    public interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    public static <T> T stub(Class<T> type, Answer answer) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode": return System.identityHashCode(self);
+                case "equals": return self == args[0];
+                case "toString": return type.getSimpleName() + "Stub";
+                default: break;
+            }
+            Object result = answer.answer(method.getName(), args);
+            return result != null ? result : zero(method.getReturnType());
+        });
+        return type.cast(proxy);
+    }
+
+    private static Object zero(Class<?> type) {
+        if (!type.isPrimitive()) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == int.class) return 0;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+package org.finetree.finechat.channel;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.finetree.finechat.bench.StubPlayer;
+import org.finetree.finechat.config.ChatConfig;
+import org.finetree.finechat.config.ChatSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Who is within 100 blocks of the sender", as routed for a LOCAL channel: the grid
+ * query against a linear scan of every online player.
+ *
+ * Half the players stand around spawn and half are spread over 4000 x 4000 blocks,
+ * and senders are taken in turn from both. The linear scan is handed every location
+ * up front; a real one would also pay for a getLocation() copy per player.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProximityGridBenchmark {
+
+    private static final int RADIUS = 100;
+
+    @Param({"100", "500", "2000"})
+    public int players;
+
+    private ProximityGrid grid;
+    private Player[] online;
+    private Location[] locations;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ChatConfig.channelsEnabled = true;
+        ChatSettings settings = ChatSettings.fromConfig();
+        ChatSettings.publish(settings);
+
+        World world = StubPlayer.stub(World.class, (method, args) -> "getName".equals(method) ? "world" : null);
+        Random random = new Random(42);
+        online = new Player[players];
+        locations = new Location[players];
+        for (int i = 0; i < players; i++) {
+            int spread = i % 2 == 0 ? 150 : 2000;
+            Location location = new Location(world,
+                    random.nextInt(spread * 2) - spread + 0.5, 64 + random.nextInt(8),
+                    random.nextInt(spread * 2) - spread + 0.5);
+            UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:Player" + i).getBytes());
+            locations[i] = location;
+            online[i] = StubPlayer.stub(Player.class, (method, args) -> {
+                switch (method) {
+                    case "getUniqueId": return uuid;
+                    case "getWorld": return world;
+                    case "getLocation": return location;
+                    case "isOnline": return true;
+                    default: return null;
+                }
+            });
+        }
+
+        grid = new ProximityGrid();
+        grid.reload(settings);
+        for (Player player : online) {
+            grid.track(player);
+        }
+    }
+
+    @Benchmark
+    public int grid() {
+        Player sender = online[nextSender()];
+        int[] found = new int[1];
+        grid.forEachNear(sender, RADIUS, near -> found[0]++);
+        return found[0];
+    }
+
+    @Benchmark
+    public int linearScan() {
+        Location at = locations[nextSender()];
+        long radiusSquared = (long) RADIUS * RADIUS;
+        int found = 0;
+        for (int i = 0; i < online.length; i++) {
+            Location location = locations[i];
+            if (location.getWorld() != at.getWorld()) continue;
+            long dx = location.getBlockX() - at.getBlockX();
+            long dy = location.getBlockY() - at.getBlockY();
+            long dz = location.getBlockZ() - at.getBlockZ();
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared) found++;
+        }
+        return found;
+    }
+
+    private int nextSender() {
+        int sender = next;
+        next = sender + 1 == online.length ? 0 : sender + 1;
+        return sender;
+    }
+}
@@ -0,0 +1,131 @@
+package org.finetree.finechat.chat;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.bench.StubPlayer;
+import org.finetree.finechat.config.ChatConfig;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.hooks.StubPlaceholders;
+import org.finetree.finechat.meta.Capability;
+import org.finetree.finechat.meta.MetaProvider;
+import org.finetree.finechat.meta.MetaProviderChain;
+import org.finetree.finechat.meta.PlayerMetaCache;
+import org.finetree.finechat.stats.ChatStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full ChatFormatter.format for one sender, as run on the chat executor: cached
+ * meta, sanitising, PlaceholderAPI (stand-in expansion) and colouring.
+ *
+ * The "papi" format has a placeholder in the header, so it can't be cached and
+ * every message takes the whole-line path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatFormatterBenchmark {
+
+    private static final String PLAIN_MESSAGE = "has anyone seen the nether portal near spawn?";
+    private static final String COLOURED_MESSAGE =
+            "&ahas &lanyone&r seen the <rainbow>nether portal</rainbow> near <hex,#FF8800>spawn</hex>?";
+
+    @Param({"default", "gradient", "papi"})
+    public String format;
+
+    @Param({"plain", "coloured"})
+    public String message;
+
+    // Whether the sender holds the colour and special colour nodes
+    @Param({"true", "false"})
+    public boolean colourPermission;
+
+    private ChatFormatter formatter;
+    private ChatSnapshot sender;
+    private String text;
+
+    @Setup
+    public void setup() {
+        switch (format) {
+            case "default":
+                ChatConfig.format = "{prefix}{displayname}&7: &f{message}";
+                break;
+            case "gradient":
+                ChatConfig.format = "{prefix}<gradient,#FFAA00,#FF5555>{displayname}</gradient>&7 » &f{message}{suffix}";
+                break;
+            case "papi":
+                ChatConfig.format = "&8[%town_name%] {prefix}{displayname}&7: &f{message}";
+                break;
+            default:
+                throw new IllegalArgumentException("unknown format: " + format);
+        }
+        ChatSettings settings = ChatSettings.fromConfig();
+        ChatSettings.publish(settings);
+
+        Plugin owner = StubPlayer.stub(Plugin.class, (method, args) -> {
+            switch (method) {
+                case "getName": return "Bench";
+                case "isEnabled": return true;
+                default: return null;
+            }
+        });
+        MetaProviderChain providers = new MetaProviderChain();
+        providers.register(owner, new FixedMeta("&c[Admin] ", " &7[Builder]"));
+
+        formatter = new ChatFormatter(new PlayerMetaCache(providers), StubPlaceholders.create(), new ChatStats());
+
+        Player player = StubPlayer.create("Steve");
+        int capabilities = colourPermission ? Capability.COLOR.bit() | Capability.SPECIAL_COLOR.bit() : 0;
+        sender = ChatSnapshot.capture(player, settings, capabilities);
+        text = message.equals("plain") ? PLAIN_MESSAGE : COLOURED_MESSAGE;
+    }
+
+    @Benchmark
+    public String format() {
+        return formatter.format(sender, text);
+    }
+
+    private static final class FixedMeta implements MetaProvider {
+        private final String prefix;
+        private final String suffix;
+
+        FixedMeta(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public String getName() {
+            return "Fixed";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public String getPrefix(Player player) {
+            return prefix;
+        }
+
+        @Override
+        public String getSuffix(Player player) {
+            return suffix;
+        }
+    }
+}
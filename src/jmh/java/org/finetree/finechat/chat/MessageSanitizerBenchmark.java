@@ -0,0 +1,48 @@
+package org.finetree.finechat.chat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The permission-gated strip paths: nothing to strip, codes only, tags only, both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageSanitizerBenchmark {
+
+    private static final String PLAIN =
+            "has anyone seen the nether portal near spawn? it was here a minute ago";
+    private static final String COLOURED =
+            "&ahas &lanyone&r <rainbow>seen</rainbow> the <hex,#FF8800>nether</hex> "
+                    + "<gradient,#FF0000,#0000FF>portal</gradient> &#near §bspawn&7?";
+
+    @Param({"false", "true"})
+    public boolean stripCodes;
+
+    @Param({"false", "true"})
+    public boolean stripTags;
+
+    @Benchmark
+    public String plain() {
+        return MessageSanitizer.sanitize(PLAIN, stripCodes, stripTags);
+    }
+
+    @Benchmark
+    public String coloured() {
+        return MessageSanitizer.sanitize(COLOURED, stripCodes, stripTags);
+    }
+}
@@ -0,0 +1,95 @@
+package org.finetree.finechat.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * WordFilter against the usual bolted-on filter, one case-insensitive replaceAll per
+ * listed word, over a generated word list.
+ *
+ * "clean" is an ordinary line with nothing to filter, the common case; "dirty" has
+ * three listed words, one in leetspeak with repeated letters and a colour code (which
+ * the replaceAll loop misses).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordFilterBenchmark {
+
+    @Param({"500", "5000"})
+    public int words;
+
+    @Param({"clean", "dirty"})
+    public String message;
+
+    private WordFilter filter;
+    private Pattern[] patterns;
+    private String text;
+
+    @Setup
+    public void setup() {
+        // Made-up words, so the list is the same every run and can't match English by chance
+        Random random = new Random(42);
+        List<String> list = new ArrayList<>(words);
+        while (list.size() < words) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            list.add(word.toString());
+        }
+
+        filter = WordFilter.compile(list, List.of(), List.of());
+        patterns = new Pattern[list.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = Pattern.compile("\\b" + Pattern.quote(list.get(i)) + "\\b", Pattern.CASE_INSENSITIVE);
+        }
+
+        switch (message) {
+            case "clean":
+                text = "has anyone seen the nether portal near spawn? I think it was by the big oak tree";
+                break;
+            case "dirty":
+                String leet = list.get(words / 2).replace('a', '4').replace('e', '3').replace('o', '0');
+                text = "has anyone seen " + list.get(7) + " near spawn? " + leet.charAt(0) + "&c"
+                        + leet.substring(1) + leet.charAt(leet.length() - 1) + " was by the " + list.get(words - 1);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown message: " + message);
+        }
+    }
+
+    @Benchmark
+    public String automaton() {
+        WordFilter.Result result = filter.apply(text);
+        return result != null ? result.getMessage() : text;
+    }
+
+    @Benchmark
+    public String replaceAllPerWord() {
+        String out = text;
+        for (Pattern pattern : patterns) {
+            out = pattern.matcher(out).replaceAll("***");
+        }
+        return out;
+    }
+}
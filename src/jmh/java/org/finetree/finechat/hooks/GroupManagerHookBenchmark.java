@@ -0,0 +1,102 @@
+package org.finetree.finechat.hooks;
+
+import org.bukkit.entity.Player;
+import org.finetree.finechat.bench.StubPlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bound MethodHandles vs. the old per-call getMethod/invoke chain, against a
+ * stand-in object shaped like GroupManager's API.
+ *
+ * The reflective baseline skips the old per-call PluginManager lookup (there is no
+ * server here), so it understates how much the old path cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupManagerHookBenchmark {
+
+    private final FakeGroupManager groupManager = new FakeGroupManager();
+
+    private GroupManagerHook hook;
+    private Player player;
+
+    @Setup
+    public void setup() {
+        hook = new GroupManagerHook(null);
+        if (!hook.bind(groupManager)) {
+            throw new IllegalStateException("stand-in GroupManager did not bind");
+        }
+        player = StubPlayer.create("Steve");
+    }
+
+    @Benchmark
+    public String methodHandles() {
+        return hook.getPrefix(player);
+    }
+
+    @Benchmark
+    public String reflectionPerCall() {
+        return reflectiveUserMeta(groupManager, player, "getUserPrefix");
+    }
+
+    // The lookup chain GroupManagerHook used before handles were bound once
+    private static String reflectiveUserMeta(Object gm, Player player, String handlerMethodName) {
+        try {
+            Object worldsHolder = gm.getClass().getMethod("getWorldsHolder").invoke(gm);
+            if (worldsHolder == null) return null;
+
+            Object handler = worldsHolder.getClass()
+                    .getMethod("getWorldPermissions", Player.class)
+                    .invoke(worldsHolder, player);
+            if (handler == null) return null;
+
+            Object meta = handler.getClass()
+                    .getMethod(handlerMethodName, String.class)
+                    .invoke(handler, player.getName());
+            return meta == null ? null : String.valueOf(meta);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    public static class FakeGroupManager {
+        private final FakeWorldsHolder worldsHolder = new FakeWorldsHolder();
+
+        public FakeWorldsHolder getWorldsHolder() {
+            return worldsHolder;
+        }
+    }
+
+    public static class FakeWorldsHolder {
+        private final FakePermissionsHandler handler = new FakePermissionsHandler();
+
+        public FakePermissionsHandler getWorldPermissions(Player player) {
+            return handler;
+        }
+    }
+
+    public static class FakePermissionsHandler {
+        public String getUserPrefix(String name) {
+            return "&c[Admin] ";
+        }
+
+        public String getUserSuffix(String name) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.finetree.finechat.hooks;
+
+import org.bukkit.entity.Player;
+import org.finetree.finechat.bench.StubPlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token scanning and resolution in PlaceholderApiHook against a stand-in expansion,
+ * with and without the per-player TTL cache. Measures FineChat's side only; real
+ * expansions add their own cost on top.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceholderApiHookBenchmark {
+
+    private static final String NO_TOKENS = "has anyone seen the nether portal near spawn?";
+    private static final String TOKENS = "[%vault_rank%] %player_name% of %town_name% (%server_online% online)";
+    private static final String ADJACENT = "%vault_rank%%player_name%%town_name% 100%% %not_a_token%";
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private PlaceholderApiHook hook;
+    private Player player;
+
+    @Setup
+    public void setup() {
+        hook = StubPlaceholders.create();
+        if (cached) {
+            hook.setCacheSeconds(Map.of("%vault_rank%", 60, "%town_name%", 60));
+        }
+        player = StubPlayer.create("Steve");
+    }
+
+    @Benchmark
+    public String noTokens() {
+        return hook.apply(player, NO_TOKENS);
+    }
+
+    @Benchmark
+    public String tokens() {
+        return hook.apply(player, TOKENS);
+    }
+
+    @Benchmark
+    public String adjacentTokens() {
+        return hook.apply(player, ADJACENT);
+    }
+
+    @Benchmark
+    public String[] applyAll() {
+        String[] segments = {"[%vault_rank%] ", "%player_name%", ": %town_name% "};
+        hook.applyAll(player, segments, TOKENS);
+        return segments;
+    }
+}
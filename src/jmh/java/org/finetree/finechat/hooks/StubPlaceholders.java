@@ -0,0 +1,27 @@
+package org.finetree.finechat.hooks;
+
+import org.bukkit.entity.Player;
+
+/**
+ * A PlaceholderApiHook backed by a stand-in expansion instead of PlaceholderAPI.
+ * Known tokens resolve to fixed values; anything else is returned unchanged, the
+ * same as PlaceholderAPI does for a token no expansion claims.
+ */
+public final class StubPlaceholders {
+
+    private StubPlaceholders() {}
+
+    public static PlaceholderApiHook create() {
+        return new PlaceholderApiHook(StubPlaceholders::expand);
+    }
+
+    private static String expand(Player player, String token) {
+        switch (token) {
+            case "%player_name%": return player.getName();
+            case "%vault_rank%": return "&6Admin";
+            case "%server_online%": return "42";
+            case "%town_name%": return "Riverside";
+            default: return token;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.finetree.finechat.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ColorUtil.colorize over the input shapes seen in chat: plain text, legacy codes,
+ * gradients, rainbows and lines with many short tags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorUtilBenchmark {
+
+    @Param({"plain", "legacy", "gradient", "rainbow", "manyTags"})
+    public String input;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        switch (input) {
+            case "plain":
+                text = "[Admin] Steve: has anyone seen the nether portal near spawn? it was here a minute ago";
+                break;
+            case "legacy":
+                text = "&c[&4Admin&c] &eSteve&7: &fhas &aanyone &bseen &dthe &lnether&r &6portal &9near &3spawn&7?";
+                break;
+            case "gradient":
+                text = "<gradient,#FF5555,#5555FF>[Admin] Steve</gradient>&7: &fhas anyone seen the nether portal?";
+                break;
+            case "rainbow":
+                text = "&7[Admin] Steve: <rainbow>has anyone seen the nether portal near spawn?</rainbow>";
+                break;
+            case "manyTags":
+                text = "<hex,#FF0000>h</hex><hex,#FF8800>a</hex><hex,#FFFF00>s</hex> "
+                        + "<gradient,#00FF00,#0000FF>anyone</gradient> <rainbow>seen</rainbow> "
+                        + "<hex,#AA00AA>the</hex> &lnether&r <gradient,#FFAA00,#FF0000>portal</gradient> "
+                        + "<hex,00AAAA>near</hex> <rainbow>spawn</rainbow>?";
+                break;
+            default:
+                throw new IllegalArgumentException("unknown input: " + input);
+        }
+    }
+
+    @Benchmark
+    public String colorize() {
+        return ColorUtil.colorize(text, true);
+    }
+
+    @Benchmark
+    public String colorizeSelfContained() {
+        return ColorUtil.colorizeSelfContained(text);
+    }
+}
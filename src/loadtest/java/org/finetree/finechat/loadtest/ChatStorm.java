@@ -0,0 +1,489 @@
+package org.finetree.finechat.loadtest;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.finetree.finechat.channel.Channel;
+import org.finetree.finechat.channel.ChannelManager;
+import org.finetree.finechat.channel.ProximityGrid;
+import org.finetree.finechat.chat.ChatFormatter;
+import org.finetree.finechat.chat.ChatListener;
+import org.finetree.finechat.config.ChatConfig;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.history.ChatHistory;
+import org.finetree.finechat.history.HistoryEntry;
+import org.finetree.finechat.log.ChatLog;
+import org.finetree.finechat.meta.Capability;
+import org.finetree.finechat.meta.CapabilityCache;
+import org.finetree.finechat.meta.MetaProvider;
+import org.finetree.finechat.meta.MetaProviderChain;
+import org.finetree.finechat.meta.PlayerMetaCache;
+import org.finetree.finechat.mention.MentionIndex;
+import org.finetree.finechat.scheduler.SimulatedScheduler;
+import org.finetree.finechat.spam.SpamGuard;
+import org.finetree.finechat.stats.ChatStats;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Headless chat storm: fires AsyncPlayerChatEvents at ChatListener from several
+ * "netty" threads and follows each message through the executor, the formatter
+ * and region fan-out on a {@link SimulatedScheduler} until every recipient has it.
+ *
+ * Reports latency percentiles from the event to the first and to the last
+ * recipient, tasks and peak queue depth per region, and the chat executor's peak
+ * queue depth.
+ *
+ * ./gradlew chatStorm -PstormArgs="--players 500 --rate 2 --colour 0.2 --seconds 30"
+ */
+public final class ChatStorm {
+
+    private static final String[] PLAIN = {
+            "has anyone seen the nether portal near spawn?",
+            "gg",
+            "selling 64 iron blocks, pm me",
+            "lol",
+            "does anyone know where the end city is? I've been flying for ages",
+            "brb",
+    };
+
+    // Every tag is closed, so the id marker after the message is never coloured per character
+    private static final String[] COLOURED = {
+            "&ahas &lanyone&r seen the nether portal?",
+            "<rainbow>gg everyone</rainbow>",
+            "<gradient,#FF5555,#5555FF>selling 64 iron blocks</gradient> &7pm me",
+            "<hex,#FF8800>lol</hex>",
+            "&c&lWARNING&r &eraid at <rainbow>spawn</rainbow>",
+    };
+
+    private static final String ID_MARKER = " [m";
+
+    private ChatStorm() {}
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        new Run(options).run();
+    }
+
+    private static final class Run {
+        private final Options options;
+        private final Tracker tracker = new Tracker();
+        private final AtomicLong consoleLines = new AtomicLong();
+        private final AtomicLong nextId = new AtomicLong();
+        private final AtomicInteger peakQueued = new AtomicInteger();
+        private final AtomicBoolean measuring = new AtomicBoolean();
+        private final ChatStats stats = new ChatStats();
+
+        private SimulatedScheduler scheduler;
+        private ChatListener listener;
+        private List<Player> players;
+        private Set<Player> everyone;
+        private ChannelManager channels;
+
+        Run(Options options) {
+            this.options = options;
+        }
+
+        void run() throws InterruptedException, IOException {
+            ChatConfig.chatThreads = options.chatThreads;
+            ChatConfig.chatQueueCapacity = options.queueCapacity;
+            ChatConfig.chatQueuePerPlayer = options.queuePerPlayer;
+            ChatConfig.chatOverflowPolicy = options.overflowPolicy;
+            ChatConfig.chatLogEnabled = options.chatLog;
+            ChatConfig.historyEnabled = options.history;
+            ChatConfig.channelsEnabled = options.channels;
+            ChatConfig.mentionsEnabled = options.mentions > 0;
+            ChatConfig.spamGuardEnabled = options.spamGuard;
+            if (options.channel != null) ChatConfig.defaultChannel = options.channel;
+            if (options.format != null) ChatConfig.format = options.format;
+            ChatSettings settings = ChatSettings.fromConfig();
+            ChatSettings.publish(settings);
+
+            players = createPlayers(settings);
+            everyone = Collections.unmodifiableSet(new LinkedHashSet<>(players));
+            Stubs.installServer(players, line -> consoleLines.incrementAndGet());
+
+            MetaProviderChain providers = new MetaProviderChain();
+            providers.register(Stubs.plugin("ChatStorm"), new FixedMeta("&c[Admin] ", ""));
+
+            Logger logger = Logger.getLogger("FineChat");
+            scheduler = new SimulatedScheduler(options.regionThreads, options.asyncThreads);
+            MentionIndex mentions = new MentionIndex(scheduler);
+            ChatFormatter formatter = new ChatFormatter(new PlayerMetaCache(providers), null, stats, null, mentions);
+            Path logDir = Files.createTempDirectory("finechat-storm");
+            ChatLog chatLog = new ChatLog(logDir, scheduler, logger);
+            chatLog.start(settings);
+            ChatHistory history = new ChatHistory(logDir.resolve("history"), logger);
+            history.start(settings);
+            // No plugin to register listeners with: seed the grid, channels and names by hand
+            ProximityGrid grid = new ProximityGrid();
+            grid.reload(settings);
+            channels = new ChannelManager(null, grid);
+            for (Player player : players) {
+                grid.track(player);
+                channels.refresh(player);
+                mentions.track(player);
+            }
+            listener = new ChatListener(scheduler, formatter, new CapabilityCache(null), channels, new SpamGuard(),
+                    chatLog, history, stats, logger, settings);
+
+            Thread monitor = startMonitor();
+            storm();
+            measuring.set(false);
+
+            // Let everything already accepted reach its recipients
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (listener.queued() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            scheduler.awaitIdle(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            listener.shutdown();
+            chatLog.stop();
+            scheduler.awaitIdle(5, TimeUnit.SECONDS);
+            monitor.interrupt();
+            // The history writer idles in 50ms parks; give it time to catch up
+            Thread.sleep(250);
+
+            report();
+            if (history.isEnabled()) reportHistory(history);
+            history.stop();
+            System.out.println();
+            System.out.println("Chat log written to " + logDir);
+            scheduler.shutdown();
+        }
+
+        private void reportHistory(ChatHistory history) {
+            System.out.println();
+            System.out.println("History queries (" + ChatSettings.current().getHistoryQueryLines() + " lines max)");
+            Player player = players.get(ThreadLocalRandom.current().nextInt(players.size()));
+            long start = System.nanoTime();
+            List<HistoryEntry> own = history.query(history.findPlayer(player.getName()), 0, 20);
+            double ownMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            List<HistoryEntry> recent = history.query(null, System.currentTimeMillis() - 60_000L, 20);
+            double recentMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("  %-28s %5d lines %8.2f ms%n", player.getName() + ", all time", own.size(), ownMs);
+            System.out.printf("  %-28s %5d lines %8.2f ms%n", "everyone, last minute", recent.size(), recentMs);
+        }
+
+        private List<Player> createPlayers(ChatSettings settings) {
+            Set<String> permissions = Set.of(
+                    settings.getPermission(Capability.COLOR), settings.getPermission(Capability.SPECIAL_COLOR));
+            World world = Stubs.world("world");
+            int side = (int) Math.ceil(Math.sqrt(options.regions));
+
+            List<Player> out = new ArrayList<>(options.players);
+            for (int i = 0; i < options.players; i++) {
+                // Round-robin over the region sections (256x256 blocks), spread inside each
+                int section = i % options.regions;
+                int x = (section % side) * 256 + (i * 37) % 240;
+                int z = (section / side) * 256 + (i * 91) % 240;
+                out.add(Stubs.player("Player" + i, world, x, z, permissions,
+                        (player, message) -> tracker.delivered(message)));
+            }
+            return out;
+        }
+
+        /**
+         * Fire events at a fixed total rate, spread over the event threads, for the
+         * warm-up plus the measured window.
+         */
+        private void storm() throws InterruptedException {
+            double perSecond = options.players * options.rate;
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+            long end = measureFrom + TimeUnit.SECONDS.toNanos(options.seconds);
+
+            List<Thread> senders = new ArrayList<>();
+            for (int t = 0; t < options.eventThreads; t++) {
+                int offset = t;
+                Thread sender = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (long n = offset; ; n += options.eventThreads) {
+                        long due = start + n * intervalNanos;
+                        if (due >= end) return;
+                        long wait = due - System.nanoTime();
+                        if (wait > 0) LockSupport.parkNanos(wait);
+                        if (!measuring.get() && System.nanoTime() >= measureFrom) measuring.set(true);
+                        chat(random);
+                    }
+                }, "Netty Thread #" + (t + 1));
+                sender.start();
+                senders.add(sender);
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+        }
+
+        private void chat(ThreadLocalRandom random) {
+            Player sender = players.get(random.nextInt(players.size()));
+            String[] pool = random.nextDouble() < options.colour ? COLOURED : PLAIN;
+            long id = nextId.incrementAndGet();
+            String message = pool[random.nextInt(pool.length)] + ID_MARKER + id + "]";
+            if (random.nextDouble() < options.mentions) {
+                message = "@" + players.get(random.nextInt(players.size())).getName() + " " + message;
+            }
+
+            // Channels narrow who hears it (a LOCAL channel to those nearby)
+            Channel channel = channels.speakingChannel(sender, ChatSettings.current());
+            int audience = channel != null ? channels.recipients(channel, sender, everyone).size() : everyone.size();
+            tracker.sent(id, audience, measuring.get());
+            listener.onChat(new AsyncPlayerChatEvent(true, sender, message, everyone));
+        }
+
+        private Thread startMonitor() {
+            Thread monitor = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    peakQueued.accumulateAndGet(listener.queued(), Math::max);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }, "Queue Monitor");
+            monitor.setDaemon(true);
+            monitor.start();
+            return monitor;
+        }
+
+        private void report() {
+            long measured = tracker.measured.get();
+            System.out.println();
+            System.out.printf("FineChat chat storm: %d players x %.1f msg/s for %ds (+%ds warm-up), %.0f%% colour, %.0f%% mentions, %d region sections%n",
+                    options.players, options.rate, options.seconds, options.warmupSeconds, options.colour * 100,
+                    options.mentions * 100, options.regions);
+            System.out.printf("  executor: %d threads, queue %d (%d per player), %s; %d region threads, %d event threads%n",
+                    options.chatThreads, options.queueCapacity, options.queuePerPlayer, options.overflowPolicy,
+                    options.regionThreads, options.eventThreads);
+            System.out.println();
+            System.out.printf("Sent             %,d messages (%,d measured, %.0f/s)%n",
+                    nextId.get(), measured, measured / (double) options.seconds);
+            System.out.printf("Delivered        %,d player lines, %,d console lines%n", tracker.deliveries.get(), consoleLines.get());
+            System.out.printf("Not delivered    %,d messages (shed, spam or lost), %,d partially%n",
+                    tracker.undelivered(), tracker.partial());
+            if (options.spamGuard) System.out.printf("Blocked as spam  %,d messages%n", stats.spamCount());
+            System.out.println();
+            System.out.println("Latency (ms)           p50      p90      p99    p99.9      max");
+            System.out.println("  first recipient " + tracker.first.summary());
+            System.out.println("  all recipients  " + tracker.all.summary());
+            System.out.println();
+            System.out.printf("Peak chat queue  %,d messages%n", peakQueued.get());
+            System.out.printf("Async tasks      %,d%n", scheduler.asyncTasks());
+            System.out.printf("Global tasks     %,d (peak depth %,d)%n",
+                    scheduler.globalRegion().tasks(), scheduler.globalRegion().peakDepth());
+            if (scheduler.errors() > 0) {
+                System.out.printf("Task errors      %,d%n", scheduler.errors());
+            }
+
+            List<SimulatedScheduler.Region> regions = scheduler.regions();
+            regions.sort(Comparator.comparing(SimulatedScheduler.Region::name));
+            System.out.println();
+            System.out.printf("Regions (%d)             tasks   peak depth%n", regions.size());
+            for (SimulatedScheduler.Region region : regions) {
+                System.out.printf("  %-18s %,10d %,12d%n", region.name(), region.tasks(), region.peakDepth());
+            }
+
+            // FineChat's own per-stage view of the same run (/finechat stats), warm-up included
+            System.out.println();
+            for (String line : stats.report()) {
+                System.out.println(line.replaceAll("&[0-9a-fk-or]", ""));
+            }
+        }
+    }
+
+    /**
+     * Follows each message from its event to the last recipient, matching deliveries
+     * by the id marker at the end of the message.
+     */
+    private static final class Tracker {
+        private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+        private final AtomicLong deliveries = new AtomicLong();
+        private final AtomicLong measured = new AtomicLong();
+        private final Latencies first = new Latencies();
+        private final Latencies all = new Latencies();
+
+        void sent(long id, int recipients, boolean measure) {
+            if (measure) measured.incrementAndGet();
+            pending.put(id, new Pending(System.nanoTime(), recipients, measure));
+        }
+
+        void delivered(String formatted) {
+            long now = System.nanoTime();
+            deliveries.incrementAndGet();
+            Pending p = pending.get(parseId(formatted));
+            if (p == null) return;
+
+            if (p.firstSeen.compareAndSet(false, true) && p.measured) first.add(now - p.sentAt);
+            if (p.remaining.decrementAndGet() == 0) {
+                pending.remove(parseId(formatted));
+                if (p.measured) all.add(now - p.sentAt);
+            }
+        }
+
+        long undelivered() {
+            return pending.values().stream().filter(p -> !p.firstSeen.get()).count();
+        }
+
+        long partial() {
+            return pending.values().stream().filter(p -> p.firstSeen.get()).count();
+        }
+
+        private static long parseId(String formatted) {
+            int at = formatted.lastIndexOf(ID_MARKER);
+            if (at < 0) return -1;
+            long id = 0;
+            for (int i = at + ID_MARKER.length(); i < formatted.length(); i++) {
+                char c = formatted.charAt(i);
+                if (c < '0' || c > '9') break;
+                id = id * 10 + (c - '0');
+            }
+            return id;
+        }
+    }
+
+    private static final class Pending {
+        final long sentAt;
+        final AtomicInteger remaining;
+        final AtomicBoolean firstSeen = new AtomicBoolean();
+        final boolean measured;
+
+        Pending(long sentAt, int recipients, boolean measured) {
+            this.sentAt = sentAt;
+            this.remaining = new AtomicInteger(recipients);
+            this.measured = measured;
+        }
+    }
+
+    private static final class Latencies {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+
+        synchronized String summary() {
+            if (size == 0) return "     (no samples)";
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return String.format("%8.2f %8.2f %8.2f %8.2f %8.2f",
+                    millis(sorted, 0.50), millis(sorted, 0.90), millis(sorted, 0.99), millis(sorted, 0.999),
+                    sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double millis(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    private static final class FixedMeta implements MetaProvider {
+        private final String prefix;
+        private final String suffix;
+
+        FixedMeta(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public String getName() {
+            return "Fixed";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public String getPrefix(Player player) {
+            return prefix;
+        }
+
+        @Override
+        public String getSuffix(Player player) {
+            return suffix;
+        }
+    }
+
+    private static final class Options {
+        int players = 500;
+        double rate = 2.0;
+        double colour = 0.2;
+        // Share of messages that @mention a random player
+        double mentions = 0.1;
+        int seconds = 30;
+        int warmupSeconds = 5;
+        int regions = 16;
+        int regionThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        int asyncThreads = 4;
+        int eventThreads = 4;
+        int chatThreads = ChatConfig.chatThreads;
+        int queueCapacity = ChatConfig.chatQueueCapacity;
+        int queuePerPlayer = ChatConfig.chatQueuePerPlayer;
+        String overflowPolicy = ChatConfig.chatOverflowPolicy;
+        boolean chatLog = true;
+        boolean history = true;
+        boolean channels = true;
+        // Off by default: the storm's senders chat far faster than the guard allows
+        boolean spamGuard = false;
+        String channel;
+        String format;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String key = args[i];
+                if (key.isBlank()) continue;
+                if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + key);
+                String value = args[++i];
+                switch (key) {
+                    case "--players": o.players = Integer.parseInt(value); break;
+                    case "--rate": o.rate = Double.parseDouble(value); break;
+                    case "--colour": case "--color": o.colour = Double.parseDouble(value); break;
+                    case "--mentions": o.mentions = Double.parseDouble(value); break;
+                    case "--seconds": o.seconds = Integer.parseInt(value); break;
+                    case "--warmup": o.warmupSeconds = Integer.parseInt(value); break;
+                    case "--regions": o.regions = Integer.parseInt(value); break;
+                    case "--region-threads": o.regionThreads = Integer.parseInt(value); break;
+                    case "--async-threads": o.asyncThreads = Integer.parseInt(value); break;
+                    case "--event-threads": o.eventThreads = Integer.parseInt(value); break;
+                    case "--chat-threads": o.chatThreads = Integer.parseInt(value); break;
+                    case "--queue": o.queueCapacity = Integer.parseInt(value); break;
+                    case "--queue-per-player": o.queuePerPlayer = Integer.parseInt(value); break;
+                    case "--policy": o.overflowPolicy = value; break;
+                    case "--format": o.format = value; break;
+                    case "--chat-log": o.chatLog = Boolean.parseBoolean(value); break;
+                    case "--history": o.history = Boolean.parseBoolean(value); break;
+                    case "--channels": o.channels = Boolean.parseBoolean(value); break;
+                    case "--channel": o.channel = value; break;
+                    case "--spam-guard": o.spamGuard = Boolean.parseBoolean(value); break;
+                    default: throw new IllegalArgumentException("unknown option " + key);
+                }
+            }
+            if (o.players <= 0 || o.rate <= 0 || o.seconds <= 0 || o.regions <= 0) {
+                throw new IllegalArgumentException("players, rate, seconds and regions must be positive");
+            }
+            return o;
+        }
+    }
+}
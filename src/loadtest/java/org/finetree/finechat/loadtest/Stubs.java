@@ -0,0 +1,148 @@
+package org.finetree.finechat.loadtest;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Proxy-backed Bukkit objects for the load simulator. Each answers the handful of
+ * methods FineChat's chat path uses and returns a zero value for everything else.
+ */
+final class Stubs {
+
+    private Stubs() {}
+
+    interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    static World world(String name) {
+        UUID uid = UUID.nameUUIDFromBytes(name.getBytes());
+        return stub(World.class, (method, args) -> {
+            switch (method) {
+                case "getName": return name;
+                case "getUID": return uid;
+                default: return null;
+            }
+        });
+    }
+
+    /**
+     * @param inbox called with every message sent to the player, on the sending thread
+     */
+    static Player player(String name, World world, int blockX, int blockZ, Set<String> permissions,
+                         BiConsumer<Player, String> inbox) {
+        UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes());
+        Location location = new Location(world, blockX + 0.5, 64, blockZ + 0.5);
+        Player[] self = new Player[1];
+
+        self[0] = stub(Player.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                case "getDisplayName": return name;
+                case "getUniqueId": return uuid;
+                case "getWorld": return world;
+                case "getLocation": return location;
+                case "isOnline": return true;
+                case "hasPermission": return args[0] instanceof String && permissions.contains(args[0]);
+                case "sendMessage":
+                    if (args.length == 1 && args[0] instanceof String) inbox.accept(self[0], (String) args[0]);
+                    return null;
+                default: return null;
+            }
+        });
+        return self[0];
+    }
+
+    static Plugin plugin(String name) {
+        return stub(Plugin.class, (method, args) -> {
+            switch (method) {
+                case "getName": return name;
+                case "isEnabled": return true;
+                default: return null;
+            }
+        });
+    }
+
+    /**
+     * Install a Server so Bukkit's static accessors work: online players, player
+     * lookup and a console that hands each line to the given consumer.
+     */
+    static void installServer(Collection<? extends Player> online, Consumer<String> console) {
+        Map<UUID, Player> byId = new ConcurrentHashMap<>();
+        for (Player player : online) {
+            byId.put(player.getUniqueId(), player);
+        }
+        Logger logger = Logger.getLogger("ChatStorm");
+
+        ConsoleCommandSender consoleSender = stub(ConsoleCommandSender.class, (method, args) -> {
+            switch (method) {
+                case "getName": return "CONSOLE";
+                case "sendMessage":
+                    if (args.length == 1 && args[0] instanceof String) console.accept((String) args[0]);
+                    if (args.length == 1 && args[0] instanceof String[]) {
+                        for (String line : (String[]) args[0]) {
+                            console.accept(line);
+                        }
+                    }
+                    return null;
+                default: return null;
+            }
+        });
+
+        Server server = stub(Server.class, (method, args) -> {
+            switch (method) {
+                case "getName": return "ChatStorm";
+                case "getVersion":
+                case "getBukkitVersion": return "simulated";
+                case "getLogger": return logger;
+                case "getConsoleSender": return consoleSender;
+                case "getOnlinePlayers": return online;
+                case "getPlayer": return args[0] instanceof UUID ? byId.get(args[0]) : null;
+                default: return null;
+            }
+        });
+        Bukkit.setServer(server);
+    }
+
+    static <T> T stub(Class<T> type, Answer answer) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode": return System.identityHashCode(self);
+                case "equals": return self == args[0];
+                case "toString": return type.getSimpleName() + "Stub";
+                default: break;
+            }
+            Object result = answer.answer(method.getName(), args == null ? new Object[0] : args);
+            return result != null ? result : zero(method.getReturnType());
+        });
+        return type.cast(proxy);
+    }
+
+    private static Object zero(Class<?> type) {
+        if (!type.isPrimitive()) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == int.class) return 0;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        return null;
+    }
+}
@@ -0,0 +1,301 @@
+package org.finetree.finechat.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-memory PlatformScheduler shaped like Folia, for running FineChat without a server.
+ *
+ * - Every region section (grouped exactly as {@link RegionBatches} does) is a serial
+ *   queue. All regions share a fixed pool of region threads, and each turn on a thread
+ *   runs a bounded number of tasks, like a region tick.
+ * - The global region is one more serial queue on the same pool.
+ * - Async tasks go to a separate pool.
+ * - Delays and periods are in ticks of 50ms wall time.
+ *
+ * Task counts and peak queue depth are kept per region.
+ */
+public final class SimulatedScheduler implements PlatformScheduler {
+
+    private static final long TICK_MS = 50L;
+
+    // Tasks a region runs per turn before handing the thread to the next region
+    private static final int TASKS_PER_TURN = 64;
+
+    private final ExecutorService regionThreads;
+    private final ExecutorService asyncThreads;
+    private final ScheduledExecutorService timer;
+
+    private final Region global;
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    private final AtomicLong asyncTasks = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger nextTaskId = new AtomicInteger(1);
+
+    public SimulatedScheduler(int regionThreadCount, int asyncThreadCount) {
+        this.regionThreads = Executors.newFixedThreadPool(regionThreadCount, threads("Region Thread"));
+        this.asyncThreads = Executors.newFixedThreadPool(asyncThreadCount, threads("Async Thread"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(threads("Tick Timer"));
+        this.global = new Region("global");
+    }
+
+    // === Immediate tasks ===
+
+    @Override
+    public void runAsync(Runnable task) {
+        asyncTasks.incrementAndGet();
+        asyncThreads.execute(() -> run(task));
+    }
+
+    @Override
+    public void runSyncGlobal(Runnable task) {
+        global.execute(task);
+    }
+
+    @Override
+    public void runSyncPlayer(Player player, Runnable task) {
+        regionOf(player).execute(task);
+    }
+
+    @Override
+    public void runForPlayers(Collection<? extends Player> players, Consumer<Player> action) {
+        if (players.isEmpty()) return;
+
+        List<Player> unplaced = new ArrayList<>();
+        for (RegionBatches.Batch batch : RegionBatches.group(players, player -> RegionBatches.Chunk.of(player.getLocation()), unplaced)) {
+            region(batch.world(), batch.chunkX(), batch.chunkZ()).execute(() -> {
+                for (Player player : batch.players()) {
+                    if (player.isOnline()) action.accept(player);
+                }
+            });
+        }
+
+        for (Player player : unplaced) {
+            runSyncPlayer(player, () -> action.accept(player));
+        }
+    }
+
+    // === Delayed tasks ===
+
+    @Override
+    public ScheduledTask runAsyncLater(Runnable task, long delayTicks) {
+        return schedule(() -> runAsync(task), delayTicks, 0, false);
+    }
+
+    @Override
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return schedule(() -> runAsync(task), delayTicks, periodTicks, false);
+    }
+
+    @Override
+    public ScheduledTask runSyncGlobalLater(Runnable task, long delayTicks) {
+        return schedule(() -> runSyncGlobal(task), delayTicks, 0, true);
+    }
+
+    @Override
+    public ScheduledTask runSyncGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return schedule(() -> runSyncGlobal(task), delayTicks, periodTicks, true);
+    }
+
+    @Override
+    public ScheduledTask runSyncPlayerLater(Player player, Runnable task, long delayTicks) {
+        if (player == null) return runSyncGlobalLater(task, delayTicks);
+        return schedule(() -> runSyncPlayer(player, task), delayTicks, 0, true);
+    }
+
+    private ScheduledTask schedule(Runnable submit, long delayTicks, long periodTicks, boolean sync) {
+        long delay = Math.max(0, delayTicks) * TICK_MS;
+        ScheduledFuture<?> future = periodTicks > 0
+                ? timer.scheduleAtFixedRate(submit, delay, periodTicks * TICK_MS, TimeUnit.MILLISECONDS)
+                : timer.schedule(submit, delay, TimeUnit.MILLISECONDS);
+        return new ScheduledTask(new SimulatedTask(nextTaskId.getAndIncrement(), future, sync));
+    }
+
+    // === Regions ===
+
+    private Region regionOf(Player player) {
+        Location loc = player == null ? null : player.getLocation();
+        World world = loc == null ? null : loc.getWorld();
+        if (world == null) return global;
+        return region(world, loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+    }
+
+    private Region region(World world, int chunkX, int chunkZ) {
+        // Same 16x16-chunk sections as RegionBatches
+        String name = world.getName() + ":" + (chunkX >> 4) + "," + (chunkZ >> 4);
+        return regions.computeIfAbsent(name, Region::new);
+    }
+
+    /**
+     * @return every region that has received a task, not including the global region.
+     */
+    public List<Region> regions() {
+        return new ArrayList<>(regions.values());
+    }
+
+    public Region globalRegion() {
+        return global;
+    }
+
+    public long asyncTasks() {
+        return asyncTasks.get();
+    }
+
+    /**
+     * @return tasks that threw. The first few are printed as they happen.
+     */
+    public long errors() {
+        return errors.get();
+    }
+
+    /**
+     * Wait until no region has queued or running work.
+     *
+     * @return false if the timeout passed first
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (System.nanoTime() < deadline) {
+            boolean idle = global.isIdle();
+            for (Region region : regions.values()) {
+                idle &= region.isIdle();
+            }
+            if (idle) return true;
+            Thread.sleep(5);
+        }
+        return false;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        regionThreads.shutdownNow();
+        asyncThreads.shutdownNow();
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            if (errors.incrementAndGet() <= 5) t.printStackTrace();
+        }
+    }
+
+    private static ThreadFactory threads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + " #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A serial task queue that borrows a region thread while it has work.
+     */
+    public final class Region {
+        private final String name;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong tasks = new AtomicLong();
+        private final AtomicInteger peakDepth = new AtomicInteger();
+
+        private Region(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public long tasks() {
+            return tasks.get();
+        }
+
+        public int peakDepth() {
+            return peakDepth.get();
+        }
+
+        void execute(Runnable task) {
+            tasks.incrementAndGet();
+            queue.add(task);
+            peakDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+            if (scheduled.compareAndSet(false, true)) regionThreads.execute(this::turn);
+        }
+
+        private void turn() {
+            for (int i = 0; i < TASKS_PER_TURN; i++) {
+                Runnable task = queue.poll();
+                if (task == null) break;
+                run(task);
+                depth.decrementAndGet();
+            }
+            scheduled.set(false);
+            // Work left over (or added after the last poll): queue another turn
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) regionThreads.execute(this::turn);
+        }
+
+        private boolean isIdle() {
+            return depth.get() == 0 && !scheduled.get();
+        }
+    }
+
+    private static final class SimulatedTask implements BukkitTask {
+        private final int id;
+        private final ScheduledFuture<?> future;
+        private final boolean sync;
+
+        SimulatedTask(int id, ScheduledFuture<?> future, boolean sync) {
+            this.id = id;
+            this.future = future;
+            this.sync = sync;
+        }
+
+        @Override
+        public int getTaskId() {
+            return id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return null;
+        }
+
+        @Override
+        public boolean isSync() {
+            return sync;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public void cancel() {
+            future.cancel(false);
+        }
+    }
+}
@@ -2,22 +2,52 @@ package org.finetree.finechat;
 
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.finetree.finechat.channel.ChannelManager;
+import org.finetree.finechat.channel.ProximityGrid;
 import org.finetree.finechat.chat.ChatFormatter;
 import org.finetree.finechat.chat.ChatListener;
+import org.finetree.finechat.command.ChannelCommand;
+import org.finetree.finechat.command.ChatHistoryCommand;
+import org.finetree.finechat.command.FineChatCommand;
 import org.finetree.finechat.config.ChatConfig;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.filter.FilterAlerts;
+import org.finetree.finechat.history.ChatHistory;
 import org.finetree.finechat.hooks.GroupManagerHook;
 import org.finetree.finechat.hooks.LuckPermsHook;
 import org.finetree.finechat.hooks.PlaceholderApiHook;
 import org.finetree.finechat.hooks.VaultChatHook;
+import org.finetree.finechat.log.ChatLog;
+import org.finetree.finechat.mention.MentionIndex;
+import org.finetree.finechat.meta.CapabilityCache;
+import org.finetree.finechat.meta.MetaProviderChain;
+import org.finetree.finechat.meta.PlayerMetaCache;
 import org.finetree.finechat.scheduler.PlatformScheduler;
 import org.finetree.finechat.scheduler.PlatformSchedulers;
+import org.finetree.finechat.spam.SpamGuard;
+import org.finetree.finechat.stats.ChatStats;
+import org.finetree.finechat.stats.StatsFile;
 import redempt.redlib.config.ConfigManager;
 
 public class FineChat extends JavaPlugin {
 
     private PlatformScheduler scheduler;
+    private ConfigManager configManager;
 
     private GroupManagerHook groupManagerHook;
+    private MetaProviderChain metaProviders;
+    private PlayerMetaCache metaCache;
+    private CapabilityCache capabilityCache;
+    private ChannelManager channels;
+    private ProximityGrid proximityGrid;
+    private SpamGuard spamGuard;
+    private MentionIndex mentions;
+    private ChatListener chatListener;
+    private ChatLog chatLog;
+    private ChatHistory history;
+    private StatsFile statsFile;
+
+    private final ChatStats stats = new ChatStats();
 
     private final VaultChatHook vaultHook = new VaultChatHook();
     private final LuckPermsHook luckPermsHook = new LuckPermsHook();
@@ -26,34 +56,186 @@ public class FineChat extends JavaPlugin {
     @Override
     public void onEnable() {
         // RedLib config
-        ConfigManager.create(this)
+        configManager = ConfigManager.create(this)
                 .target(ChatConfig.class)
                 .saveDefaults()
                 .reload();
+        ChatSettings settings = ChatSettings.fromConfig();
+        ChatSettings.publish(settings);
 
         scheduler = PlatformSchedulers.create(this);
 
         // Hooks (optional)
         groupManagerHook = new GroupManagerHook(this);
-        if (groupManagerHook.isPresent()) {
+        if (groupManagerHook.register()) {
             getLogger().info("[FineChat] Hooked GroupManager");
         }
 
         vaultHook.setup(this);
         luckPermsHook.setup(this);
+        placeholderHook.setup(this);
+        placeholderHook.setCacheSeconds(settings.getPlaceholderCacheSeconds());
+
+        // Prefix/suffix providers; hook listeners above are registered first, so the hooks
+        // rebind before the chain is rebuilt on plugin/service changes
+        metaProviders = new MetaProviderChain();
+        metaProviders.registerBuiltIn(this, groupManagerHook);
+        metaProviders.registerBuiltIn(this, vaultHook);
+        metaProviders.registerBuiltIn(this, luckPermsHook);
+        groupManagerHook.onDataChange(metaProviders::invalidateAll);
+        luckPermsHook.onUserRecalculate(metaProviders::invalidate);
+        metaProviders.start(this);
+        getLogger().info("[FineChat] Prefix/suffix providers: " + metaProviders.describe());
+
+        metaCache = new PlayerMetaCache(metaProviders);
+        metaCache.start(this, scheduler);
+
+        capabilityCache = new CapabilityCache(luckPermsHook);
+        capabilityCache.start(this, scheduler);
+
+        proximityGrid = new ProximityGrid();
+        proximityGrid.start(this, scheduler);
+
+        channels = new ChannelManager(luckPermsHook, proximityGrid);
+        channels.start(this, scheduler);
+
+        spamGuard = new SpamGuard();
+        spamGuard.start(this);
+
+        mentions = new MentionIndex(scheduler);
+        mentions.start(this);
+
+        FilterAlerts filterAlerts = new FilterAlerts(scheduler, capabilityCache, getLogger());
+        ChatFormatter formatter = new ChatFormatter(metaCache, placeholderHook, stats, filterAlerts, mentions);
+        Bukkit.getPluginManager().registerEvents(formatter, this);
+
+        chatLog = new ChatLog(getDataFolder().toPath().resolve("logs"), scheduler, getLogger());
+        chatLog.start(settings);
 
-        ChatFormatter formatter = new ChatFormatter(groupManagerHook, vaultHook, luckPermsHook, placeholderHook);
+        history = new ChatHistory(getDataFolder().toPath().resolve("history"), getLogger());
+        history.start(settings);
 
-        Bukkit.getPluginManager().registerEvents(new ChatListener(scheduler, formatter), this);
+        chatListener = new ChatListener(scheduler, formatter, capabilityCache, channels, spamGuard, chatLog, history,
+                stats, getLogger(), settings);
+        Bukkit.getPluginManager().registerEvents(chatListener, this);
+
+        statsFile = new StatsFile(stats, getDataFolder().toPath().resolve("stats.txt"), getLogger());
+        statsFile.start(scheduler, settings);
+
+        FineChatCommand command = new FineChatCommand(this);
+        getCommand("finechat").setExecutor(command);
+        getCommand("finechat").setTabCompleter(command);
+
+        ChannelCommand channelCommand = new ChannelCommand(channels);
+        getCommand("channel").setExecutor(channelCommand);
+        getCommand("channel").setTabCompleter(channelCommand);
+
+        ChatHistoryCommand historyCommand = new ChatHistoryCommand(this);
+        getCommand("chathistory").setExecutor(historyCommand);
+        getCommand("chathistory").setTabCompleter(historyCommand);
 
         getLogger().info("FineChat enabled.");
     }
 
     @Override
     public void onDisable() {
+        if (chatListener != null) {
+            chatListener.shutdown();
+        }
+        // After the listener: messages it finishes while disabling are no longer delivered,
+        // but they are still written to the log and history
+        if (chatLog != null) {
+            chatLog.stop();
+        }
+        if (history != null) {
+            history.stop();
+        }
+        if (metaCache != null) {
+            metaCache.stop();
+        }
+        if (capabilityCache != null) {
+            capabilityCache.stop();
+        }
+        if (channels != null) {
+            channels.stop();
+        }
+        if (proximityGrid != null) {
+            proximityGrid.stop();
+        }
+        if (spamGuard != null) {
+            spamGuard.stop();
+        }
+        if (mentions != null) {
+            mentions.stop();
+        }
+        if (statsFile != null) {
+            statsFile.stop();
+        }
         getLogger().info("FineChat disabled.");
     }
 
+    /**
+     * Re-read config.yml, compile it and publish it. Messages already in flight finish
+     * with the settings they started with. If a component fails to take the new
+     * settings, the previous ones are published and reapplied before the error is
+     * rethrown, so no component is left on a config the others don't use.
+     *
+     * @return the newly published settings
+     */
+    public synchronized ChatSettings reloadSettings() {
+        configManager.reload();
+        ChatSettings settings = ChatSettings.fromConfig();
+        ChatSettings previous = ChatSettings.current();
+
+        // Published first: work the components schedule reads ChatSettings.current()
+        ChatSettings.publish(settings);
+        try {
+            apply(settings);
+        } catch (RuntimeException | Error e) {
+            ChatSettings.publish(previous);
+            try {
+                apply(previous);
+            } catch (RuntimeException | Error rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        }
+        return settings;
+    }
+
+    private void apply(ChatSettings settings) {
+        placeholderHook.setCacheSeconds(settings.getPlaceholderCacheSeconds());
+        metaProviders.rebuild(settings);
+        metaCache.reload(settings);
+        capabilityCache.reload(settings);
+        proximityGrid.reload(settings);
+        channels.reload(settings);
+        spamGuard.reload(settings);
+        chatListener.reload(settings);
+        chatLog.reload(settings);
+        history.reload(settings);
+        statsFile.reload(settings);
+    }
+
+    /**
+     * Other plugins can add prefix/suffix providers here (also available as a Bukkit service).
+     */
+    public MetaProviderChain getMetaProviders() {
+        return metaProviders;
+    }
+
+    public SpamGuard getSpamGuard() {
+        return spamGuard;
+    }
+
+    public ChatHistory getHistory() {
+        return history;
+    }
+
+    public ChatStats getStats() {
+        return stats;
+    }
+
     public PlatformScheduler getPlatformScheduler() {
         return scheduler;
     }
@@ -0,0 +1,120 @@
+package org.finetree.finechat.channel;
+
+import org.finetree.finechat.chat.FormatTemplate;
+
+import java.util.Locale;
+
+/**
+ * A chat channel as configured: compiled once per config load, immutable after.
+ * Who is in it is tracked by {@link ChannelManager}.
+ */
+public final class Channel {
+
+    public enum Scope {
+        /** Every member hears every message. */
+        GLOBAL,
+        /** Members hear messages sent from the world they are in. */
+        WORLD,
+        /** Members hear messages sent within the channel's radius of them. */
+        LOCAL;
+
+        public static Scope parse(String value) {
+            if (value != null) {
+                for (Scope scope : values()) {
+                    if (scope.name().equalsIgnoreCase(value.trim())) return scope;
+                }
+            }
+            return GLOBAL;
+        }
+    }
+
+    private final String name;
+    private final String key;
+    private final FormatTemplate template;
+    private final String permission;
+    private final Scope scope;
+    private final boolean autoJoin;
+    private final int radius;
+    private final boolean spamGuard;
+    private final int slowModeSeconds;
+
+    /**
+     * @param format     the channel's format, or null/empty to use the main format
+     * @param permission needed to join and hear the channel, or null/empty for anyone
+     * @param radius     how far a LOCAL channel reaches, in blocks
+     * @param slowModeSeconds this channel's slow mode, or -1 for the server-wide one
+     */
+    public Channel(String name, String format, String permission, Scope scope, boolean autoJoin, int radius,
+                   boolean spamGuard, int slowModeSeconds) {
+        this.name = name;
+        this.key = key(name);
+        this.template = format == null || format.isEmpty() ? null : FormatTemplate.compile(format);
+        this.permission = permission == null || permission.isBlank() ? null : permission.trim();
+        this.scope = scope;
+        this.autoJoin = autoJoin;
+        this.radius = Math.max(1, radius);
+        this.spamGuard = spamGuard;
+        this.slowModeSeconds = Math.max(-1, slowModeSeconds);
+    }
+
+    /**
+     * @return the lookup key for a channel name: channel names are case-insensitive
+     */
+    public static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the channel's own compiled format, or null to use the main format
+     */
+    public FormatTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the permission needed to be in the channel, or null if anyone may
+     */
+    public String getPermission() {
+        return permission;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return true if players are put in the channel when they log in (if permitted)
+     */
+    public boolean isAutoJoin() {
+        return autoJoin;
+    }
+
+    /**
+     * @return how far a LOCAL channel reaches, in blocks
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * @return true if messages in the channel are checked for spam
+     */
+    public boolean isSpamGuard() {
+        return spamGuard;
+    }
+
+    /**
+     * @return the channel's own slow mode in seconds, or -1 to use the server-wide one
+     */
+    public int getSlowModeSeconds() {
+        return slowModeSeconds;
+    }
+}
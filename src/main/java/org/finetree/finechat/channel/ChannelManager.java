@@ -0,0 +1,323 @@
+package org.finetree.finechat.channel;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.hooks.LuckPermsHook;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who is in which channel, kept current as players log in, quit, change world and
+ * use /ch, so routing a message reads one member set instead of scanning every
+ * online player.
+ *
+ * Each channel keeps its members in a concurrent set, plus one set per world for
+ * WORLD-scoped channels. A player's memberships only change on that player's own
+ * thread (their events, their commands, refreshes scheduled onto it); the chat
+ * threads only read. Joins, leaves and focus last for the session.
+ */
+public class ChannelManager implements Listener {
+
+    public enum Result {
+        DONE,
+        ALREADY,
+        NOT_MEMBER,
+        NO_PERMISSION
+    }
+
+    private final LuckPermsHook luckPerms;
+    private final ProximityGrid grid;
+
+    private final Map<String, Members> members = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerChannels> players = new ConcurrentHashMap<>();
+
+    private PlatformScheduler scheduler;
+
+    /**
+     * @param grid player positions, for LOCAL channels
+     */
+    public ChannelManager(LuckPermsHook luckPerms, ProximityGrid grid) {
+        this.luckPerms = luckPerms;
+        this.grid = grid;
+    }
+
+    public void start(Plugin plugin, PlatformScheduler scheduler) {
+        this.scheduler = scheduler;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+
+        if (luckPerms != null) {
+            // A channel permission may have been granted or taken away
+            luckPerms.onUserRecalculate(uuid -> {
+                Player player = Bukkit.getPlayer(uuid);
+                if (player != null) scheduler.runSyncPlayer(player, () -> refresh(player));
+            });
+        }
+
+        sync(ChatSettings.current());
+        refreshAll();
+    }
+
+    /**
+     * Settings were reloaded: channels may have been added, removed or given new
+     * permissions. Everyone is re-checked on their own thread.
+     */
+    public void reload(ChatSettings settings) {
+        sync(settings);
+        refreshAll();
+    }
+
+    public void stop() {
+        members.clear();
+        players.clear();
+    }
+
+    // === Chat path (any thread) ===
+
+    /**
+     * @return the channel the player talks in: their focus while they are still in
+     * it, otherwise the default channel if they are in that. Null when channels are
+     * off, or when the player is in neither and so has no channel to talk in.
+     */
+    public Channel speakingChannel(Player player, ChatSettings settings) {
+        if (!settings.isChannelsEnabled()) return null;
+        PlayerChannels state = players.get(player.getUniqueId());
+        if (state == null) return null;
+
+        String focus = state.focus;
+        if (focus != null && state.joined.contains(focus)) {
+            Channel channel = settings.getChannel(focus);
+            if (channel != null) return channel;
+        }
+        // Left, or never allowed into, the default: it is not theirs to talk in
+        Channel fallback = settings.getDefaultChannel();
+        return fallback != null && state.joined.contains(fallback.getKey()) ? fallback : null;
+    }
+
+    /**
+     * Who hears a message sent to the channel: its members (in the sender's world, for
+     * a WORLD channel; within its radius, for a LOCAL one) that are also still among
+     * the event's recipients, so plugins that remove recipients (ignore lists, vanish)
+     * keep working. The sender always sees their own message.
+     */
+    public List<Player> recipients(Channel channel, Player sender, Set<Player> eventRecipients) {
+        Members in = members.get(channel.getKey());
+        UUID senderId = sender.getUniqueId();
+        List<Player> out = new ArrayList<>();
+        out.add(sender);
+        if (in == null) return out;
+
+        if (channel.getScope() == Channel.Scope.LOCAL) {
+            // The grid narrows it to the few players nearby; membership is a set lookup each
+            grid.forEachNear(sender, channel.getRadius(), near -> {
+                if (!near.getUniqueId().equals(senderId) && in.all.contains(near) && eventRecipients.contains(near)) {
+                    out.add(near);
+                }
+            });
+            return out;
+        }
+
+        Set<Player> heard = channel.getScope() == Channel.Scope.WORLD ? in.inWorld(world(sender)) : in.all;
+        for (Player member : heard) {
+            if (!member.getUniqueId().equals(senderId) && eventRecipients.contains(member)) out.add(member);
+        }
+        return out;
+    }
+
+    public boolean isMember(Player player, Channel channel) {
+        PlayerChannels state = players.get(player.getUniqueId());
+        return state != null && state.joined.contains(channel.getKey());
+    }
+
+    public int memberCount(Channel channel) {
+        Members in = members.get(channel.getKey());
+        return in != null ? in.all.size() : 0;
+    }
+
+    // === Player's thread ===
+
+    public boolean canJoin(Player player, Channel channel) {
+        return channel.getPermission() == null || player.hasPermission(channel.getPermission());
+    }
+
+    public Result join(Player player, Channel channel) {
+        if (!canJoin(player, channel)) return Result.NO_PERMISSION;
+        PlayerChannels state = state(player);
+        state.left.remove(channel.getKey());
+        if (!state.joined.add(channel.getKey())) return Result.ALREADY;
+        members(channel.getKey()).place(player, null, state.world);
+        return Result.DONE;
+    }
+
+    public Result leave(Player player, Channel channel) {
+        PlayerChannels state = players.get(player.getUniqueId());
+        if (state == null || !state.joined.remove(channel.getKey())) return Result.NOT_MEMBER;
+        state.left.add(channel.getKey());
+        members(channel.getKey()).remove(player, state.world);
+        if (channel.getKey().equals(state.focus)) state.focus = null;
+        return Result.DONE;
+    }
+
+    /**
+     * Talk in the channel from now on, joining it first if needed.
+     */
+    public Result focus(Player player, Channel channel) {
+        Result joined = join(player, channel);
+        if (joined == Result.NO_PERMISSION) return joined;
+        state(player).focus = channel.getKey();
+        return Result.DONE;
+    }
+
+    /**
+     * Re-check the player's channels against the current settings and their
+     * permissions, and move them to their current world's sets.
+     */
+    public void refresh(Player player) {
+        if (!player.isOnline()) return;
+        ChatSettings settings = ChatSettings.current();
+        if (!settings.isChannelsEnabled()) {
+            forget(player);
+            return;
+        }
+
+        PlayerChannels state = state(player);
+        String previousWorld = state.world;
+        String world = worldName(player);
+        state.world = world;
+
+        Set<String> configured = new HashSet<>();
+        for (Channel channel : settings.getChannels()) {
+            String key = channel.getKey();
+            configured.add(key);
+            boolean wanted = state.joined.contains(key) || (channel.isAutoJoin() && !state.left.contains(key));
+            Members in = members(key);
+            if (wanted && canJoin(player, channel)) {
+                state.joined.add(key);
+                in.place(player, previousWorld, world);
+            } else {
+                state.joined.remove(key);
+                in.remove(player, previousWorld);
+            }
+        }
+        state.joined.retainAll(configured);
+    }
+
+    private void refreshAll() {
+        if (scheduler == null) return;
+        scheduler.runForPlayers(new ArrayList<>(Bukkit.getOnlinePlayers()), this::refresh);
+    }
+
+    private void forget(Player player) {
+        PlayerChannels state = players.remove(player.getUniqueId());
+        if (state == null) return;
+        for (Members in : members.values()) {
+            in.remove(player, state.world);
+        }
+    }
+
+    private void sync(ChatSettings settings) {
+        if (!settings.isChannelsEnabled()) {
+            members.clear();
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        for (Channel channel : settings.getChannels()) {
+            keys.add(channel.getKey());
+            members(channel.getKey());
+        }
+        members.keySet().retainAll(keys);
+    }
+
+    private Members members(String key) {
+        return members.computeIfAbsent(key, k -> new Members());
+    }
+
+    private PlayerChannels state(Player player) {
+        return players.computeIfAbsent(player.getUniqueId(), id -> {
+            PlayerChannels state = new PlayerChannels();
+            state.world = worldName(player);
+            return state;
+        });
+    }
+
+    private String world(Player player) {
+        PlayerChannels state = players.get(player.getUniqueId());
+        return state != null ? state.world : worldName(player);
+    }
+
+    private static String worldName(Player player) {
+        World world = player.getWorld();
+        return world != null ? world.getName() : "";
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        forget(event.getPlayer());
+    }
+
+    /**
+     * One channel's members: everyone, and split by the world they are in.
+     */
+    private static final class Members {
+        final Set<Player> all = ConcurrentHashMap.newKeySet();
+        private final Map<String, Set<Player>> byWorld = new ConcurrentHashMap<>();
+
+        Set<Player> inWorld(String world) {
+            Set<Player> players = byWorld.get(world);
+            return players != null ? players : Set.of();
+        }
+
+        void place(Player player, String from, String to) {
+            // Into the new world's set before out of the old, so a reader never misses them
+            byWorld.computeIfAbsent(to, w -> ConcurrentHashMap.newKeySet()).add(player);
+            all.add(player);
+            if (from != null && !from.equals(to)) {
+                Set<Player> old = byWorld.get(from);
+                if (old != null) old.remove(player);
+            }
+        }
+
+        void remove(Player player, String world) {
+            all.remove(player);
+            if (world == null) return;
+            Set<Player> players = byWorld.get(world);
+            if (players != null) players.remove(player);
+        }
+    }
+
+    /**
+     * A player's channels for this session. Written on the player's thread only.
+     */
+    private static final class PlayerChannels {
+        final Set<String> joined = ConcurrentHashMap.newKeySet();
+        // Auto-join channels the player left; not re-joined on refresh
+        final Set<String> left = ConcurrentHashMap.newKeySet();
+        volatile String focus;
+        volatile String world;
+    }
+}
@@ -0,0 +1,272 @@
+package org.finetree.finechat.channel;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Where every player is, bucketed per world into a uniform grid of square cells, so
+ * "who is within N blocks" reads the few cells the radius overlaps instead of every
+ * online player.
+ *
+ * Positions are block coordinates, updated from the player's own events (move,
+ * teleport, respawn, world change) and only when they cross into another block; the
+ * player only changes cell sets when they cross into another cell. The seed pass at
+ * start and reload runs through {@link PlatformScheduler#runForPlayers}, so on Folia
+ * each player's location is read on the region thread that owns them.
+ *
+ * Only kept while a LOCAL channel is configured.
+ */
+public class ProximityGrid implements Listener {
+
+    // 64-block cells: a 100-block radius reads at most 5 x 5 cells
+    private static final int CELL_SHIFT = 6;
+    private static final Entry[] EMPTY = new Entry[0];
+
+    // Each cell's players as an array, replaced on change: players change cell far
+    // less often than chat reads them
+    private final Map<String, Map<Long, Entry[]>> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean active;
+    private PlatformScheduler scheduler;
+
+    public void start(Plugin plugin, PlatformScheduler scheduler) {
+        this.scheduler = scheduler;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        reload(ChatSettings.current());
+    }
+
+    /**
+     * Settings were reloaded: start or stop tracking as LOCAL channels come and go.
+     */
+    public void reload(ChatSettings settings) {
+        boolean wanted = settings.isChannelsEnabled() && hasLocalChannel(settings);
+        boolean was = active;
+        active = wanted;
+        if (!wanted) {
+            clear();
+        } else if (!was && scheduler != null) {
+            scheduler.runForPlayers(new ArrayList<>(Bukkit.getOnlinePlayers()), this::track);
+        }
+    }
+
+    public void stop() {
+        active = false;
+        clear();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Record the player's current location. Call on the player's own thread.
+     */
+    public void track(Player player) {
+        if (active && player.isOnline()) update(player, player.getLocation());
+    }
+
+    /**
+     * Call the action for every tracked player within {@code radius} blocks of the
+     * sender's last known block, the sender included. Any thread.
+     */
+    public void forEachNear(Player sender, int radius, Consumer<Player> action) {
+        Entry self = entries.get(sender.getUniqueId());
+        Position at = self != null ? self.position : null;
+        if (at == null) {
+            action.accept(sender);
+            return;
+        }
+        Map<Long, Entry[]> cells = worlds.get(at.world);
+        if (cells == null) return;
+
+        long radiusSquared = (long) radius * radius;
+        int minX = (at.x - radius) >> CELL_SHIFT;
+        int maxX = (at.x + radius) >> CELL_SHIFT;
+        int minZ = (at.z - radius) >> CELL_SHIFT;
+        int maxZ = (at.z + radius) >> CELL_SHIFT;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                long cell = cell(cx, cz);
+                Entry[] inCell = cells.get(cell);
+                if (inCell == null) continue;
+                for (Entry entry : inCell) {
+                    Position p = entry.position;
+                    // Mid-move a player can briefly be in two cells: count them in the one they are in
+                    if (p == null || p.cell != cell || !p.world.equals(at.world)) continue;
+                    long dx = p.x - at.x;
+                    long dy = p.y - at.y;
+                    long dz = p.z - at.z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared) action.accept(entry.player);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return how many players are tracked
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void update(Player player, Location location) {
+        if (location == null) return;
+        World world = location.getWorld();
+        if (world == null) return;
+
+        Entry entry = entries.computeIfAbsent(player.getUniqueId(), id -> new Entry(player));
+        Position old = entry.position;
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        String worldName = world.getName();
+        if (old != null && old.x == x && old.y == y && old.z == z && old.world.equals(worldName)) return;
+
+        Position next = new Position(worldName, x, y, z);
+        entry.position = next;
+        if (old != null && old.cell == next.cell && old.world.equals(next.world)) return;
+
+        // Into the new cell before out of the old, so a query never misses them
+        worlds.computeIfAbsent(next.world, w -> new ConcurrentHashMap<>())
+                .compute(next.cell, (cell, inCell) -> with(inCell != null ? inCell : EMPTY, entry));
+        if (old != null) removeFromCell(entry, old);
+    }
+
+    private void remove(Player player) {
+        Entry entry = entries.remove(player.getUniqueId());
+        if (entry == null) return;
+        Position old = entry.position;
+        entry.position = null;
+        if (old != null) removeFromCell(entry, old);
+    }
+
+    private void removeFromCell(Entry entry, Position position) {
+        Map<Long, Entry[]> cells = worlds.get(position.world);
+        if (cells == null) return;
+        // Empty cells are dropped, atomically with respect to a concurrent add
+        cells.computeIfPresent(position.cell, (cell, inCell) -> without(inCell, entry));
+    }
+
+    private static Entry[] with(Entry[] inCell, Entry entry) {
+        for (Entry e : inCell) {
+            if (e == entry) return inCell;
+        }
+        Entry[] out = Arrays.copyOf(inCell, inCell.length + 1);
+        out[inCell.length] = entry;
+        return out;
+    }
+
+    private static Entry[] without(Entry[] inCell, Entry entry) {
+        for (int i = 0; i < inCell.length; i++) {
+            if (inCell[i] != entry) continue;
+            if (inCell.length == 1) return null;
+            Entry[] out = new Entry[inCell.length - 1];
+            System.arraycopy(inCell, 0, out, 0, i);
+            System.arraycopy(inCell, i + 1, out, i, out.length - i);
+            return out;
+        }
+        return inCell;
+    }
+
+    private void clear() {
+        entries.clear();
+        worlds.clear();
+    }
+
+    private static boolean hasLocalChannel(ChatSettings settings) {
+        for (Channel channel : settings.getChannels()) {
+            if (channel.getScope() == Channel.Scope.LOCAL) return true;
+        }
+        return false;
+    }
+
+    private static long cell(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        track(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        remove(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent event) {
+        if (!active) return;
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        // Most move events are head turns or movement inside one block
+        if (to == null || (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+                && from.getBlockZ() == to.getBlockZ() && from.getWorld() == to.getWorld())) return;
+        update(event.getPlayer(), to);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent event) {
+        if (active) update(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        if (active) update(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        track(event.getPlayer());
+    }
+
+    private static final class Entry {
+        final Player player;
+        volatile Position position;
+
+        Entry(Player player) {
+            this.player = player;
+        }
+    }
+
+    /**
+     * A block position; replaced, never changed, so readers see x, y and z together.
+     */
+    private static final class Position {
+        final String world;
+        final int x;
+        final int y;
+        final int z;
+        final long cell;
+
+        Position(String world, int x, int y, int z) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.cell = cell(x >> CELL_SHIFT, z >> CELL_SHIFT);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package org.finetree.finechat.chat;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * FineChat's own bounded pool for formatting chat.
+ *
+ * Every sender gets a lane (a small FIFO of their waiting messages). Workers take
+ * lanes round-robin, one message at a time, so a spammer only ever competes for a
+ * single slot per turn and each player's messages still go out in the order sent.
+ * A lane is never worked on by two threads at once.
+ *
+ * Both the whole queue and each lane are bounded; what happens to a message that
+ * doesn't fit is decided by the {@link OverflowPolicy}.
+ */
+public final class ChatExecutor {
+
+    public enum OverflowPolicy {
+        /** Drop the new message. */
+        SHED,
+        /**
+         * Append the new message to the sender's last waiting one; drop it if they have
+         * none, or if that would make it longer than {@link #MAX_MERGED_LENGTH}.
+         */
+        MERGE,
+        /**
+         * Format the message right away on the submitting thread, if the sender has
+         * nothing queued or being formatted; otherwise drop it, so it can't overtake
+         * their earlier messages.
+         */
+        CALLER_RUNS;
+
+        /**
+         * @return the policy with the given name, or SHED if it isn't one.
+         */
+        public static OverflowPolicy parse(String name) {
+            if (name != null) {
+                try {
+                    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException ignored) {
+                    // fall through
+                }
+            }
+            return SHED;
+        }
+    }
+
+    /** What happened to a submitted message. */
+    public enum Submission {
+        QUEUED,
+        MERGED,
+        CALLER_RAN,
+        SHED,
+        /** The executor was closed or shut down; nothing was done. */
+        CLOSED
+    }
+
+    /** Does the actual formatting and delivery of one message. */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(ChatSnapshot sender, String message, List<Player> recipients);
+    }
+
+    /** Longest a message may grow to under MERGE; twice what a client can send. */
+    public static final int MAX_MERGED_LENGTH = 512;
+
+    private static final String THREAD_NAME = "FineChat-Chat";
+
+    private final Handler handler;
+    private final Logger logger;
+    private final int capacity;
+    private final int perSenderCapacity;
+    private final OverflowPolicy policy;
+    private final Thread[] workers;
+
+    // All state below is guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Map<UUID, Lane> lanes = new HashMap<>();
+    // Lanes with waiting messages that no worker holds, in turn order
+    private final ArrayDeque<Lane> turns = new ArrayDeque<>();
+    private int queued;
+    private boolean shutdown;
+
+    public ChatExecutor(Handler handler, Logger logger, int threads, int capacity, int perSenderCapacity,
+                        OverflowPolicy policy, boolean virtualThreads) {
+        this.handler = handler;
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.perSenderCapacity = Math.max(1, Math.min(perSenderCapacity, this.capacity));
+        this.policy = policy == null ? OverflowPolicy.SHED : policy;
+
+        if (virtualThreads && !ChatThreads.supportsVirtual()) {
+            logger.warning("[FineChat] Virtual chat threads need Java 21+, using platform threads");
+        }
+        ThreadFactory factory = ChatThreads.factory(THREAD_NAME, virtualThreads);
+
+        this.workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = factory.newThread(this::work);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queue a message for formatting. Never blocks; with CALLER_RUNS the message may be
+     * handled on the calling thread before this returns. Messages queued by the same
+     * sender meanwhile wait until it is done.
+     */
+    public Submission submit(ChatSnapshot sender, String message, List<Player> recipients) {
+        UUID key = sender.getUniqueId();
+        Lane lane;
+
+        lock.lock();
+        try {
+            if (shutdown) return Submission.CLOSED;
+
+            lane = lanes.get(key);
+            int waiting = lane == null ? 0 : lane.jobs.size();
+
+            if (queued < capacity && waiting < perSenderCapacity) {
+                if (lane == null) {
+                    lane = new Lane(key);
+                    lanes.put(key, lane);
+                }
+                lane.jobs.addLast(new Job(sender, message, recipients));
+                queued++;
+                if (!lane.running && waiting == 0) {
+                    turns.addLast(lane);
+                    ready.signal();
+                }
+                return Submission.QUEUED;
+            }
+
+            if (policy == OverflowPolicy.MERGE && waiting > 0) {
+                // Still waiting, so no worker has read it yet
+                Job last = lane.jobs.peekLast();
+                if (last.message.length() + 1 + message.length() > MAX_MERGED_LENGTH) return Submission.SHED;
+                last.message = last.message + " " + message;
+                return Submission.MERGED;
+            }
+            // Only a sender with nothing in flight may run here, or this would overtake their queue
+            if (policy != OverflowPolicy.CALLER_RUNS || lane != null) return Submission.SHED;
+
+            // Hold the lane like a worker would, so their next messages queue behind this one
+            lane = new Lane(key);
+            lane.running = true;
+            lanes.put(key, lane);
+        } finally {
+            lock.unlock();
+        }
+
+        run(sender, message, recipients);
+        finish(lane);
+        return Submission.CALLER_RAN;
+    }
+
+    /**
+     * @return number of messages waiting to be formatted.
+     */
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting messages but let the workers finish everything already queued,
+     * then exit. Does not wait; used when a reload replaces this executor.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            shutdown = true;
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting messages, drop the ones still waiting and wait for the workers to
+     * finish the messages they are already handling. Workers still busy after the
+     * timeout are interrupted.
+     *
+     * Waiting messages are dropped rather than handled because delivery goes through
+     * the server scheduler, which refuses new tasks once the plugin is disabling.
+     *
+     * @return number of messages dropped
+     */
+    public int shutdown(long timeout, TimeUnit unit) {
+        int dropped;
+        lock.lock();
+        try {
+            shutdown = true;
+            dropped = queued;
+            queued = 0;
+            // Lanes held by a worker must come back empty too
+            for (Lane lane : lanes.values()) {
+                lane.jobs.clear();
+            }
+            turns.clear();
+            lanes.clear();
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) break;
+            try {
+                worker.join(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        for (Thread worker : workers) {
+            if (worker.isAlive()) worker.interrupt();
+        }
+        return dropped;
+    }
+
+    private void work() {
+        while (true) {
+            Lane lane;
+            Job job;
+
+            lock.lock();
+            try {
+                while (turns.isEmpty()) {
+                    if (shutdown) return;
+                    ready.await();
+                }
+                lane = turns.pollFirst();
+                job = lane.jobs.pollFirst();
+                queued--;
+                lane.running = true;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            run(job.sender, job.message, job.recipients);
+            finish(lane);
+        }
+    }
+
+    /**
+     * Release a lane after handling one of its messages.
+     */
+    private void finish(Lane lane) {
+        lock.lock();
+        try {
+            lane.running = false;
+            if (!lane.jobs.isEmpty()) {
+                // Back of the line, behind everyone else who is waiting
+                turns.addLast(lane);
+                ready.signal();
+            } else {
+                lanes.remove(lane.key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(ChatSnapshot sender, String message, List<Player> recipients) {
+        try {
+            handler.handle(sender, message, recipients);
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "[FineChat] Failed to handle chat from " + sender.getName(), t);
+        }
+    }
+
+    private static final class Lane {
+        final UUID key;
+        final ArrayDeque<Job> jobs = new ArrayDeque<>();
+        boolean running;
+
+        Lane(UUID key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Job {
+        final ChatSnapshot sender;
+        String message; // may grow under MERGE while waiting
+        final List<Player> recipients;
+
+        Job(ChatSnapshot sender, String message, List<Player> recipients) {
+            this.sender = sender;
+            this.message = message;
+            this.recipients = recipients;
+        }
+    }
+}
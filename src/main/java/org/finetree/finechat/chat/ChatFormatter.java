@@ -1,104 +1,344 @@
 package org.finetree.finechat.chat;
 
+import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
-import org.finetree.finechat.config.ChatConfig;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.filter.FilterAlerts;
+import org.finetree.finechat.filter.WordFilter;
 import org.finetree.finechat.hooks.PlaceholderApiHook;
-import org.finetree.finechat.hooks.GroupManagerHook;
-import org.finetree.finechat.hooks.LuckPermsHook;
-import org.finetree.finechat.hooks.VaultChatHook;
+import org.finetree.finechat.meta.Capability;
+import org.finetree.finechat.meta.PlayerMeta;
+import org.finetree.finechat.meta.PlayerMetaCache;
+import org.finetree.finechat.mention.MentionIndex;
+import org.finetree.finechat.stats.ChatStats;
+import org.finetree.finechat.stats.Stage;
 import org.finetree.finechat.util.ColorUtil;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class ChatFormatter {
+public class ChatFormatter implements Listener {
 
-    private final GroupManagerHook groupManager;
-    private final VaultChatHook vault;
-    private final LuckPermsHook luckPerms;
+    private final PlayerMetaCache metaCache;
     private final PlaceholderApiHook papi;
+    private final ChatStats stats;
+    private final FilterAlerts filterAlerts;
+    private final MentionIndex mentions;
 
-    public ChatFormatter(GroupManagerHook groupManager, VaultChatHook vault, LuckPermsHook luckPerms, PlaceholderApiHook papi) {
-        this.groupManager = groupManager;
-        this.vault = vault;
-        this.luckPerms = luckPerms;
-        this.papi = papi;
+    // Per sender: the format around {message}, already coloured, for the format they last used
+    private final Map<UUID, Header> headers = new ConcurrentHashMap<>();
+
+    public ChatFormatter(PlayerMetaCache metaCache, PlaceholderApiHook papi, ChatStats stats) {
+        this(metaCache, papi, stats, null, null);
     }
 
-    private static boolean isBlank(String s) {
-        return s == null || s.trim().isEmpty();
+    /**
+     * @param filterAlerts told about blocked and flagged messages; null to only count them
+     * @param mentions online names to find mentions of; null for no mention lines
+     */
+    public ChatFormatter(PlayerMetaCache metaCache, PlaceholderApiHook papi, ChatStats stats,
+                         FilterAlerts filterAlerts, MentionIndex mentions) {
+        this.metaCache = metaCache;
+        this.papi = papi;
+        this.stats = stats;
+        this.filterAlerts = filterAlerts;
+        this.mentions = mentions;
     }
 
+    /**
+     * @return the line to send, or null if the word filter blocked the message
+     */
     public String format(Player player, String rawMessage) {
-        String prefix = "";
-        String suffix = "";
+        return format(ChatSnapshot.capture(player), rawMessage);
+    }
+
+    /**
+     * @return the line to send, or null if the word filter blocked the message
+     */
+    public String format(ChatSnapshot sender, String rawMessage) {
+        FormattedMessage formatted = render(sender, rawMessage);
+        return formatted != null ? formatted.getLine() : null;
+    }
 
-        // 1) GroupManager priority (if present)
-        if (groupManager != null && groupManager.isPresent()) {
-            String gmPrefix = groupManager.getPrefix(player);
-            String gmSuffix = groupManager.getSuffix(player);
+    /**
+     * @return the shared line plus one for each player mentioned, or null if the word
+     * filter blocked the message
+     */
+    public FormattedMessage render(ChatSnapshot sender, String rawMessage) {
+        Player player = sender.getPlayer();
+        // Everything below reads this one snapshot; the format was compiled when it was built
+        ChatSettings settings = sender.getSettings();
 
-            if (!isBlank(gmPrefix)) prefix = gmPrefix;
-            if (!isBlank(gmSuffix)) suffix = gmSuffix;
+        // Each stage is timed from the end of the previous one
+        long start = System.nanoTime();
+
+        // Prefix/suffix from the configured provider chain, cached per player
+        PlayerMeta meta = metaCache.get(player);
+        long t = stats.record(Stage.META, start);
+
+        String msg = rawMessage == null ? "" : rawMessage;
+
+        // Permission gating for colors: codes need the colour node (if configured to strip),
+        // rainbow/hex/gradient tags need the special node. One scan handles both.
+        boolean stripCodes = !sender.canUseColor() && settings.isStripColorsIfNoPerm();
+        boolean stripTags = !sender.canUseSpecialColor();
+        String processedMsg = MessageSanitizer.sanitize(msg, stripCodes, stripTags);
+        t = stats.record(Stage.SANITIZE, t);
+
+        // Word filter on what the player typed, before placeholders add text of their own
+        WordFilter filter = settings.getWordFilter();
+        if (filter != null && !sender.has(Capability.BYPASS_FILTER)) {
+            WordFilter.Result filtered = filter.apply(processedMsg);
+            if (filtered != null && !filter(sender, filtered)) {
+                stats.record(Stage.FILTER, t);
+                return null;
+            }
+            if (filtered != null) processedMsg = filtered.getMessage();
+            t = stats.record(Stage.FILTER, t);
         }
 
-        // 2) Vault fills missing values (if configured)
-        if (ChatConfig.preferVaultChat && vault != null && vault.isHooked()) {
-            if (isBlank(prefix)) prefix = vault.getPrefix(player);
-            if (isBlank(suffix)) suffix = vault.getSuffix(player);
+        // What the sender typed; only this can mention anyone
+        String typed = processedMsg;
+
+        // Cached header: only the message needs PlaceholderAPI and colouring
+        Header header = header(sender, settings, meta);
+        t = stats.record(Stage.HEADER, t);
+        String[] segments = null;
+        if (header.colored != null) {
+            if (papi != null && settings.isPapiOnMessage()) {
+                processedMsg = papi.apply(player, processedMsg);
+                t = stats.record(Stage.PAPI, t);
+            }
+        } else {
+            segments = sender.getTemplate().renderSegments(
+                    meta.getPrefix(),
+                    meta.getSuffix(),
+                    sender.getName(),
+                    sender.getDisplayName(),
+                    sender.getWorldName()
+            );
+
+            // PlaceholderAPI last (so placeholders can see our computed fields).
+            // Parts without a '%' never reach PlaceholderAPI, nor does a format without tokens.
+            if (papi != null) {
+                String resolvedMsg = header.placeholders
+                        ? papi.applyAll(player, segments, settings.isPapiOnMessage() ? processedMsg : null)
+                        : settings.isPapiOnMessage() ? papi.apply(player, processedMsg) : null;
+                if (resolvedMsg != null) processedMsg = resolvedMsg;
+                t = stats.record(Stage.PAPI, t);
+            }
         }
 
-        // 3) LuckPerms fallback fills anything still missing (if configured)
-        if (ChatConfig.useLuckPermsGroupManager && luckPerms != null && luckPerms.isHooked()) {
-            if (isBlank(prefix)) prefix = luckPerms.getPrefix(player);
-            if (isBlank(suffix)) suffix = luckPerms.getSuffix(player);
+        // Special tags + & -> § (config always allowed; message already gated above)
+        String out = line(sender, meta, header.colored, segments, processedMsg);
+        t = stats.record(Stage.COLOUR, t);
+
+        // Only the players mentioned get a line of their own
+        Map<UUID, String> mentioned = Map.of();
+        if (mentions != null && settings.isMentionsEnabled()) {
+            mentions.recheck(sender);
+            boolean bare = settings.isMentionBareNames();
+            List<MentionIndex.Mention> found = mentions.find(typed, player, bare);
+            if (found != null && !typed.equals(processedMsg)) {
+                // Placeholders moved the text: find the names again, but only ping who was typed
+                found = MentionIndex.only(mentions.find(processedMsg, player, bare), found);
+            }
+            if (found != null) mentioned = mentionLines(sender, settings, meta, header.colored, segments, processedMsg, found);
+            t = stats.record(Stage.MENTIONS, t);
         }
+        stats.record(Stage.FORMAT, start, t);
 
-        String display = player.getDisplayName();
-        String world = player.getWorld() != null ? player.getWorld().getName() : "";
+        return new FormattedMessage(out, mentioned);
+    }
 
-        String msg = rawMessage == null ? "" : rawMessage;
+    /**
+     * Put the message into the format and colour it: into the cached header when
+     * there is one, otherwise the whole line at once.
+     *
+     * @param colored the cached header, or null
+     * @param segments the rendered format around the message; only read without a header
+     */
+    private static String line(ChatSnapshot sender, PlayerMeta meta, String[] colored, String[] segments,
+                               String message) {
+        if (colored != null) {
+            String coloredMsg = colorMessage(colored, message);
+            if (coloredMsg != null) return FormatTemplate.join(colored, coloredMsg);
+            // The message would bleed into the text after it; colour the line as a whole
+            segments = sender.getTemplate().renderSegments(
+                    meta.getPrefix(), meta.getSuffix(), sender.getName(), sender.getDisplayName(), sender.getWorldName());
+        }
+        return ColorUtil.colorize(FormatTemplate.join(segments, message), true);
+    }
 
-        // Permission gating for colors
-        boolean allowColor = player.hasPermission(ChatConfig.permChatColor);
-        boolean allowSpecial = player.hasPermission(ChatConfig.permChatSpecialColor);
+    /**
+     * The line again for each mentioned player, their mentions in the mention colour
+     * and the message's own colour resumed after each.
+     */
+    private static Map<UUID, String> mentionLines(ChatSnapshot sender, ChatSettings settings, PlayerMeta meta,
+                                                  String[] colored, String[] segments, String message,
+                                                  List<MentionIndex.Mention> found) {
+        // The colour in effect where each mention ends, from the start of the line
+        String lead = colored != null ? colored[0] : ColorUtil.colorize(segments[0], true);
+        String[] resume = new String[found.size()];
+        for (int i = 0; i < resume.length; i++) {
+            String before = ColorUtil.colorize(message.substring(0, found.get(i).getStart()), true);
+            resume[i] = ChatColor.COLOR_CHAR + "r" + ChatColor.getLastColors(lead + before);
+        }
 
-        String processedMsg = msg;
+        Map<UUID, String> lines = new HashMap<>();
+        for (MentionIndex.Mention mention : found) {
+            for (Player target : mention.getPlayers()) {
+                if (lines.containsKey(target.getUniqueId())) continue;
 
-        if (!allowColor && ChatConfig.stripColorsIfNoPerm) {
-            // Strip both '&' and '§' colors from message
-            processedMsg = processedMsg.replaceAll("(?i)[&§][0-9a-fk-or]", "");
-            processedMsg = processedMsg.replaceAll("(?i)§x(§[0-9a-f]){6}", "");
-        } else {
-            // If they can color, translate '&' later and keep '§' as-is
-            if (!allowSpecial) {
-                // Remove special tags if not permitted (leaves text readable)
-                processedMsg = processedMsg
-                        .replaceAll("(?i)</?rainbow\\s*>", "")
-                        .replaceAll("(?i)</?hex\\s*,?[^>]*>", "")
-                        .replaceAll("(?i)</?gradient\\s*,?[^>]*>", "");
+                StringBuilder highlighted = new StringBuilder(message.length() + 32);
+                int from = 0;
+                for (int i = 0; i < resume.length; i++) {
+                    MentionIndex.Mention m = found.get(i);
+                    if (!m.getPlayers().contains(target)) continue;
+                    highlighted.append(message, from, m.getStart())
+                            .append(settings.getMentionColor())
+                            .append(message, m.getStart(), m.getEnd())
+                            .append(resume[i]);
+                    from = m.getEnd();
+                }
+                highlighted.append(message, from, message.length());
+                lines.put(target.getUniqueId(), line(sender, meta, colored, segments, highlighted.toString()));
             }
         }
+        return lines;
+    }
 
-        Map<String, String> vars = new HashMap<>();
-        vars.put("{prefix}", prefix == null ? "" : prefix);
-        vars.put("{suffix}", suffix == null ? "" : suffix);
-        vars.put("{player}", player.getName());
-        vars.put("{displayname}", display == null ? player.getName() : display);
-        vars.put("{message}", processedMsg);
-        vars.put("{world}", world);
-
-        String out = ChatConfig.format;
-        for (var e : vars.entrySet()) {
-            out = out.replace(e.getKey(), e.getValue());
+    /**
+     * Count and report a filter match.
+     *
+     * @return false if the message must not be sent
+     */
+    private boolean filter(ChatSnapshot sender, WordFilter.Result filtered) {
+        switch (filtered.getAction()) {
+            case BLOCK:
+                stats.blocked();
+                if (filterAlerts != null) filterAlerts.blocked(sender);
+                return false;
+            case FLAG:
+                stats.flagged();
+                if (filterAlerts != null) filterAlerts.flagged(sender, filtered.getMessage(), filtered.getEntry());
+                return true;
+            default:
+                stats.censored();
+                return true;
         }
+    }
+
+    /**
+     * Colour the message on its own, to splice into a cached header.
+     *
+     * @return null if the message could bleed into header text after it (open tag,
+     * trailing '&'), in which case the whole line has to be coloured together
+     */
+    private static String colorMessage(String[] colored, String message) {
+        boolean messageEndsLine = colored.length == 2 && colored[1].isEmpty();
+        return messageEndsLine
+                ? ColorUtil.colorize(message, true)
+                : ColorUtil.colorizeSelfContained(message);
+    }
 
-        // PlaceholderAPI last (so placeholders can see our computed fields)
-        out = (papi != null) ? papi.apply(player, out) : out;
+    private Header header(ChatSnapshot sender, ChatSettings settings, PlayerMeta meta) {
+        boolean papiHooked = papi != null && papi.isHooked();
+        Header header = headers.get(sender.getUniqueId());
+        if (header != null && header.matches(settings, meta, sender, papiHooked)) return header;
 
-        // Special tags + & -> § (config always allowed; message already gated above)
-        out = ColorUtil.colorize(out, true);
+        // Tokens in the format or in what fills it are resolved per message, so can't be cached
+        FormatTemplate template = sender.getTemplate();
+        boolean placeholders = papiHooked && (template.hasPlaceholders()
+                || hasPercent(meta.getPrefix()) || hasPercent(meta.getSuffix())
+                || hasPercent(sender.getDisplayName()) || hasPercent(sender.getWorldName()));
+
+        String[] colored = null;
+        if (!placeholders) {
+            colored = colorSegments(template.renderSegments(
+                    meta.getPrefix(),
+                    meta.getSuffix(),
+                    sender.getName(),
+                    sender.getDisplayName(),
+                    sender.getWorldName()
+            ));
+        }
+        header = new Header(settings, template, meta, sender.getDisplayName(), sender.getWorldName(),
+                papiHooked, placeholders, colored);
+        headers.put(sender.getUniqueId(), header);
+        return header;
+    }
 
-        return out;
+    private static boolean hasPercent(String value) {
+        return value != null && value.indexOf('%') >= 0;
+    }
+
+    /**
+     * @return the coloured segments, or null if a segment before a {message} would
+     * colour differently on its own
+     */
+    private static String[] colorSegments(String[] segments) {
+        String[] colored = new String[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+
+            // Nothing follows the last segment, so it needs no boundary checks
+            colored[i] = i == segments.length - 1
+                    ? ColorUtil.colorize(segment, true)
+                    : ColorUtil.colorizeSelfContained(segment);
+            if (colored[i] == null) return null;
+        }
+        return colored;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        headers.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * A rendered header plus the inputs it was rendered from. It stays valid while
+     * the settings snapshot, format (main or channel) and cached meta are the same
+     * objects and the display name and world are unchanged; a reload replaces those
+     * objects, and so does a meta refresh, but only when the prefix or suffix changed.
+     */
+    private static final class Header {
+        final ChatSettings settings;
+        final FormatTemplate template;
+        final PlayerMeta meta;
+        final String displayName;
+        final String worldName;
+        final boolean papiHooked;
+        final boolean placeholders; // PlaceholderAPI tokens to resolve around the message
+        final String[] colored; // null: not cacheable, format the whole line
+
+        Header(ChatSettings settings, FormatTemplate template, PlayerMeta meta, String displayName, String worldName,
+               boolean papiHooked, boolean placeholders, String[] colored) {
+            this.settings = settings;
+            this.template = template;
+            this.meta = meta;
+            this.displayName = displayName;
+            this.worldName = worldName;
+            this.papiHooked = papiHooked;
+            this.placeholders = placeholders;
+            this.colored = colored;
+        }
+
+        boolean matches(ChatSettings settings, PlayerMeta meta, ChatSnapshot sender, boolean papiHooked) {
+            return this.settings == settings
+                    && this.template == sender.getTemplate()
+                    && this.meta == meta
+                    && this.papiHooked == papiHooked
+                    && Objects.equals(displayName, sender.getDisplayName())
+                    && Objects.equals(worldName, sender.getWorldName());
+        }
     }
 }
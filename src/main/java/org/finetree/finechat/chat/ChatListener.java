@@ -1,17 +1,26 @@
 package org.finetree.finechat.chat;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
-import org.finetree.finechat.config.ChatConfig;
+import org.finetree.finechat.channel.Channel;
+import org.finetree.finechat.channel.ChannelManager;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.history.ChatHistory;
+import org.finetree.finechat.log.ChatLog;
+import org.finetree.finechat.meta.CapabilityCache;
 import org.finetree.finechat.scheduler.PlatformScheduler;
+import org.finetree.finechat.spam.SpamGuard;
+import org.finetree.finechat.stats.ChatStats;
+import org.finetree.finechat.stats.Stage;
+import org.finetree.finechat.util.ColorUtil;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 /**
  * We avoid AsyncPlayerChatEvent#setFormat entirely to prevent format-string issues
@@ -19,48 +28,189 @@ import java.util.UUID;
  */
 public class ChatListener implements Listener {
 
+    // How long onDisable waits for messages already being formatted
+    private static final long DRAIN_TIMEOUT_MS = 2000L;
+
+    private static final String NO_CHANNEL =
+            ColorUtil.colorize("&cYou are not in a chat channel. Join one with /ch join <channel>.", true);
+
     private final PlatformScheduler scheduler;
     private final ChatFormatter formatter;
+    private final CapabilityCache capabilities;
+    private final ChannelManager channels;
+    private final SpamGuard spamGuard;
+    private final ChatLog chatLog;
+    private final ChatHistory history;
+    private final ChatStats stats;
+    private final Logger logger;
+
+    private volatile ChatExecutor executor;
+    private ChatSettings executorSettings;
+
+    // Set once the plugin is disabling: the scheduler takes no more delivery tasks
+    private volatile boolean stopping;
 
-    public ChatListener(PlatformScheduler scheduler, ChatFormatter formatter) {
+    public ChatListener(PlatformScheduler scheduler, ChatFormatter formatter, CapabilityCache capabilities,
+                        ChannelManager channels, SpamGuard spamGuard, ChatLog chatLog, ChatHistory history,
+                        ChatStats stats, Logger logger, ChatSettings settings) {
         this.scheduler = scheduler;
         this.formatter = formatter;
+        this.capabilities = capabilities;
+        this.channels = channels;
+        this.spamGuard = spamGuard;
+        this.chatLog = chatLog;
+        this.history = history;
+        this.stats = stats;
+        this.logger = logger;
+        this.executorSettings = settings;
+        this.executor = createExecutor(settings);
     }
 
-    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    /**
+     * Settings were reloaded. If the executor sizing changed, start a new executor and
+     * let the old one finish its queue in the background; chat is never paused.
+     */
+    public synchronized void reload(ChatSettings settings) {
+        if (settings.sameExecutor(executorSettings)) return;
+        ChatExecutor old = executor;
+        executor = createExecutor(settings);
+        executorSettings = settings;
+        old.close();
+    }
+
+    /**
+     * Stop taking messages and wait (bounded) for the chat workers to finish. What they
+     * finish is still logged and recorded, but no longer delivered.
+     */
+    public synchronized void shutdown() {
+        stopping = true;
+        int dropped = executor.shutdown(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        stats.dropped(dropped);
+        if (dropped > 0) {
+            logger.warning("[FineChat] Dropped " + dropped + " queued chat message(s) on shutdown");
+        }
+    }
+
+    /**
+     * @return messages waiting for a chat worker.
+     */
+    public int queued() {
+        return executor.queued();
+    }
+
+    // Cancelled events are let through only to be counted
+    @EventHandler(priority = EventPriority.HIGHEST)
     public void onChat(AsyncPlayerChatEvent event) {
-        if (!ChatConfig.enabled) return;
+        long start = System.nanoTime();
+        ChatSettings settings = ChatSettings.current();
+        if (!settings.isEnabled()) return;
+        if (event.isCancelled()) {
+            stats.cancelled();
+            return;
+        }
 
         Player sender = event.getPlayer();
         String message = event.getMessage();
+        Channel channel = channels.speakingChannel(sender, settings);
+        if (channel == null && settings.isChannelsEnabled()) {
+            // In no channel, so there is no one to send it to
+            event.setCancelled(true);
+            sender.sendMessage(NO_CHANNEL);
+            stats.record(Stage.EVENT, start);
+            return;
+        }
+        int capabilityBits = capabilities.get(sender);
 
-        // Snapshot recipients safely (Async event!)
-        List<UUID> recipients = new ArrayList<>();
-        for (Player p : event.getRecipients()) {
-            recipients.add(p.getUniqueId());
+        // Spam stops here, before anything is copied, queued or scheduled
+        SpamGuard.Verdict verdict = spamGuard.check(sender, message, channel, capabilityBits, settings);
+        if (verdict != SpamGuard.Verdict.ALLOWED) {
+            event.setCancelled(true);
+            spamGuard.warn(sender, verdict, channel, settings);
+            stats.spam();
+            stats.record(Stage.EVENT, start);
+            return;
         }
 
-        if (ChatConfig.overrideVanillaChat) {
+        // Snapshot recipients safely (Async event!); with channels, read from the
+        // channel's member set rather than walking everyone the event lists
+        List<Player> recipients = channel != null
+                ? channels.recipients(channel, sender, event.getRecipients())
+                : new ArrayList<>(event.getRecipients());
+
+        if (settings.isOverrideVanillaChat()) {
             event.setCancelled(true);
         }
 
-        // Gather anything Bukkit-ish on the player's region thread (or main thread on Spigot)
-        scheduler.runSyncPlayer(sender, () -> {
-            // Now do formatting logic off-thread
-            scheduler.runAsync(() -> {
-                String formatted = formatter.format(sender, message);
+        // Read what formatting needs from the player once, on this thread;
+        // permissions come from the cached bits, not a hasPermission call
+        ChatSnapshot snapshot = ChatSnapshot.capture(sender, settings, capabilityBits, channel);
 
-                // Send back on the right threads
-                for (UUID uuid : recipients) {
-                    Player target = Bukkit.getPlayer(uuid);
-                    if (target == null) continue;
+        // Format on FineChat's own bounded pool, whichever thread the event came from
+        ChatExecutor target = executor;
+        ChatExecutor.Submission result;
+        while ((result = target.submit(snapshot, message, recipients)) == ChatExecutor.Submission.CLOSED) {
+            // Raced a reload that swapped executors; hand it to the new one
+            ChatExecutor next = executor;
+            if (next == target) break;
+            target = next;
+        }
+
+        switch (result) {
+            case QUEUED:
+            case CALLER_RAN:
+                stats.message(recipients.size());
+                break;
+            case MERGED:
+                stats.merged();
+                break;
+            default:
+                stats.dropped(1);
+                break;
+        }
+        stats.record(Stage.EVENT, start);
+    }
 
-                    scheduler.runSyncPlayer(target, () -> target.sendMessage(formatted));
-                }
+    private ChatExecutor createExecutor(ChatSettings settings) {
+        return new ChatExecutor(this::formatAndSend, logger,
+                settings.getChatThreads(),
+                settings.getChatQueueCapacity(),
+                settings.getChatQueuePerPlayer(),
+                settings.getChatOverflowPolicy(),
+                settings.isChatVirtualThreads());
+    }
+
+    private void formatAndSend(ChatSnapshot sender, String message, List<Player> recipients) {
+        long received = sender.getCapturedAt();
+        stats.record(Stage.QUEUE, received);
+
+        FormattedMessage formatted = formatter.render(sender, message);
+        // Blocked by the word filter; the formatter has told the sender
+        if (formatted == null) return;
+
+        // Chat log file, console echo and history; all only enqueue here. Before the
+        // fan-out, so a message finished while the plugin disables is still written.
+        chatLog.log(sender, message, formatted.getLine());
+        history.record(sender, message);
+
+        if (stopping) {
+            // The scheduler refuses tasks from a disabling plugin
+            stats.dropped(1);
+            return;
+        }
 
-                // Also log to console (global thread is fine)
-                scheduler.runSyncGlobal(() -> Bukkit.getConsoleSender().sendMessage(formatted));
-            });
+        // Send back on the right threads, one task per region rather than per recipient.
+        // Everyone shares one line; only mentioned players get their own, and the sound.
+        String sound = sender.getSettings().getMentionSound();
+        long scheduled = System.nanoTime();
+        scheduler.runForPlayers(recipients, target -> {
+            target.sendMessage(formatted.lineFor(target));
+            if (sound != null && formatted.mentions(target)) {
+                target.playSound(target.getLocation(), sound, 1.0f, 1.0f);
+            }
+            long now = System.nanoTime();
+            stats.record(Stage.DELIVERY, scheduled, now);
+            stats.record(Stage.TOTAL, received, now);
         });
+        stats.record(Stage.FAN_OUT, scheduled);
     }
 }
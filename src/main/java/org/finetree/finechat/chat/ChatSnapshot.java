@@ -0,0 +1,132 @@
+package org.finetree.finechat.chat;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.finetree.finechat.channel.Channel;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.meta.Capability;
+
+import java.util.UUID;
+
+/**
+ * Everything the formatter needs from the sender, read once on the thread that
+ * fired the chat event. Formatting then never touches live player state, so it
+ * can run on the chat thread itself (or any worker) without a region hop first.
+ *
+ * The settings in effect when the message arrived travel with it, so a reload
+ * mid-message never mixes old and new config.
+ */
+public final class ChatSnapshot {
+
+    private final Player player;
+    private final UUID uuid;
+    private final String name;
+    private final String displayName;
+    private final String worldName;
+    private final int capabilities;
+    private final ChatSettings settings;
+    private final Channel channel;
+    private final long capturedAt;
+
+    private ChatSnapshot(Player player, String displayName, String worldName, int capabilities, ChatSettings settings,
+                         Channel channel) {
+        this.player = player;
+        this.uuid = player.getUniqueId();
+        this.name = player.getName();
+        this.displayName = displayName == null ? this.name : displayName;
+        this.worldName = worldName == null ? "" : worldName;
+        this.capabilities = capabilities;
+        this.settings = settings;
+        this.channel = channel;
+        this.capturedAt = System.nanoTime();
+    }
+
+    /**
+     * Capture with permissions checked directly. The chat path uses the cached
+     * {@link org.finetree.finechat.meta.CapabilityCache} bits instead.
+     */
+    public static ChatSnapshot capture(Player player) {
+        ChatSettings settings = ChatSettings.current();
+        return capture(player, settings, Capability.compute(player, settings));
+    }
+
+    public static ChatSnapshot capture(Player player, ChatSettings settings, int capabilities) {
+        return capture(player, settings, capabilities, null);
+    }
+
+    /**
+     * @param channel the channel the message is sent in, or null without channels
+     */
+    public static ChatSnapshot capture(Player player, ChatSettings settings, int capabilities, Channel channel) {
+        World world = player.getWorld();
+        return new ChatSnapshot(
+                player,
+                player.getDisplayName(),
+                world != null ? world.getName() : "",
+                capabilities,
+                settings,
+                channel
+        );
+    }
+
+    /**
+     * The live player, for lookups that need it (meta cache miss, PlaceholderAPI).
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public boolean canUseColor() {
+        return Capability.COLOR.in(capabilities);
+    }
+
+    public boolean canUseSpecialColor() {
+        return Capability.SPECIAL_COLOR.in(capabilities);
+    }
+
+    public boolean has(Capability capability) {
+        return capability.in(capabilities);
+    }
+
+    public ChatSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return the channel the message is sent in, or null without channels
+     */
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the compiled format for this message: the channel's own, or the main one
+     */
+    public FormatTemplate getTemplate() {
+        FormatTemplate own = channel != null ? channel.getTemplate() : null;
+        return own != null ? own : settings.getTemplate();
+    }
+
+    /**
+     * @return System.nanoTime() when the snapshot was taken, i.e. when the chat event arrived.
+     */
+    public long getCapturedAt() {
+        return capturedAt;
+    }
+}
@@ -0,0 +1,31 @@
+package org.finetree.finechat.chat;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory for the chat workers.
+ *
+ * This is the Java 17 version: always platform threads. The jar is multi-release,
+ * and src/main/java21 holds a copy of this class that can hand out virtual threads.
+ */
+final class ChatThreads {
+
+    private ChatThreads() {}
+
+    /**
+     * @return true if {@link #factory} can create virtual threads on this JVM.
+     */
+    static boolean supportsVirtual() {
+        return false;
+    }
+
+    static ThreadFactory factory(String name, boolean virtual) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
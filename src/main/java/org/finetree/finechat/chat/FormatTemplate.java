@@ -0,0 +1,185 @@
+package org.finetree.finechat.chat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chat format parsed once into literal segments and typed slots.
+ *
+ * The format is scanned a single time when the config is loaded; rendering then
+ * walks the precomputed parts and writes everything into one presized buffer,
+ * instead of running a String#replace over the whole format per placeholder.
+ *
+ * Values substituted into slots are never re-scanned, so a player typing
+ * "{world}" in chat gets the literal text back.
+ */
+public final class FormatTemplate {
+
+    public enum Slot {
+        PREFIX("{prefix}"),
+        SUFFIX("{suffix}"),
+        PLAYER("{player}"),
+        DISPLAYNAME("{displayname}"),
+        MESSAGE("{message}"),
+        WORLD("{world}");
+
+        private final String token;
+
+        Slot(String token) {
+            this.token = token;
+        }
+
+        public String token() {
+            return token;
+        }
+    }
+
+    private static final Slot[] SLOTS = Slot.values();
+
+    // literals.length == slots.length + 1; rendering is literal, slot, literal, slot, ..., literal
+    private final String[] literals;
+    private final Slot[] slots;
+    private final int literalLength;
+    private final int messageSlots;
+
+    // Whether the format's own text has a %placeholder% token, found at compile time
+    private final boolean placeholders;
+
+    private FormatTemplate(String[] literals, Slot[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+
+        int len = 0;
+        boolean tokens = false;
+        for (String literal : literals) {
+            len += literal.length();
+            tokens |= hasPlaceholder(literal);
+        }
+        this.literalLength = len;
+        this.placeholders = tokens;
+
+        int messages = 0;
+        for (Slot slot : slots) {
+            if (slot == Slot.MESSAGE) messages++;
+        }
+        this.messageSlots = messages;
+    }
+
+    /**
+     * Parse a format string such as "{prefix}{displayname}&7: &f{message}".
+     * Unknown {tokens} are kept as literal text.
+     */
+    public static FormatTemplate compile(String format) {
+        String src = format == null ? "" : format;
+
+        List<String> literals = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder(src.length());
+        int i = 0;
+        while (i < src.length()) {
+            char c = src.charAt(i);
+            if (c == '{') {
+                Slot slot = slotAt(src, i);
+                if (slot != null) {
+                    literals.add(literal.toString());
+                    slots.add(slot);
+                    literal.setLength(0);
+                    i += slot.token.length();
+                    continue;
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+
+        return new FormatTemplate(literals.toArray(new String[0]), slots.toArray(new Slot[0]));
+    }
+
+    private static Slot slotAt(String src, int index) {
+        for (Slot slot : SLOTS) {
+            if (src.startsWith(slot.token, index)) return slot;
+        }
+        return null;
+    }
+
+    // Same token rule as PlaceholderAPI: '%', one or more non-'%' chars, '%'
+    private static boolean hasPlaceholder(String text) {
+        int start = text.indexOf('%');
+        while (start >= 0) {
+            int end = text.indexOf('%', start + 1);
+            if (end < 0) return false;
+            if (end > start + 1) return true;
+            start = end;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the format's own text contains any %placeholder% token.
+     */
+    public boolean hasPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Render everything except {message}: the result holds the text between the
+     * message slots, so segments.length == (number of {message} slots) + 1.
+     * Use {@link #join} to put the message back in.
+     */
+    public String[] renderSegments(String prefix, String suffix, String player, String displayName, String world) {
+        prefix = prefix == null ? "" : prefix;
+        suffix = suffix == null ? "" : suffix;
+        player = player == null ? "" : player;
+        displayName = displayName == null ? "" : displayName;
+        world = world == null ? "" : world;
+
+        String[] segments = new String[messageSlots + 1];
+        int segment = 0;
+
+        StringBuilder sb = new StringBuilder(literalLength + prefix.length() + suffix.length() + displayName.length());
+        sb.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == Slot.MESSAGE) {
+                segments[segment++] = sb.toString();
+                sb.setLength(0);
+            } else {
+                sb.append(value(slots[i], prefix, suffix, player, displayName, world));
+            }
+            sb.append(literals[i + 1]);
+        }
+        segments[segment] = sb.toString();
+        return segments;
+    }
+
+    /**
+     * Inverse of {@link #renderSegments}: segment, message, segment, ..., segment.
+     */
+    public static String join(String[] segments, String message) {
+        message = message == null ? "" : message;
+
+        int size = message.length() * (segments.length - 1);
+        for (String segment : segments) {
+            size += segment.length();
+        }
+
+        StringBuilder sb = new StringBuilder(size);
+        sb.append(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            sb.append(message).append(segments[i]);
+        }
+        return sb.toString();
+    }
+
+    private static String value(Slot slot, String prefix, String suffix, String player, String displayName, String world) {
+        switch (slot) {
+            case PREFIX: return prefix;
+            case SUFFIX: return suffix;
+            case PLAYER: return player;
+            case DISPLAYNAME: return displayName;
+            case WORLD: return world;
+            default: return "";
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.finetree.finechat.chat;
+
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A formatted chat line: the one string every recipient shares, plus a variant for
+ * each player the message mentions, with their mention highlighted. Without
+ * mentions there are no variants and every lookup is the shared line.
+ */
+public final class FormattedMessage {
+
+    private final String line;
+    private final Map<UUID, String> mentioned;
+
+    FormattedMessage(String line, Map<UUID, String> mentioned) {
+        this.line = line;
+        this.mentioned = mentioned;
+    }
+
+    /**
+     * @return the line as everyone not mentioned sees it
+     */
+    public String getLine() {
+        return line;
+    }
+
+    public String lineFor(Player recipient) {
+        if (mentioned.isEmpty()) return line;
+        return mentioned.getOrDefault(recipient.getUniqueId(), line);
+    }
+
+    public boolean mentions(Player recipient) {
+        return !mentioned.isEmpty() && mentioned.containsKey(recipient.getUniqueId());
+    }
+}
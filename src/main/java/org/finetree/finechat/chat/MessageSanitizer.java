@@ -0,0 +1,134 @@
+package org.finetree.finechat.chat;
+
+/**
+ * Strips what a sender isn't allowed to use from their message, in one left-to-right
+ * scan with no regex:
+ *  - colour codes: '&' or '§' followed by a legacy code (including the x of §x hex runs)
+ *  - special tags: <rainbow>, <hex...>, <gradient...> and their closing forms
+ *
+ * The output buffer is treated as a stack. A code character right after '&'/'§' pops
+ * the marker instead of being appended, and a '>' that completes a tag truncates the
+ * buffer back to the tag's '<'. Either way the buffer stays a prefix of clean text,
+ * so removing one code or tag can never splice its neighbours into a new one
+ * ("&&aa", "<rain<rainbow>bow>" strip completely). Every input character is pushed
+ * once and examined a bounded number of times, so hostile input stays linear.
+ */
+public final class MessageSanitizer {
+
+    // Same set ChatColor#translateAlternateColorCodes accepts
+    private static final boolean[] CODE_CHARS = new boolean[128];
+
+    private static final String RAINBOW = "rainbow";
+    private static final String HEX = "hex";
+    private static final String GRADIENT = "gradient";
+
+    static {
+        for (char c : "0123456789abcdefklmnorx".toCharArray()) {
+            CODE_CHARS[c] = true;
+            CODE_CHARS[Character.toUpperCase(c)] = true;
+        }
+    }
+
+    private MessageSanitizer() {}
+
+    /**
+     * @param stripCodes remove '&'/'§' colour and format codes
+     * @param stripTags remove rainbow/hex/gradient tags
+     */
+    public static String sanitize(String message, boolean stripCodes, boolean stripTags) {
+        if (message == null) return "";
+        if (!needsScan(message, stripCodes, stripTags)) return message;
+
+        int len = message.length();
+        StringBuilder out = new StringBuilder(len);
+
+        // Output positions of '<' after the last '>' in out; only these can start a tag
+        int[] opens = stripTags ? new int[8] : null;
+        int openCount = 0;
+
+        for (int i = 0; i < len; i++) {
+            char c = message.charAt(i);
+            int size = out.length();
+
+            if (stripCodes && size > 0 && isCode(c)) {
+                char prev = out.charAt(size - 1);
+                if (prev == '&' || prev == '§') {
+                    out.setLength(size - 1);
+                    continue;
+                }
+            }
+
+            if (stripTags) {
+                if (c == '<') {
+                    if (openCount == opens.length) {
+                        int[] grown = new int[opens.length * 2];
+                        System.arraycopy(opens, 0, grown, 0, openCount);
+                        opens = grown;
+                    }
+                    opens[openCount++] = size;
+                } else if (c == '>') {
+                    // Latest candidate first; anything after a match is discarded with it
+                    int matched = -1;
+                    while (openCount > 0) {
+                        int start = opens[--openCount];
+                        if (isTag(out, start)) {
+                            matched = start;
+                            break;
+                        }
+                    }
+                    if (matched >= 0) {
+                        out.setLength(matched);
+                        continue;
+                    }
+                    // No match: this '>' stays, so no earlier '<' can close past it
+                }
+            }
+
+            out.append(c);
+        }
+
+        return out.toString();
+    }
+
+    private static boolean needsScan(String message, boolean stripCodes, boolean stripTags) {
+        if (stripCodes && (message.indexOf('&') >= 0 || message.indexOf('§') >= 0)) return true;
+        return stripTags && message.indexOf('<') >= 0;
+    }
+
+    private static boolean isCode(char c) {
+        return c < 128 && CODE_CHARS[c];
+    }
+
+    /**
+     * Does out[start..] (a '<', then everything up to the '>' being appended) form a
+     * tag? Mirrors the old patterns: </?rainbow\s*>, </?hex\s*,?[^>]*>, </?gradient\s*,?[^>]*>
+     */
+    private static boolean isTag(StringBuilder out, int start) {
+        int i = start + 1;
+        int end = out.length();
+        if (i < end && out.charAt(i) == '/') i++;
+
+        // Anything may follow hex/gradient up to the '>'
+        if (regionMatches(out, i, HEX) || regionMatches(out, i, GRADIENT)) return true;
+
+        if (!regionMatches(out, i, RAINBOW)) return false;
+        for (i += RAINBOW.length(); i < end; i++) {
+            if (!isWhitespace(out.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // ASCII case-insensitive match of a lowercase name at out[from]
+    private static boolean regionMatches(StringBuilder out, int from, String name) {
+        if (from + name.length() > out.length()) return false;
+        for (int k = 0; k < name.length(); k++) {
+            if ((out.charAt(from + k) | 0x20) != name.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    // Regex \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,145 @@
+package org.finetree.finechat.command;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.finetree.finechat.channel.Channel;
+import org.finetree.finechat.channel.ChannelManager;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * /ch join <channel>
+ * /ch leave <channel>
+ * /ch focus <channel>
+ * /ch list
+ *
+ * Runs on the player's own thread, which is where their memberships change.
+ */
+public class ChannelCommand implements CommandExecutor, TabCompleter {
+
+    private static final String PERM_CHANNEL = "finechat.channel";
+    private static final List<String> SUBCOMMANDS = List.of("join", "leave", "focus", "list");
+
+    private final ChannelManager channels;
+
+    public ChannelCommand(ChannelManager channels) {
+        this.channels = channels;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(ColorUtil.colorize("&cOnly players are in channels.", true));
+            return true;
+        }
+        Player player = (Player) sender;
+        if (!player.hasPermission(PERM_CHANNEL)) {
+            player.sendMessage(ColorUtil.colorize("&cYou don't have permission to do that.", true));
+            return true;
+        }
+        ChatSettings settings = ChatSettings.current();
+        if (!settings.isChannelsEnabled()) {
+            player.sendMessage(ColorUtil.colorize("&cChat channels are turned off.", true));
+            return true;
+        }
+
+        String sub = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "list";
+        if (sub.equals("list")) {
+            list(player, settings);
+            return true;
+        }
+        if (!SUBCOMMANDS.contains(sub) || args.length != 2) {
+            player.sendMessage(ColorUtil.colorize("&7Usage: /" + label + " <join|leave|focus> <channel> or /" + label + " list", true));
+            return true;
+        }
+
+        Channel channel = settings.getChannel(args[1]);
+        if (channel == null) {
+            player.sendMessage(ColorUtil.colorize("&cNo channel named '" + args[1] + "'.", true));
+            return true;
+        }
+
+        String name = channel.getName();
+        String reply;
+        switch (sub) {
+            case "join":
+                switch (channels.join(player, channel)) {
+                    case DONE: reply = "&aJoined &f" + name + "&a."; break;
+                    case ALREADY: reply = "&7You are already in &f" + name + "&7."; break;
+                    default: reply = "&cYou can't join &f" + name + "&c."; break;
+                }
+                break;
+            case "leave":
+                switch (channels.leave(player, channel)) {
+                    case DONE: reply = "&aLeft &f" + name + "&a."; break;
+                    default: reply = "&7You are not in &f" + name + "&7."; break;
+                }
+                break;
+            default:
+                switch (channels.focus(player, channel)) {
+                    case DONE: reply = "&aNow talking in &f" + name + "&a."; break;
+                    default: reply = "&cYou can't join &f" + name + "&c."; break;
+                }
+                break;
+        }
+        player.sendMessage(ColorUtil.colorize(reply, true));
+        return true;
+    }
+
+    private void list(Player player, ChatSettings settings) {
+        Channel speaking = channels.speakingChannel(player, settings);
+        player.sendMessage(ColorUtil.colorize("&7Channels:", true));
+        for (Channel channel : settings.getChannels()) {
+            if (!channels.canJoin(player, channel)) continue;
+            String state;
+            if (channel == speaking) {
+                state = "&atalking";
+            } else if (channels.isMember(player, channel)) {
+                state = "&2joined";
+            } else {
+                state = "&8not joined";
+            }
+            String scope;
+            switch (channel.getScope()) {
+                case WORLD: scope = " &7(this world)"; break;
+                case LOCAL: scope = " &7(" + channel.getRadius() + " blocks)"; break;
+                default: scope = ""; break;
+            }
+            player.sendMessage(ColorUtil.colorize(" &f" + channel.getName() + scope + " &7- " + state
+                    + " &7(" + channels.memberCount(channel) + " in)", true));
+        }
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> out = new ArrayList<>();
+        if (!(sender instanceof Player) || !sender.hasPermission(PERM_CHANNEL)) return out;
+        Player player = (Player) sender;
+        ChatSettings settings = ChatSettings.current();
+        if (!settings.isChannelsEnabled()) return out;
+
+        if (args.length == 1) {
+            String start = args[0].toLowerCase(Locale.ROOT);
+            for (String sub : SUBCOMMANDS) {
+                if (sub.startsWith(start)) out.add(sub);
+            }
+        } else if (args.length == 2) {
+            String sub = args[0].toLowerCase(Locale.ROOT);
+            String start = args[1].toLowerCase(Locale.ROOT);
+            for (Channel channel : settings.getChannels()) {
+                if (!channel.getKey().startsWith(start)) continue;
+                boolean member = channels.isMember(player, channel);
+                boolean offer = sub.equals("leave") ? member : channels.canJoin(player, channel);
+                if (offer) out.add(channel.getName());
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,161 @@
+package org.finetree.finechat.command;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.finetree.finechat.FineChat;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.history.ChatHistory;
+import org.finetree.finechat.history.HistoryEntry;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * /chathistory <player|*> [since]
+ *
+ * since is how far back to look, e.g. 30s, 20m, 2h, 1d or 1h30m; without it the
+ * newest lines retained are shown.
+ */
+public class ChatHistoryCommand implements CommandExecutor, TabCompleter {
+
+    private static final String PERM_HISTORY = "finechat.history";
+    private static final Pattern DURATION = Pattern.compile("(\\d{1,9})([smhdw])");
+    private static final List<String> SINCE_SUGGESTIONS = List.of("10m", "1h", "1d");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("MM-dd HH:mm:ss");
+
+    private final FineChat plugin;
+
+    public ChatHistoryCommand(FineChat plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(PERM_HISTORY)) {
+            sender.sendMessage(ColorUtil.colorize("&cYou don't have permission to do that.", true));
+            return true;
+        }
+        if (args.length == 0 || args.length > 2) {
+            sender.sendMessage(ColorUtil.colorize("&7Usage: /" + label + " <player|*> [since, e.g. 20m]", true));
+            return true;
+        }
+
+        ChatHistory history = plugin.getHistory();
+        if (!history.isEnabled()) {
+            sender.sendMessage(ColorUtil.colorize("&cChat history is turned off.", true));
+            return true;
+        }
+
+        long since = 0;
+        if (args.length > 1) {
+            long back = parseDuration(args[1].toLowerCase(Locale.ROOT));
+            if (back < 0) {
+                sender.sendMessage(ColorUtil.colorize("&cCould not read '" + args[1] + "'. Use e.g. 30s, 20m, 2h or 1d.", true));
+                return true;
+            }
+            since = System.currentTimeMillis() - back;
+        }
+
+        String target = args[0];
+        String window = args.length > 1 ? " &7(last " + args[1] + ")" : "";
+        int limit = ChatSettings.current().getHistoryQueryLines();
+        long from = since;
+
+        // The segments are memory-mapped files; page faults belong off the server thread
+        plugin.getPlatformScheduler().runAsync(() -> {
+            long start = System.nanoTime();
+            UUID player = null;
+            if (!target.equals("*")) {
+                player = history.findPlayer(target);
+                if (player == null) {
+                    reply(sender, List.of(ColorUtil.colorize("&7No chat history for &f" + target + "&7.", true)));
+                    return;
+                }
+            }
+
+            List<HistoryEntry> entries = history.query(player, from, limit);
+            double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+            List<String> lines = new ArrayList<>(entries.size() + 1);
+            String who = player == null ? "everyone" : entries.isEmpty() ? target : entries.get(entries.size() - 1).getName();
+            lines.add(ColorUtil.colorize(String.format(Locale.ROOT, "&7Chat history for &f%s%s&7: %d line(s) in %.1f ms",
+                    who, window, entries.size(), millis), true));
+            for (HistoryEntry entry : entries) {
+                lines.add(line(entry));
+            }
+            reply(sender, lines);
+        });
+        return true;
+    }
+
+    private String line(HistoryEntry entry) {
+        ZonedDateTime time = Instant.ofEpochMilli(entry.getTime()).atZone(ZoneId.systemDefault());
+        DateTimeFormatter format = time.toLocalDate().equals(LocalDate.now()) ? TIME : DATE_TIME;
+        // Colour the frame only; the message is shown exactly as it was typed
+        return ColorUtil.colorize("&8[" + format.format(time) + "] &7[" + entry.getWorld() + "] &f"
+                + entry.getName() + "&7: &f", true) + entry.getMessage();
+    }
+
+    private void reply(CommandSender sender, List<String> lines) {
+        String[] messages = lines.toArray(new String[0]);
+        if (sender instanceof Player) {
+            plugin.getPlatformScheduler().runSyncPlayer((Player) sender, () -> sender.sendMessage(messages));
+        } else {
+            plugin.getPlatformScheduler().runSyncGlobal(() -> sender.sendMessage(messages));
+        }
+    }
+
+    /**
+     * @return the duration in millis, or -1 if the text is not one
+     */
+    static long parseDuration(String text) {
+        Matcher matcher = DURATION.matcher(text);
+        long total = 0;
+        int pos = 0;
+        while (matcher.find() && matcher.start() == pos) {
+            long amount = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "s": total += amount * 1000L; break;
+                case "m": total += amount * 60_000L; break;
+                case "h": total += amount * 3_600_000L; break;
+                case "d": total += amount * 86_400_000L; break;
+                default: total += amount * 604_800_000L; break;
+            }
+            pos = matcher.end();
+        }
+        return pos > 0 && pos == text.length() ? total : -1;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> out = new ArrayList<>();
+        if (!sender.hasPermission(PERM_HISTORY)) return out;
+        if (args.length == 1) {
+            String start = args[0].toLowerCase(Locale.ROOT);
+            if ("*".startsWith(start)) out.add("*");
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (player.getName().toLowerCase(Locale.ROOT).startsWith(start)) out.add(player.getName());
+            }
+        } else if (args.length == 2) {
+            for (String since : SINCE_SUGGESTIONS) {
+                if (since.startsWith(args[1].toLowerCase(Locale.ROOT))) out.add(since);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,137 @@
+package org.finetree.finechat.command;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.finetree.finechat.FineChat;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.spam.SpamGuard;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * /finechat reload
+ * /finechat stats [reset]
+ * /finechat slowmode [seconds|off]
+ */
+public class FineChatCommand implements CommandExecutor, TabCompleter {
+
+    private static final String PERM_ADMIN = "finechat.admin";
+    private static final List<String> SUBCOMMANDS = List.of("reload", "stats", "slowmode");
+    private static final List<String> SLOWMODE_SUGGESTIONS = List.of("off", "5", "10", "30");
+
+    private final FineChat plugin;
+
+    public FineChatCommand(FineChat plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(PERM_ADMIN)) {
+            sender.sendMessage(ColorUtil.colorize("&cYou don't have permission to do that.", true));
+            return true;
+        }
+        if (args.length == 0) {
+            sender.sendMessage(ColorUtil.colorize("&7Usage: /" + label + " <reload|stats [reset]|slowmode [seconds|off]>", true));
+            return true;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "reload":
+                reload(sender);
+                return true;
+            case "stats":
+                stats(sender, args.length > 1 && args[1].equalsIgnoreCase("reset"));
+                return true;
+            case "slowmode":
+                slowMode(sender, args.length > 1 ? args[1] : null);
+                return true;
+            default:
+                sender.sendMessage(ColorUtil.colorize("&cUnknown subcommand. Usage: /" + label + " <reload|stats [reset]|slowmode [seconds|off]>", true));
+                return true;
+        }
+    }
+
+    private void reload(CommandSender sender) {
+        // Reading and compiling the config happens off the server thread; chat keeps
+        // using the old settings until the new ones are published in one swap
+        plugin.getPlatformScheduler().runAsync(() -> {
+            String reply;
+            try {
+                plugin.reloadSettings();
+                reply = "&aFineChat config reloaded.";
+            } catch (Throwable t) {
+                plugin.getLogger().warning("[FineChat] Reload failed, keeping the previous config: " + t);
+                reply = "&cReload failed, keeping the previous config. See console.";
+            }
+
+            String message = ColorUtil.colorize(reply, true);
+            if (sender instanceof Player) {
+                plugin.getPlatformScheduler().runSyncPlayer((Player) sender, () -> sender.sendMessage(message));
+            } else {
+                plugin.getPlatformScheduler().runSyncGlobal(() -> sender.sendMessage(message));
+            }
+        });
+    }
+
+    private void stats(CommandSender sender, boolean reset) {
+        for (String line : plugin.getStats().report()) {
+            sender.sendMessage(ColorUtil.colorize(line, true));
+        }
+        if (reset) {
+            plugin.getStats().reset();
+            sender.sendMessage(ColorUtil.colorize("&aFineChat stats reset.", true));
+        }
+    }
+
+    private void slowMode(CommandSender sender, String value) {
+        SpamGuard spamGuard = plugin.getSpamGuard();
+        if (value != null) {
+            int seconds;
+            if (value.equalsIgnoreCase("off")) {
+                seconds = 0;
+            } else {
+                try {
+                    seconds = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    seconds = -1;
+                }
+                if (seconds < 0 || seconds > 3600) {
+                    sender.sendMessage(ColorUtil.colorize("&cSlow mode must be 0-3600 seconds, or off.", true));
+                    return;
+                }
+            }
+            spamGuard.setSlowMode(seconds);
+        }
+
+        long seconds = spamGuard.getSlowModeSeconds(ChatSettings.current());
+        String state = seconds > 0 ? "&f" + seconds + "s" : "&foff";
+        String suffix = value != null ? " &7(until the next reload)" : "";
+        sender.sendMessage(ColorUtil.colorize("&7Slow mode: " + state + suffix, true));
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> out = new ArrayList<>();
+        if (args.length == 1 && sender.hasPermission(PERM_ADMIN)) {
+            String start = args[0].toLowerCase(Locale.ROOT);
+            for (String sub : SUBCOMMANDS) {
+                if (sub.startsWith(start)) out.add(sub);
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("stats") && sender.hasPermission(PERM_ADMIN)) {
+            if ("reset".startsWith(args[1].toLowerCase(Locale.ROOT))) out.add("reset");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("slowmode") && sender.hasPermission(PERM_ADMIN)) {
+            String start = args[1].toLowerCase(Locale.ROOT);
+            for (String suggestion : SLOWMODE_SUGGESTIONS) {
+                if (suggestion.startsWith(start)) out.add(suggestion);
+            }
+        }
+        return out;
+    }
+}
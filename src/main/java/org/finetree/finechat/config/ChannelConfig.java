@@ -0,0 +1,51 @@
+package org.finetree.finechat.config;
+
+import redempt.redlib.config.annotations.Comment;
+import redempt.redlib.config.annotations.ConfigMappable;
+
+/**
+ * One entry under {@code channels:} in config.yml. Compiled into a
+ * {@link org.finetree.finechat.channel.Channel} by ChatSettings.
+ */
+@ConfigMappable
+public class ChannelConfig {
+
+    // Same placeholders as the main format; empty uses the main format
+    @Comment("Format for this channel; empty = the main format")
+    public String format = "";
+
+    // Needed to join, and checked again on login, world change and reload
+    @Comment("Permission needed to join; empty = anyone")
+    public String permission = "";
+
+    @Comment("GLOBAL: all members hear it. WORLD: members in the sender's world hear it.")
+    @Comment("LOCAL: members within radius blocks of the sender hear it")
+    public String scope = "GLOBAL";
+
+    @Comment("How far a LOCAL channel reaches, in blocks")
+    public int radius = 100;
+
+    @Comment("Join players to this channel when they log in (if they have the permission)?")
+    public boolean autoJoin = true;
+
+    @Comment("Check messages in this channel for spam?")
+    public boolean spamGuard = true;
+
+    @Comment("Slow mode for this channel in seconds; -1 = the server-wide slowModeSeconds")
+    public int slowModeSeconds = -1;
+
+    public ChannelConfig() {
+    }
+
+    ChannelConfig(String format, String permission, String scope, boolean autoJoin) {
+        this.format = format;
+        this.permission = permission;
+        this.scope = scope;
+        this.autoJoin = autoJoin;
+    }
+
+    ChannelConfig(String format, String permission, String scope, boolean autoJoin, int radius) {
+        this(format, permission, scope, autoJoin);
+        this.radius = radius;
+    }
+}
@@ -2,6 +2,12 @@ package org.finetree.finechat.config;
 
 import redempt.redlib.config.annotations.Comment;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * RedLib ConfigManager will load/save these static fields to config.yml.
  * Keep everything public for quick access (as requested).
@@ -42,11 +48,165 @@ public class ChatConfig {
     @Comment("Should LP or GM be used directly if Vault Prefix is empty?")
     public static boolean useLuckPermsGroupManager = true;
 
+    // Order prefix/suffix providers are asked in; other plugins' providers not listed go last
+    @Comment("")
+    @Comment("Where prefixes/suffixes come from, first match wins: GroupManager, Vault, LuckPerms")
+    @Comment("Providers added by other plugins are used after these unless listed here by name.")
+    public static List<String> metaProviders = new ArrayList<>(List.of("GroupManager", "Vault", "LuckPerms"));
+
+    // Vault has no change events, so cached Vault prefixes/suffixes are re-read on this interval
+    @Comment("")
+    @Comment("How often (seconds) to refresh cached Vault prefixes/suffixes. 0 = only on join")
+    @Comment("LuckPerms and GroupManager changes are picked up instantly.")
+    public static int vaultMetaRefreshSeconds = 10;
+
     // If true, the player's chat message will run through PlaceholderAPI too.
     @Comment("")
     @Comment("Enable PlaceholderAPI Processing?")
     public static boolean papiOnMessage = true;
 
+    // Slow-changing placeholders can be cached per player instead of resolved every message
+    @Comment("")
+    @Comment("Cache these PlaceholderAPI placeholders per player for N seconds")
+    @Comment("e.g. '%vault_rank%': 30")
+    public static Map<String, Integer> placeholderCacheSeconds = new HashMap<>();
+
+    // Messages are formatted on FineChat's own threads, not the shared async pool
+    @Comment("")
+    @Comment("How many threads format chat messages")
+    public static int chatThreads = 2;
+
+    // Use virtual threads for the chat workers when the server runs Java 21+
+    @Comment("Use virtual threads for chat formatting? (Java 21+, ignored on older Java)")
+    public static boolean chatVirtualThreads = false;
+
+    // Total number of messages allowed to wait for formatting
+    @Comment("How many chat messages may wait to be formatted, in total")
+    public static int chatQueueCapacity = 512;
+
+    // Cap per player so one spammer can't fill the whole queue
+    @Comment("How many chat messages one player may have waiting")
+    public static int chatQueuePerPlayer = 8;
+
+    // What to do with a message when the queue (or that player's share of it) is full
+    @Comment("When the chat queue is full: SHED (drop the message), MERGE (append it to")
+    @Comment("the player's last waiting message, up to 512 chars) or CALLER_RUNS (format it")
+    @Comment("immediately if the player has nothing else queued)")
+    public static String chatOverflowPolicy = "SHED";
+
+    // Checked on the chat event thread before a message is queued; blocked messages go nowhere
+    @Comment("")
+    @Comment("Block chat spam: messages sent too fast, repeats and slow mode?")
+    @Comment("Players with the bypass slowmode permission are never blocked.")
+    public static boolean spamGuardEnabled = true;
+
+    // A token bucket: spamBurst messages at once, then spamMessagesPerSecond on average
+    @Comment("How many messages a player may send in one quick burst")
+    public static int spamBurst = 6;
+
+    @Comment("How many messages per second a player may keep sending after a burst. 0 = no limit")
+    public static double spamMessagesPerSecond = 2;
+
+    // Compared ignoring case, colours, spaces, punctuation and repeated letters
+    @Comment("Block a message that repeats one of the player's last N messages (max 16). 0 = off")
+    public static int spamDuplicateHistory = 0;
+
+    @Comment("...if that message was sent in the last N seconds")
+    public static int spamDuplicateSeconds = 30;
+
+    // Channels can set their own; /finechat slowmode changes this until the next reload
+    @Comment("Slow mode: seconds every player must wait between messages. 0 = off")
+    public static int slowModeSeconds = 0;
+
+    // One pass per message whatever the list sizes: the lists are compiled into a single automaton
+    @Comment("")
+    @Comment("Filter words and phrases in chat?")
+    @Comment("An entry matches whole words; word* also matches words starting with it,")
+    @Comment("*word words ending with it and *word* anywhere. Case, colour codes, leetspeak")
+    @Comment("(sh1t, 4ss) and letters repeated in a row are ignored.")
+    public static boolean filterEnabled = true;
+
+    @Comment("Replace these with *** and send the message")
+    public static List<String> filterCensor = new ArrayList<>();
+
+    @Comment("Send messages with these, but tell staff (finechat.filter.notify)")
+    public static List<String> filterFlag = new ArrayList<>();
+
+    @Comment("Don't send messages with these at all")
+    public static List<String> filterBlock = new ArrayList<>();
+
+    // Online names are kept in a trie, updated on join/quit/nickname change; one pass per message
+    @Comment("")
+    @Comment("Highlight @mentions of online players for the player mentioned?")
+    public static boolean mentionsEnabled = false;
+
+    @Comment("Also count a name without the @ (3 letters or more) as a mention?")
+    public static boolean mentionBareNames = false;
+
+    // The message's own colour carries on after the mention
+    @Comment("Colour of a mention, as the mentioned player sees it")
+    public static String mentionColor = "&e&l";
+
+    // A sound key as used by /playsound
+    @Comment("Sound the mentioned player hears, e.g. block.note_block.pling. Empty = none")
+    public static String mentionSound = "";
+
+    // Players hear every channel they are in and talk in the one they focus (/ch focus)
+    @Comment("")
+    @Comment("Use chat channels (/ch)? Off = everyone hears everyone, as without channels")
+    public static boolean channelsEnabled = false;
+
+    @Comment("Channel players talk in until they /ch focus another")
+    public static String defaultChannel = "global";
+
+    // Channel names are case-insensitive; membership is kept per player for the session
+    @Comment("Chat channels by name")
+    public static Map<String, ChannelConfig> channels = defaultChannels();
+
+    // Chat log for moderation, written by a background thread in batches
+    @Comment("")
+    @Comment("Write chat to plugins/FineChat/logs/chat.log?")
+    public static boolean chatLogEnabled = false;
+
+    // PLAIN: "[time] [world] Name (uuid): line"; JSONL: one JSON object per line
+    @Comment("Chat log format: PLAIN or JSONL (time, uuid, name, world, raw message, stripped line)")
+    public static String chatLogFormat = "PLAIN";
+
+    // The log is also rolled at midnight
+    @Comment("Roll the chat log when it reaches this many MB (it also rolls daily). 0 = daily only")
+    public static int chatLogMaxMegabytes = 16;
+
+    @Comment("Gzip rolled chat logs?")
+    public static boolean chatLogGzip = true;
+
+    // Lines waiting for the writer; if it falls this far behind, new lines are dropped (and counted)
+    @Comment("How many chat lines may wait to be written")
+    public static int chatLogBufferSize = 8192;
+
+    // Echo chat to the server console, batched into one task per tick
+    @Comment("Also show chat in the server console?")
+    public static boolean chatLogConsole = true;
+
+    // Kept in memory-mapped segment files under plugins/FineChat/history
+    @Comment("")
+    @Comment("Keep chat history for /chathistory?")
+    public static boolean historyEnabled = false;
+
+    @Comment("Delete chat history older than this many hours. 0 = keep until the size limit")
+    public static int historyRetentionHours = 168;
+
+    // History is stored in 16 MB segments; the oldest whole segments are deleted first
+    @Comment("Keep at most this many MB of chat history. 0 = no limit")
+    public static int historyMaxMegabytes = 512;
+
+    @Comment("How many lines /chathistory shows at most")
+    public static int historyQueryLines = 20;
+
+    // /finechat stats can also be written to plugins/FineChat/stats.txt on a timer
+    @Comment("")
+    @Comment("Write /finechat stats to stats.txt every N seconds. 0 = off")
+    public static int statsFileSeconds = 0;
+
     // Permission node that allows using color codes (& / §) in chat messages
     @Comment("")
     @Comment("Allow Colour codes permission")
@@ -55,6 +215,21 @@ public class ChatConfig {
     // Permission node that allows using special tags (<rainbow>, <gradient>, <hex>)
     public static String permChatSpecialColor = "finechat.color.special";
 
+    // Permission node that skips the chat filter
+    public static String permBypassFilter = "finechat.bypass.filter";
+
+    // Permission node that skips chat slowmode/spam limits
+    public static String permBypassSlowmode = "finechat.bypass.slowmode";
+
+    // Permission node that is shown messages the filter flags
+    public static String permFilterNotify = "finechat.filter.notify";
+
+    // Permissions are cached per player; this catches changes no event tells us about
+    @Comment("")
+    @Comment("How often (seconds) to re-check cached chat permissions. 0 = only on join/world change")
+    @Comment("LuckPerms changes are picked up instantly.")
+    public static int permissionRefreshSeconds = 60;
+
     // If true, strip color codes from player message if they lack permission
     public static boolean stripColorsIfNoPerm = true;
 
@@ -63,4 +238,18 @@ public class ChatConfig {
 
     // Rainbow/gradient default behavior if no closing tag is used
     public static boolean tagsApplyToRestOfString = true;
+
+    private static Map<String, ChannelConfig> defaultChannels() {
+        Map<String, ChannelConfig> defaults = new LinkedHashMap<>();
+        defaults.put("global", new ChannelConfig("", "", "GLOBAL", true));
+        defaults.put("staff", new ChannelConfig("&c[Staff] {displayname}&7: &f{message}",
+                "finechat.channel.staff", "GLOBAL", true));
+        defaults.put("world", new ChannelConfig("&a[{world}] {prefix}{displayname}&7: &f{message}",
+                "", "WORLD", true));
+        defaults.put("local", new ChannelConfig("&e[Local] {prefix}{displayname}&7: &f{message}",
+                "", "LOCAL", true, 100));
+        defaults.put("trade", new ChannelConfig("&6[Trade] {prefix}{displayname}&7: &f{message}",
+                "", "GLOBAL", false));
+        return defaults;
+    }
 }
@@ -0,0 +1,421 @@
+package org.finetree.finechat.config;
+
+import org.finetree.finechat.channel.Channel;
+import org.finetree.finechat.chat.ChatExecutor;
+import org.finetree.finechat.chat.FormatTemplate;
+import org.finetree.finechat.filter.WordFilter;
+import org.finetree.finechat.meta.Capability;
+import org.finetree.finechat.spam.SpamGuard;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled view of {@link ChatConfig}.
+ *
+ * ChatConfig's static fields are what RedLib loads and saves; the chat path never
+ * reads them. Instead a ChatSettings is built from them once per (re)load and
+ * published with a single volatile write, so a message picks up one snapshot when
+ * it arrives and sees the same config until it is delivered, even if a reload
+ * happens halfway through.
+ */
+public final class ChatSettings {
+
+    private static volatile ChatSettings current = fromConfig();
+
+    private final boolean enabled;
+    private final boolean overrideVanillaChat;
+    private final FormatTemplate template;
+    private final boolean papiOnMessage;
+    private final Map<String, Integer> placeholderCacheSeconds;
+
+    // Permission node per Capability, indexed by ordinal
+    private final String[] permissions;
+    private final int permissionRefreshSeconds;
+    private final boolean stripColorsIfNoPerm;
+
+    private final List<String> metaProviderOrder;
+    private final int vaultMetaRefreshSeconds;
+
+    private final int chatThreads;
+    private final boolean chatVirtualThreads;
+    private final int chatQueueCapacity;
+    private final int chatQueuePerPlayer;
+    private final ChatExecutor.OverflowPolicy chatOverflowPolicy;
+
+    private final boolean spamGuardEnabled;
+    private final int spamBurst;
+    private final long spamIntervalNanos;
+    private final int spamDuplicateHistory;
+    private final long spamDuplicateNanos;
+    private final long slowModeNanos;
+
+    private final WordFilter wordFilter;
+
+    private final boolean mentionsEnabled;
+    private final boolean mentionBareNames;
+    private final String mentionColor;
+    private final String mentionSound;
+
+    private final boolean channelsEnabled;
+    private final List<Channel> channels;
+    private final Map<String, Channel> channelsByKey;
+    private final Channel defaultChannel;
+
+    private final boolean chatLogEnabled;
+    private final String chatLogFormat;
+    private final long chatLogMaxBytes;
+    private final boolean chatLogGzip;
+    private final int chatLogBufferSize;
+    private final boolean chatLogConsole;
+
+    private final boolean historyEnabled;
+    private final long historyRetentionMillis;
+    private final long historyMaxBytes;
+    private final int historyQueryLines;
+
+    private final int statsFileSeconds;
+
+    private ChatSettings() {
+        this.enabled = ChatConfig.enabled;
+        this.overrideVanillaChat = ChatConfig.overrideVanillaChat;
+        this.template = FormatTemplate.compile(ChatConfig.format);
+        this.papiOnMessage = ChatConfig.papiOnMessage;
+        this.placeholderCacheSeconds = ChatConfig.placeholderCacheSeconds == null
+                ? Map.of()
+                : Map.copyOf(ChatConfig.placeholderCacheSeconds);
+
+        this.permissions = new String[Capability.values().length];
+        permissions[Capability.COLOR.ordinal()] = ChatConfig.permChatColor;
+        permissions[Capability.SPECIAL_COLOR.ordinal()] = ChatConfig.permChatSpecialColor;
+        permissions[Capability.BYPASS_FILTER.ordinal()] = ChatConfig.permBypassFilter;
+        permissions[Capability.BYPASS_SLOWMODE.ordinal()] = ChatConfig.permBypassSlowmode;
+        permissions[Capability.FILTER_NOTIFY.ordinal()] = ChatConfig.permFilterNotify;
+        this.permissionRefreshSeconds = ChatConfig.permissionRefreshSeconds;
+        this.stripColorsIfNoPerm = ChatConfig.stripColorsIfNoPerm;
+
+        // The two older switches still turn Vault / LuckPerms off entirely
+        List<String> order = new ArrayList<>();
+        if (ChatConfig.metaProviders != null) {
+            for (String name : ChatConfig.metaProviders) {
+                if (name == null || name.isBlank()) continue;
+                if (!ChatConfig.preferVaultChat && name.equalsIgnoreCase("Vault")) continue;
+                if (!ChatConfig.useLuckPermsGroupManager && name.equalsIgnoreCase("LuckPerms")) continue;
+                order.add(name.trim());
+            }
+        }
+        this.metaProviderOrder = List.copyOf(order);
+        this.vaultMetaRefreshSeconds = ChatConfig.vaultMetaRefreshSeconds;
+
+        this.chatThreads = ChatConfig.chatThreads;
+        this.chatVirtualThreads = ChatConfig.chatVirtualThreads;
+        this.chatQueueCapacity = ChatConfig.chatQueueCapacity;
+        this.chatQueuePerPlayer = ChatConfig.chatQueuePerPlayer;
+        this.chatOverflowPolicy = ChatExecutor.OverflowPolicy.parse(ChatConfig.chatOverflowPolicy);
+
+        this.spamGuardEnabled = ChatConfig.spamGuardEnabled;
+        this.spamBurst = Math.max(1, ChatConfig.spamBurst);
+        this.spamIntervalNanos = ChatConfig.spamMessagesPerSecond > 0
+                ? (long) (1_000_000_000L / ChatConfig.spamMessagesPerSecond)
+                : 0L;
+        this.spamDuplicateHistory = Math.max(0, Math.min(SpamGuard.MAX_DUPLICATE_HISTORY, ChatConfig.spamDuplicateHistory));
+        this.spamDuplicateNanos = Math.max(0, ChatConfig.spamDuplicateSeconds) * 1_000_000_000L;
+        this.slowModeNanos = Math.max(0, ChatConfig.slowModeSeconds) * 1_000_000_000L;
+
+        // Compiled here, so a reload swaps the whole automaton along with everything else
+        this.wordFilter = ChatConfig.filterEnabled
+                ? WordFilter.compile(ChatConfig.filterCensor, ChatConfig.filterFlag, ChatConfig.filterBlock)
+                : null;
+
+        this.mentionsEnabled = ChatConfig.mentionsEnabled;
+        this.mentionBareNames = ChatConfig.mentionBareNames;
+        this.mentionColor = ColorUtil.colorize(ChatConfig.mentionColor, true);
+        this.mentionSound = ChatConfig.mentionSound == null || ChatConfig.mentionSound.isBlank()
+                ? null
+                : ChatConfig.mentionSound.trim();
+
+        List<Channel> channelList = new ArrayList<>();
+        Map<String, Channel> byKey = new LinkedHashMap<>();
+        if (ChatConfig.channels != null) {
+            for (Map.Entry<String, ChannelConfig> entry : ChatConfig.channels.entrySet()) {
+                ChannelConfig config = entry.getValue();
+                if (entry.getKey() == null || entry.getKey().isBlank() || config == null) continue;
+                Channel channel = new Channel(entry.getKey().trim(), config.format, config.permission,
+                        Channel.Scope.parse(config.scope), config.autoJoin, config.radius,
+                        config.spamGuard, config.slowModeSeconds);
+                if (byKey.putIfAbsent(channel.getKey(), channel) == null) channelList.add(channel);
+            }
+        }
+        this.channels = List.copyOf(channelList);
+        this.channelsByKey = Collections.unmodifiableMap(byKey);
+        this.channelsEnabled = ChatConfig.channelsEnabled && !channelList.isEmpty();
+        // An unknown default falls back to the first channel listed
+        Channel configured = ChatConfig.defaultChannel == null
+                ? null
+                : byKey.get(Channel.key(ChatConfig.defaultChannel.trim()));
+        this.defaultChannel = configured != null ? configured : channelList.isEmpty() ? null : channelList.get(0);
+
+        this.chatLogEnabled = ChatConfig.chatLogEnabled;
+        this.chatLogFormat = ChatConfig.chatLogFormat;
+        this.chatLogMaxBytes = Math.max(0, ChatConfig.chatLogMaxMegabytes) * 1024L * 1024L;
+        this.chatLogGzip = ChatConfig.chatLogGzip;
+        this.chatLogBufferSize = Math.max(64, ChatConfig.chatLogBufferSize);
+        this.chatLogConsole = ChatConfig.chatLogConsole;
+
+        this.historyEnabled = ChatConfig.historyEnabled;
+        this.historyRetentionMillis = Math.max(0, ChatConfig.historyRetentionHours) * 3_600_000L;
+        this.historyMaxBytes = Math.max(0, ChatConfig.historyMaxMegabytes) * 1024L * 1024L;
+        this.historyQueryLines = Math.max(1, Math.min(500, ChatConfig.historyQueryLines));
+
+        this.statsFileSeconds = ChatConfig.statsFileSeconds;
+    }
+
+    /**
+     * Compile the current values of ChatConfig's fields. Does not publish.
+     */
+    public static ChatSettings fromConfig() {
+        return new ChatSettings();
+    }
+
+    /**
+     * @return the published settings.
+     */
+    public static ChatSettings current() {
+        return current;
+    }
+
+    /**
+     * Make these the settings every new message sees.
+     */
+    public static void publish(ChatSettings settings) {
+        current = settings;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isOverrideVanillaChat() {
+        return overrideVanillaChat;
+    }
+
+    public FormatTemplate getTemplate() {
+        return template;
+    }
+
+    public boolean isPapiOnMessage() {
+        return papiOnMessage;
+    }
+
+    public Map<String, Integer> getPlaceholderCacheSeconds() {
+        return placeholderCacheSeconds;
+    }
+
+    /**
+     * @return the permission node that grants the capability.
+     */
+    public String getPermission(Capability capability) {
+        return permissions[capability.ordinal()];
+    }
+
+    public int getPermissionRefreshSeconds() {
+        return permissionRefreshSeconds;
+    }
+
+    public boolean isStripColorsIfNoPerm() {
+        return stripColorsIfNoPerm;
+    }
+
+    /**
+     * @return prefix/suffix provider names in priority order; earlier providers win.
+     */
+    public List<String> getMetaProviderOrder() {
+        return metaProviderOrder;
+    }
+
+    public int getVaultMetaRefreshSeconds() {
+        return vaultMetaRefreshSeconds;
+    }
+
+    public int getChatThreads() {
+        return chatThreads;
+    }
+
+    public boolean isChatVirtualThreads() {
+        return chatVirtualThreads;
+    }
+
+    public int getChatQueueCapacity() {
+        return chatQueueCapacity;
+    }
+
+    public int getChatQueuePerPlayer() {
+        return chatQueuePerPlayer;
+    }
+
+    public ChatExecutor.OverflowPolicy getChatOverflowPolicy() {
+        return chatOverflowPolicy;
+    }
+
+    public boolean isSpamGuardEnabled() {
+        return spamGuardEnabled;
+    }
+
+    /**
+     * @return how many messages a player may send at once before the rate limit applies
+     */
+    public int getSpamBurst() {
+        return spamBurst;
+    }
+
+    /**
+     * @return nanos per message a player earns back after a burst; 0 = no rate limit
+     */
+    public long getSpamIntervalNanos() {
+        return spamIntervalNanos;
+    }
+
+    /**
+     * @return how many of a player's recent messages a new one is compared with; 0 = off
+     */
+    public int getSpamDuplicateHistory() {
+        return spamDuplicateHistory;
+    }
+
+    public long getSpamDuplicateNanos() {
+        return spamDuplicateNanos;
+    }
+
+    /**
+     * @return the configured server-wide slow mode, in nanos; 0 = off
+     */
+    public long getSlowModeNanos() {
+        return slowModeNanos;
+    }
+
+    /**
+     * @return the compiled word filter, or null if filtering is off or the lists are empty
+     */
+    public WordFilter getWordFilter() {
+        return wordFilter;
+    }
+
+    public boolean isMentionsEnabled() {
+        return mentionsEnabled;
+    }
+
+    public boolean isMentionBareNames() {
+        return mentionBareNames;
+    }
+
+    /**
+     * @return the mention highlight, already coloured
+     */
+    public String getMentionColor() {
+        return mentionColor;
+    }
+
+    /**
+     * @return the sound key played to a mentioned player, or null for none
+     */
+    public String getMentionSound() {
+        return mentionSound;
+    }
+
+    /**
+     * @return true if chat is routed through channels; always false with no channels configured
+     */
+    public boolean isChannelsEnabled() {
+        return channelsEnabled;
+    }
+
+    /**
+     * @return the configured channels, in config order
+     */
+    public List<Channel> getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the channel with this name (case-insensitive), or null
+     */
+    public Channel getChannel(String name) {
+        return name == null ? null : channelsByKey.get(Channel.key(name));
+    }
+
+    /**
+     * @return the channel players talk in until they focus another, or null if there are none
+     */
+    public Channel getDefaultChannel() {
+        return defaultChannel;
+    }
+
+    public boolean isChatLogEnabled() {
+        return chatLogEnabled;
+    }
+
+    public String getChatLogFormat() {
+        return chatLogFormat;
+    }
+
+    /**
+     * @return size at which the chat log rolls, 0 for daily only.
+     */
+    public long getChatLogMaxBytes() {
+        return chatLogMaxBytes;
+    }
+
+    public boolean isChatLogGzip() {
+        return chatLogGzip;
+    }
+
+    public int getChatLogBufferSize() {
+        return chatLogBufferSize;
+    }
+
+    public boolean isChatLogConsole() {
+        return chatLogConsole;
+    }
+
+    public boolean isHistoryEnabled() {
+        return historyEnabled;
+    }
+
+    /**
+     * @return how long chat history is kept, in millis. 0 = until the size limit
+     */
+    public long getHistoryRetentionMillis() {
+        return historyRetentionMillis;
+    }
+
+    /**
+     * @return the most history to keep on disk, in bytes. 0 = no limit
+     */
+    public long getHistoryMaxBytes() {
+        return historyMaxBytes;
+    }
+
+    public int getHistoryQueryLines() {
+        return historyQueryLines;
+    }
+
+    public int getStatsFileSeconds() {
+        return statsFileSeconds;
+    }
+
+    /**
+     * @return true if the chat executor would be built the same way from both.
+     */
+    public boolean sameExecutor(ChatSettings other) {
+        return other != null
+                && chatThreads == other.chatThreads
+                && chatVirtualThreads == other.chatVirtualThreads
+                && chatQueueCapacity == other.chatQueueCapacity
+                && chatQueuePerPlayer == other.chatQueuePerPlayer
+                && chatOverflowPolicy == other.chatOverflowPolicy;
+    }
+}
@@ -0,0 +1,55 @@
+package org.finetree.finechat.filter;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.finetree.finechat.chat.ChatSnapshot;
+import org.finetree.finechat.meta.Capability;
+import org.finetree.finechat.meta.CapabilityCache;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Tells people about filtered messages: the sender when theirs was blocked, and
+ * staff holding the filter notify capability when one was flagged. Called from the
+ * chat workers; every message goes out on its recipient's own thread.
+ */
+public class FilterAlerts {
+
+    private final PlatformScheduler scheduler;
+    private final CapabilityCache capabilities;
+    private final Logger logger;
+
+    public FilterAlerts(PlatformScheduler scheduler, CapabilityCache capabilities, Logger logger) {
+        this.scheduler = scheduler;
+        this.capabilities = capabilities;
+        this.logger = logger;
+    }
+
+    public void blocked(ChatSnapshot sender) {
+        Player player = sender.getPlayer();
+        String reply = ColorUtil.colorize("&cYour message was not sent: it contains a blocked word or phrase.", true);
+        scheduler.runSyncPlayer(player, () -> player.sendMessage(reply));
+    }
+
+    /**
+     * @param entry the configured entry the message matched
+     */
+    public void flagged(ChatSnapshot sender, String message, String entry) {
+        String plain = ColorUtil.stripColors(ColorUtil.colorize(message, true));
+        logger.info("[FineChat] Filter flagged " + sender.getName() + " (" + entry + "): " + plain);
+
+        // Staff are few; the bits are cached, so this is no permission lookup per player
+        List<Player> staff = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (Capability.FILTER_NOTIFY.in(capabilities.get(player))) staff.add(player);
+        }
+        if (staff.isEmpty()) return;
+
+        String line = ColorUtil.colorize("&6[Filter] &e" + sender.getName() + " &7(" + entry + ")&7: &f", true) + plain;
+        scheduler.runForPlayers(staff, target -> target.sendMessage(line));
+    }
+}
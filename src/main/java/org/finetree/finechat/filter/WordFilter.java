@@ -0,0 +1,567 @@
+package org.finetree.finechat.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Filtered words and phrases compiled into one Aho-Corasick automaton, so a message
+ * is checked against every entry in a single left-to-right pass, however long the
+ * lists are.
+ *
+ * Messages and entries are normalised the same way as they are read:
+ *  - colour codes ('&' or '§' and a code, the set ColorUtil.stripColors removes)
+ *    and rainbow/hex/gradient tags are skipped
+ *  - letters are lower-cased, and leetspeak digits and symbols next to a letter
+ *    read as letters ("sh1t", "4ss", "a$$"); '!' only before one, since it so
+ *    often ends a sentence
+ *  - a letter repeated in a row still reads as that letter ("fuuuck"). An entry
+ *    spelled with a double letter ("boob") needs it at least twice in the message,
+ *    so it never matches the shorter word ("bob")
+ *  - anything else (spaces, punctuation, other digits) is a word break
+ *
+ * An entry matches whole words only; "word*" also matches words starting with it,
+ * "*word" words ending with it and "*word*" anywhere. Word breaks are part of the
+ * automaton's alphabet, so this needs no extra checks.
+ *
+ * The automaton is a full DFA over the letters with runs collapsed: one table read
+ * per run. Which of the last 64 letters were doubled is kept as a bit mask, and only
+ * entries spelled with a double letter check it, when their last run is complete.
+ * Checking a clean message allocates nothing; only a censored message is scanned a
+ * second time, to find what to replace.
+ */
+public final class WordFilter {
+
+    /**
+     * What happens to a message containing an entry, least severe first.
+     */
+    public enum Action {
+        /** Send it with the entry replaced by '*'. */
+        CENSOR,
+        /** Send it, and tell staff. */
+        FLAG,
+        /** Don't send it. */
+        BLOCK
+    }
+
+    private static final char BREAK = ' ';
+    private static final char CENSOR_CHAR = '*';
+
+    // Longest <tag> skipped whole
+    private static final int MAX_TAG = 64;
+    // How far ahead a run of leetspeak chars may look for a letter
+    private static final int MAX_LEET_RUN = 8;
+    private static final String[] TAGS = {"<rainbow", "</rainbow", "<hex", "</hex", "<gradient", "</gradient"};
+
+    // Same set ChatColor#stripColor and ColorUtil's translation accept
+    private static final String CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+
+    private static final char[] LEET = new char[128];
+
+    static {
+        LEET['0'] = 'o';
+        LEET['1'] = 'i';
+        LEET['3'] = 'e';
+        LEET['4'] = 'a';
+        LEET['5'] = 's';
+        LEET['7'] = 't';
+        LEET['8'] = 'b';
+        LEET['@'] = 'a';
+        LEET['$'] = 's';
+        LEET['!'] = 'i';
+    }
+
+    private final int symbols;
+    // Symbol per ASCII char; other chars seen in entries are in extraChars/extraSymbols
+    private final int[] asciiSymbol;
+    private final char[] extraChars;
+    private final int[] extraSymbols;
+
+    // transitions[state * symbols + symbol]; symbol 0 is "a letter no entry uses"
+    private final int[] transitions;
+    private final int start;
+
+    // Per state, over every entry ending there: the longest CENSOR entry (0 = none),
+    // the most severe FLAG/BLOCK action (-1 = none) and that entry's index
+    private final int[] censorLength;
+    private final byte[] severity;
+    private final int[] severityEntry;
+
+    // Per state, the entries with a double letter ending there (null = none); those are
+    // checked against the message's doubled letters rather than folded into the above
+    private final int[][] doubledEntries;
+    // Per entry: its action, normalised length and which of its letters are doubled
+    // (bit 0 = its last char)
+    private final byte[] entryActions;
+    private final int[] entryLengths;
+    private final long[] entryDoubled;
+
+    private final String[] entries;
+
+    private WordFilter(int symbols, int[] asciiSymbol, char[] extraChars, int[] extraSymbols, int[] transitions,
+                       int start, int[] censorLength, byte[] severity, int[] severityEntry, int[][] doubledEntries,
+                       byte[] entryActions, int[] entryLengths, long[] entryDoubled, String[] entries) {
+        this.symbols = symbols;
+        this.asciiSymbol = asciiSymbol;
+        this.extraChars = extraChars;
+        this.extraSymbols = extraSymbols;
+        this.transitions = transitions;
+        this.start = start;
+        this.censorLength = censorLength;
+        this.severity = severity;
+        this.severityEntry = severityEntry;
+        this.doubledEntries = doubledEntries;
+        this.entryActions = entryActions;
+        this.entryLengths = entryLengths;
+        this.entryDoubled = entryDoubled;
+        this.entries = entries;
+    }
+
+    /**
+     * A message that matched, with what to do about it.
+     */
+    public static final class Result {
+        private final Action action;
+        private final String message;
+        private final String entry;
+
+        Result(Action action, String message, String entry) {
+            this.action = action;
+            this.message = message;
+            this.entry = entry;
+        }
+
+        /**
+         * @return the most severe action among the entries found
+         */
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * @return the message with CENSOR entries replaced; unchanged if there were none
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the FLAG or BLOCK entry found, as configured; null for CENSOR
+         */
+        public String getEntry() {
+            return entry;
+        }
+    }
+
+    /**
+     * Compile the lists. An entry in more than one list takes the most severe action.
+     *
+     * @return null if no entry has anything left to match after normalising
+     */
+    public static WordFilter compile(Collection<String> censor, Collection<String> flag, Collection<String> block) {
+        List<String> words = new ArrayList<>();
+        List<Spelling> patterns = new ArrayList<>();
+        List<Action> actions = new ArrayList<>();
+        addAll(censor, Action.CENSOR, words, patterns, actions);
+        addAll(flag, Action.FLAG, words, patterns, actions);
+        addAll(block, Action.BLOCK, words, patterns, actions);
+        if (patterns.isEmpty()) return null;
+
+        // Alphabet: every char the patterns use, plus symbol 0 for any other letter
+        TreeSet<Character> used = new TreeSet<>();
+        int maxStates = 1;
+        for (Spelling pattern : patterns) {
+            for (int i = 0; i < pattern.chars.length(); i++) {
+                used.add(pattern.chars.charAt(i));
+            }
+            maxStates += pattern.chars.length();
+        }
+        used.add(BREAK);
+        int[] asciiSymbol = new int[128];
+        List<Character> extra = new ArrayList<>();
+        int symbols = 1;
+        for (char c : used) {
+            if (c < 128) {
+                asciiSymbol[c] = symbols++;
+            } else {
+                extra.add(c);
+            }
+        }
+        char[] extraChars = new char[extra.size()];
+        int[] extraSymbols = new int[extra.size()];
+        for (int i = 0; i < extraChars.length; i++) {
+            extraChars[i] = extra.get(i);
+            extraSymbols[i] = symbols++;
+        }
+
+        // Trie
+        int[] next = new int[maxStates * symbols];
+        Arrays.fill(next, -1);
+        int[] censorLength = new int[maxStates];
+        byte[] severity = new byte[maxStates];
+        int[] severityEntry = new int[maxStates];
+        Arrays.fill(severity, (byte) -1);
+        int[][] doubledEntries = new int[maxStates][];
+        byte[] entryActions = new byte[patterns.size()];
+        int[] entryLengths = new int[patterns.size()];
+        long[] entryDoubled = new long[patterns.size()];
+        int states = 1;
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p).chars;
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int slot = state * symbols + symbol(pattern.charAt(i), asciiSymbol, extraChars, extraSymbols);
+                if (next[slot] < 0) next[slot] = states++;
+                state = next[slot];
+            }
+            Action action = actions.get(p);
+            entryActions[p] = (byte) action.ordinal();
+            entryLengths[p] = pattern.length();
+            entryDoubled[p] = patterns.get(p).doubled;
+            if (entryDoubled[p] != 0) {
+                doubledEntries[state] = append(doubledEntries[state], p);
+            } else if (action == Action.CENSOR) {
+                censorLength[state] = Math.max(censorLength[state], pattern.length());
+            } else if (action.ordinal() > severity[state]) {
+                severity[state] = (byte) action.ordinal();
+                severityEntry[state] = p;
+            }
+        }
+
+        // Failure links, folded into the table breadth first: a missing transition takes
+        // the one from the longest proper suffix, and each state also reports what its
+        // suffixes match
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int s = 0; s < symbols; s++) {
+            int child = next[s];
+            if (child < 0) {
+                next[s] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int suffix = fail[state];
+            censorLength[state] = Math.max(censorLength[state], censorLength[suffix]);
+            if (severity[suffix] > severity[state]) {
+                severity[state] = severity[suffix];
+                severityEntry[state] = severityEntry[suffix];
+            }
+            if (doubledEntries[suffix] != null) {
+                for (int p : doubledEntries[suffix]) {
+                    doubledEntries[state] = append(doubledEntries[state], p);
+                }
+            }
+            for (int s = 0; s < symbols; s++) {
+                int slot = state * symbols + s;
+                int child = next[slot];
+                if (child < 0) {
+                    next[slot] = next[suffix * symbols + s];
+                } else {
+                    fail[child] = next[suffix * symbols + s];
+                    queue.add(child);
+                }
+            }
+        }
+
+        // Every message starts after a word break
+        int start = next[asciiSymbol[BREAK]];
+        return new WordFilter(symbols, asciiSymbol, extraChars, extraSymbols,
+                Arrays.copyOf(next, states * symbols), start,
+                Arrays.copyOf(censorLength, states), Arrays.copyOf(severity, states),
+                Arrays.copyOf(severityEntry, states), Arrays.copyOf(doubledEntries, states),
+                entryActions, entryLengths, entryDoubled, words.toArray(new String[0]));
+    }
+
+    private static int[] append(int[] list, int value) {
+        if (list == null) return new int[] {value};
+        int[] out = Arrays.copyOf(list, list.length + 1);
+        out[list.length] = value;
+        return out;
+    }
+
+    /**
+     * @return how many entries were compiled
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * @return null if nothing matched; otherwise the action to take and, for CENSOR,
+     * the censored message
+     */
+    public Result apply(String message) {
+        if (message == null || message.isEmpty()) return null;
+
+        int state = start;
+        char last = BREAK;
+        long doubled = 0L;
+        boolean censor = false;
+        int worst = -1;
+        int worstEntry = -1;
+        int len = message.length();
+        // One step past the end: the message ends on a word break
+        for (int i = 0; i <= len && worst != Action.BLOCK.ordinal(); i++) {
+            char c = BREAK;
+            if (i < len) {
+                int skip = skip(message, i);
+                if (skip > 0) {
+                    i += skip - 1;
+                    continue;
+                }
+                c = normalize(message, i, last != BREAK);
+            }
+            if (c == last) {
+                if (c != BREAK) doubled |= 1L;
+                continue;
+            }
+
+            // The run before this char is complete: entries with a double letter can be checked
+            if (doubledEntries[state] != null) {
+                if (doubledCensorLength(state, doubled) > 0) censor = true;
+                int p = doubledSeverest(state, doubled);
+                if (p >= 0 && entryActions[p] > worst) {
+                    worst = entryActions[p];
+                    worstEntry = p;
+                }
+            }
+            last = c;
+            doubled <<= 1;
+
+            state = transitions[state * symbols + symbol(c)];
+            if (censorLength[state] > 0) censor = true;
+            if (severity[state] > worst) {
+                worst = severity[state];
+                worstEntry = severityEntry[state];
+            }
+        }
+        if (worst != Action.BLOCK.ordinal() && doubledEntries[state] != null) {
+            if (doubledCensorLength(state, doubled) > 0) censor = true;
+            int p = doubledSeverest(state, doubled);
+            if (p >= 0 && entryActions[p] > worst) {
+                worst = entryActions[p];
+                worstEntry = p;
+            }
+        }
+
+        if (worst == Action.BLOCK.ordinal()) return new Result(Action.BLOCK, message, entries[worstEntry]);
+        if (!censor && worst < 0) return null;
+        String out = censor ? censor(message) : message;
+        return worst >= 0
+                ? new Result(Action.FLAG, out, entries[worstEntry])
+                : new Result(Action.CENSOR, out, null);
+    }
+
+    /**
+     * Second pass: the same scan, remembering where each normalised char came from,
+     * then star out every CENSOR match.
+     */
+    private String censor(String message) {
+        int len = message.length();
+        // Normalised char n spans message[from[n]..to[n]]; -1 for breaks, which are never starred
+        int[] from = new int[len + 2];
+        int[] to = new int[len + 2];
+        char[] out = message.toCharArray();
+
+        int state = start;
+        char last = BREAK;
+        long doubled = 0L;
+        int count = 1;
+        from[0] = to[0] = -1;
+        for (int i = 0; i <= len; i++) {
+            char c = BREAK;
+            if (i < len) {
+                int skip = skip(message, i);
+                if (skip > 0) {
+                    i += skip - 1;
+                    continue;
+                }
+                c = normalize(message, i, last != BREAK);
+            }
+            if (c == last) {
+                if (c != BREAK) {
+                    to[count - 1] = i;
+                    doubled |= 1L;
+                }
+                continue;
+            }
+            if (doubledEntries[state] != null) mark(out, from, to, count - 1, doubledCensorLength(state, doubled));
+            last = c;
+            doubled <<= 1;
+            from[count] = to[count] = c == BREAK ? -1 : i;
+            state = transitions[state * symbols + symbol(c)];
+            mark(out, from, to, count++, censorLength[state]);
+        }
+        if (doubledEntries[state] != null) mark(out, from, to, count - 1, doubledCensorLength(state, doubled));
+        return new String(out);
+    }
+
+    /**
+     * @param doubled which of the message's last 64 runs had the letter at least twice
+     * @return the longest CENSOR entry with a double letter that matches here, or 0
+     */
+    private int doubledCensorLength(int state, long doubled) {
+        int length = 0;
+        for (int p : doubledEntries[state]) {
+            if (entryActions[p] == Action.CENSOR.ordinal() && (doubled & entryDoubled[p]) == entryDoubled[p]) {
+                length = Math.max(length, entryLengths[p]);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the most severe FLAG/BLOCK entry with a double letter that matches here, or -1
+     */
+    private int doubledSeverest(int state, long doubled) {
+        int found = -1;
+        for (int p : doubledEntries[state]) {
+            if (entryActions[p] == Action.CENSOR.ordinal() || (doubled & entryDoubled[p]) != entryDoubled[p]) continue;
+            if (found < 0 || entryActions[p] > entryActions[found]) found = p;
+        }
+        return found;
+    }
+
+    private static void mark(char[] out, int[] from, int[] to, int end, int length) {
+        if (length == 0) return;
+        int first = -1;
+        int lastChar = -1;
+        for (int n = end - length + 1; n <= end; n++) {
+            if (from[n] < 0) continue;
+            if (first < 0) first = from[n];
+            lastChar = to[n];
+        }
+        if (first < 0) return;
+        for (int i = first; i <= lastChar; i++) {
+            if (!Character.isWhitespace(out[i])) out[i] = CENSOR_CHAR;
+        }
+    }
+
+    private int symbol(char c) {
+        return symbol(c, asciiSymbol, extraChars, extraSymbols);
+    }
+
+    private static int symbol(char c, int[] asciiSymbol, char[] extraChars, int[] extraSymbols) {
+        if (c < 128) return asciiSymbol[c];
+        int i = Arrays.binarySearch(extraChars, c);
+        return i >= 0 ? extraSymbols[i] : 0;
+    }
+
+    /**
+     * @return how many chars at i are a colour code or tag to skip, or 0
+     */
+    private static int skip(String s, int i) {
+        char c = s.charAt(i);
+        if ((c == '&' || c == '§') && i + 1 < s.length() && CODES.indexOf(s.charAt(i + 1)) >= 0) return 2;
+        if (c == '<') {
+            for (String tag : TAGS) {
+                if (!s.regionMatches(true, i, tag, 0, tag.length())) continue;
+                int close = s.indexOf('>', i + tag.length());
+                if (close > 0 && close - i < MAX_TAG) return close - i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param afterLetter the previous char read as a letter
+     * @return the lower-cased letter the char at i reads as, or BREAK
+     */
+    private static char normalize(String s, int i, boolean afterLetter) {
+        char c = s.charAt(i);
+        if (Character.isLetter(c)) return Character.toLowerCase(c);
+        if (c >= 128 || LEET[c] == 0) return BREAK;
+        return (afterLetter && c != '!') || letterFollows(s, i + 1) ? LEET[c] : BREAK;
+    }
+
+    /**
+     * @return true if a letter comes next, after at most a short run of leetspeak chars
+     */
+    private static boolean letterFollows(String s, int from) {
+        int end = Math.min(s.length(), from + MAX_LEET_RUN);
+        for (int i = from; i < end; i++) {
+            char c = s.charAt(i);
+            if (Character.isLetter(c)) return true;
+            if (c >= 128 || LEET[c] == 0) return false;
+        }
+        return false;
+    }
+
+    private static void addAll(Collection<String> list, Action action,
+                               List<String> words, List<Spelling> patterns, List<Action> actions) {
+        if (list == null) return;
+        for (String word : list) {
+            if (word == null) continue;
+            Spelling pattern = spell(word.trim());
+            if (pattern == null) continue;
+            words.add(word.trim());
+            patterns.add(pattern);
+            actions.add(action);
+        }
+    }
+
+    /**
+     * @return the entry normalised like a message, with a break at each end that must
+     * fall on a word boundary; null if nothing is left to match
+     */
+    static Spelling spell(String word) {
+        boolean anyStart = word.startsWith("*");
+        boolean anyEnd = word.endsWith("*") && word.length() > 1;
+        String core = word.substring(anyStart ? 1 : 0, word.length() - (anyEnd ? 1 : 0));
+
+        StringBuilder out = new StringBuilder(core.length() + 2);
+        long doubled = 0L;
+        char last = BREAK;
+        for (int i = 0; i < core.length(); i++) {
+            int skip = skip(core, i);
+            if (skip > 0) {
+                i += skip - 1;
+                continue;
+            }
+            char c = normalize(core, i, last != BREAK);
+            if (c == last) {
+                if (c != BREAK) doubled |= 1L;
+                continue;
+            }
+            if (c == BREAK && out.length() == 0) continue;
+            out.append(c);
+            doubled <<= 1;
+            last = c;
+        }
+        // Trailing break from trailing punctuation
+        if (last == BREAK && out.length() > 0) {
+            out.setLength(out.length() - 1);
+            doubled >>>= 1;
+        }
+        if (out.length() == 0) return null;
+
+        if (!anyStart) out.insert(0, BREAK);
+        if (!anyEnd) {
+            out.append(BREAK);
+            doubled <<= 1;
+        }
+        return new Spelling(out.toString(), doubled);
+    }
+
+    /**
+     * An entry as the automaton reads it: letters with runs collapsed, plus which of
+     * them were written twice or more (bit 0 = the last char). Letters more than 64
+     * chars from the end of a very long entry aren't checked for doubling.
+     */
+    static final class Spelling {
+        final String chars;
+        final long doubled;
+
+        Spelling(String chars, long doubled) {
+            this.chars = chars;
+            this.doubled = doubled;
+        }
+    }
+}
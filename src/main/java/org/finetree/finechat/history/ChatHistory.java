@@ -0,0 +1,115 @@
+package org.finetree.finechat.history;
+
+import org.finetree.finechat.chat.ChatSnapshot;
+import org.finetree.finechat.config.ChatSettings;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Chat history for /chathistory, kept in memory-mapped segment files under
+ * {@code plugins/FineChat/history}.
+ *
+ * {@link #record} runs on the chat workers and only enqueues; a background thread
+ * appends. Queries can run on any thread and do not wait for the writer, but they
+ * read memory-mapped files, so call them off the server thread.
+ */
+public class ChatHistory {
+
+    // How long shutdown waits for queued lines to be written
+    private static final long STOP_TIMEOUT_MS = 2000L;
+
+    private final Path directory;
+    private final Logger logger;
+
+    private volatile HistoryStore store;
+    // Stopped, but its writer outlived the timeout and may still append to the newest segment
+    private HistoryStore stopping;
+
+    public ChatHistory(Path directory, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+    }
+
+    public void start(ChatSettings settings) {
+        apply(settings);
+    }
+
+    /**
+     * Settings were reloaded. Retention limits apply at the next retention pass.
+     */
+    public void reload(ChatSettings settings) {
+        apply(settings);
+    }
+
+    public synchronized void stop() {
+        HistoryStore current = store;
+        if (current == null) return;
+        store = null;
+        if (!current.stop(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            stopping = current;
+            logger.warning("[FineChat] Chat history writer did not stop within " + STOP_TIMEOUT_MS + " ms");
+        }
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    public void record(ChatSnapshot sender, String message) {
+        HistoryStore current = store;
+        if (current != null) {
+            current.submit(new HistoryEntry(System.currentTimeMillis(), sender.getUniqueId(), sender.getName(),
+                    sender.getWorldName(), message));
+        }
+    }
+
+    /**
+     * @return the UUID last seen chatting under this name (case-insensitive), or null
+     */
+    public UUID findPlayer(String name) {
+        HistoryStore current = store;
+        return current != null ? current.findPlayer(name) : null;
+    }
+
+    /**
+     * The newest lines sent since a point in time, oldest first.
+     *
+     * @param player whose lines, or null for everyone's
+     * @param since  epoch millis; 0 for everything retained
+     * @param limit  most lines to return
+     */
+    public List<HistoryEntry> query(UUID player, long since, int limit) {
+        HistoryStore current = store;
+        if (current == null || limit <= 0) return Collections.emptyList();
+        return player != null ? current.player(player, since, limit) : current.range(since, limit);
+    }
+
+    private synchronized void apply(ChatSettings settings) {
+        if (!settings.isHistoryEnabled()) {
+            stop();
+            return;
+        }
+        HistoryStore current = store;
+        if (current != null) {
+            current.configure(settings.getHistoryRetentionMillis(), settings.getHistoryMaxBytes());
+            return;
+        }
+        // Two writers on the newest segment would corrupt it; wait for the old one first
+        if (stopping != null) {
+            if (!stopping.stop(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warning("[FineChat] Chat history stays off until the previous writer has stopped; reload again later");
+                return;
+            }
+            stopping = null;
+        }
+        HistoryStore next = new HistoryStore(directory, logger,
+                settings.getHistoryRetentionMillis(), settings.getHistoryMaxBytes());
+        next.start();
+        store = next;
+    }
+}
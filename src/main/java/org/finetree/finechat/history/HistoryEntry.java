@@ -0,0 +1,49 @@
+package org.finetree.finechat.history;
+
+import java.util.UUID;
+
+/**
+ * One line of chat history, as the player typed it.
+ */
+public final class HistoryEntry {
+
+    private final long time;
+    private final UUID uniqueId;
+    private final String name;
+    private final String world;
+    private final String message;
+
+    HistoryEntry(long time, UUID uniqueId, String name, String world, String message) {
+        this.time = time;
+        this.uniqueId = uniqueId;
+        this.name = name;
+        this.world = world;
+        this.message = message;
+    }
+
+    /**
+     * @return when the line was sent, in epoch millis
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    /**
+     * @return the sender's name at the time
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,348 @@
+package org.finetree.finechat.history;
+
+import org.finetree.finechat.log.RingBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The segment files in the history directory, oldest first, plus the thread that
+ * appends to the newest one.
+ *
+ * Chat threads hand lines over through a ring buffer; the writer thread encodes them,
+ * appends them to the active segment and starts a new segment when it is full.
+ * Retention drops whole segments from the front, so nothing is ever rewritten or
+ * compacted. Queries run on the caller's thread against a snapshot of the segment list.
+ */
+final class HistoryStore implements Runnable {
+
+    static final int SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private static final int BUFFER = 8192;
+    private static final int BATCH = 256;
+    // UTF-8 is at most 3 bytes per char, and lengths are stored in an unsigned short
+    private static final int MAX_CHARS = 65535 / 3;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long RETENTION_INTERVAL_MS = 60_000L;
+    private static final long DROP_WARN_INTERVAL_MS = 60_000L;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+
+    private final Path directory;
+    private final Logger logger;
+    private final RingBuffer<HistoryEntry> buffer = new RingBuffer<>(BUFFER);
+    private final Map<String, UUID> names = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile Segment[] segments = new Segment[0];
+    private volatile long retentionMillis;
+    private volatile long maxBytes;
+    private volatile boolean running = true;
+    private volatile Thread thread;
+
+    // Writer thread only
+    private Segment active;
+    private long lastTime;
+    private long lastRetention;
+    private long lastDropWarn;
+    private final List<Path> undeleted = new ArrayList<>();
+
+    HistoryStore(Path directory, Logger logger, long retentionMillis, long maxBytes) {
+        this.directory = directory;
+        this.logger = logger;
+        configure(retentionMillis, maxBytes);
+    }
+
+    void configure(long retentionMillis, long maxBytes) {
+        this.retentionMillis = retentionMillis;
+        this.maxBytes = maxBytes;
+    }
+
+    void start() {
+        Thread t = new Thread(this, "FineChat-History");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+     * Queue a line. Never blocks; if the writer has fallen a full buffer behind the
+     * line is dropped and counted.
+     */
+    void submit(HistoryEntry entry) {
+        if (!buffer.offer(entry)) dropped.incrementAndGet();
+    }
+
+    /**
+     * Write what is queued, flush the active segment and stop the thread. Safe to call again to
+     * keep waiting.
+     *
+     * @return false if the thread is still running when the timeout is up
+     */
+    boolean stop(long timeout, TimeUnit unit) {
+        running = false;
+        Thread t = thread;
+        if (t == null) return true;
+        LockSupport.unpark(t);
+        try {
+            t.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !t.isAlive();
+    }
+
+    // === Queries (any thread) ===
+
+    /**
+     * @return the UUID last seen chatting under this name, or null
+     */
+    UUID findPlayer(String name) {
+        return names.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * The newest {@code max} lines from one player since the given time, oldest first.
+     */
+    List<HistoryEntry> player(UUID uuid, long since, int max) {
+        Segment[] snapshot = segments;
+        List<HistoryEntry> newestFirst = new ArrayList<>();
+        for (int i = snapshot.length - 1; i >= 0 && newestFirst.size() < max; i--) {
+            Segment segment = snapshot[i];
+            if (segment.isEmpty()) continue;
+            if (segment.lastTime() < since) break;
+            segment.player(uuid, since, max - newestFirst.size(), newestFirst);
+        }
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+
+    /**
+     * The newest {@code max} lines from everyone since the given time, oldest first.
+     */
+    List<HistoryEntry> range(long since, int max) {
+        Segment[] snapshot = segments;
+        List<Deque<HistoryEntry>> parts = new ArrayList<>();
+        int found = 0;
+        for (int i = snapshot.length - 1; i >= 0 && found < max; i--) {
+            Segment segment = snapshot[i];
+            if (segment.isEmpty()) continue;
+            if (segment.lastTime() < since) break;
+            Deque<HistoryEntry> part = new ArrayDeque<>();
+            segment.range(since, max - found, part);
+            parts.add(part);
+            found += part.size();
+        }
+
+        List<HistoryEntry> out = new ArrayList<>(found);
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            out.addAll(parts.get(i));
+        }
+        return out;
+    }
+
+    // === Writer thread ===
+
+    @Override
+    public void run() {
+        try {
+            load();
+            // Segments may have expired while the server was down
+            lastRetention = System.currentTimeMillis();
+            retain(lastRetention);
+            List<HistoryEntry> batch = new ArrayList<>(BATCH);
+            while (true) {
+                batch.clear();
+                if (buffer.drainTo(batch, BATCH) == 0) {
+                    if (!running) break;
+                    housekeeping();
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (HistoryEntry entry : batch) {
+                    append(entry);
+                }
+            }
+        } catch (Throwable t) {
+            logger.warning("[FineChat] Chat history writer stopped: " + t);
+        } finally {
+            if (active != null) active.force();
+        }
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) ids.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        Collections.sort(ids);
+
+        List<Segment> loaded = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Path file = segmentFile(ids.get(i));
+            try {
+                loaded.add(Segment.open(ids.get(i), file, i == ids.size() - 1));
+            } catch (IOException e) {
+                logger.warning("[FineChat] Skipping chat history file " + file + ": " + e.getMessage());
+            }
+        }
+
+        // Only the newest file is mapped writable; if it was skipped, start a new one
+        boolean newestLoaded = !loaded.isEmpty() && loaded.get(loaded.size() - 1).id() == ids.get(ids.size() - 1);
+        if (newestLoaded) {
+            active = loaded.get(loaded.size() - 1);
+        } else {
+            long id = ids.isEmpty() ? 1 : ids.get(ids.size() - 1) + 1;
+            active = Segment.create(id, segmentFile(id), SEGMENT_BYTES);
+            loaded.add(active);
+        }
+        segments = loaded.toArray(new Segment[0]);
+
+        // Names last: a name that can be looked up always has its lines in place
+        names.putAll(namesIn(loaded.toArray(new Segment[0])));
+        for (Segment segment : loaded) {
+            if (!segment.isEmpty()) lastTime = Math.max(lastTime, segment.lastTime());
+        }
+    }
+
+    /**
+     * @return each player's name as of their last line in the segments, by lower-cased
+     * name; where two players used one name, the one who used it later
+     */
+    private static Map<String, UUID> namesIn(Segment[] segments) {
+        Map<String, UUID> out = new HashMap<>();
+        for (Segment segment : segments) {
+            for (Map.Entry<UUID, Integer> player : segment.lastByPlayer().entrySet()) {
+                String name = segment.read(player.getValue()).getName();
+                out.put(name.toLowerCase(Locale.ROOT), player.getKey());
+            }
+        }
+        return out;
+    }
+
+    private void append(HistoryEntry entry) throws IOException {
+        // Keep time order within the store even if the clock steps back
+        long time = Math.max(entry.getTime(), lastTime);
+        lastTime = time;
+
+        byte[] name = utf8(entry.getName());
+        byte[] world = utf8(entry.getWorld());
+        byte[] message = utf8(entry.getMessage());
+        if (!active.append(time, entry.getUniqueId(), name, world, message)) {
+            roll();
+            active.append(time, entry.getUniqueId(), name, world, message);
+        }
+        names.put(entry.getName().toLowerCase(Locale.ROOT), entry.getUniqueId());
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        long id = active.id() + 1;
+        Segment next = Segment.create(id, segmentFile(id), SEGMENT_BYTES);
+        Segment[] current = segments;
+        Segment[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = next;
+        segments = grown;
+        active = next;
+    }
+
+    private void housekeeping() {
+        long now = System.currentTimeMillis();
+        warnDropped(now);
+        if (now - lastRetention < RETENTION_INTERVAL_MS) return;
+        lastRetention = now;
+        retain(now);
+    }
+
+    /**
+     * Drop the oldest segments that are past the age limit, or while the total is over
+     * the size limit. The active segment is always kept.
+     */
+    private void retain(long now) {
+        Segment[] current = segments;
+        long total = 0;
+        for (Segment segment : current) {
+            total += segment.bytes();
+        }
+
+        long retention = retentionMillis;
+        long limit = maxBytes;
+        int drop = 0;
+        while (drop < current.length - 1) {
+            Segment oldest = current[drop];
+            boolean expired = retention > 0 && (oldest.isEmpty() || oldest.lastTime() < now - retention);
+            boolean oversize = limit > 0 && total > limit;
+            if (!expired && !oversize) break;
+            total -= oldest.bytes();
+            drop++;
+        }
+
+        if (drop > 0) {
+            // Queries already running keep their snapshot; the mapping outlives the file
+            Segment[] kept = Arrays.copyOfRange(current, drop, current.length);
+            segments = kept;
+            for (int i = 0; i < drop; i++) {
+                undeleted.add(current[i].file());
+            }
+            // Forget names with no lines left, or the map grows with every name that ever chatted
+            Map<String, UUID> live = namesIn(kept);
+            names.keySet().retainAll(live.keySet());
+        }
+
+        // Windows will not delete a file while it is still mapped; retry until the
+        // mapping has been collected
+        Iterator<Path> it = undeleted.iterator();
+        while (it.hasNext()) {
+            try {
+                Files.deleteIfExists(it.next());
+                it.remove();
+            } catch (IOException ignored) {
+                // try again next time
+            }
+        }
+    }
+
+    private void warnDropped(long now) {
+        long count = dropped.get();
+        if (count == 0) return;
+        if (now - lastDropWarn < DROP_WARN_INTERVAL_MS) return;
+        lastDropWarn = now;
+        dropped.addAndGet(-count);
+        logger.warning("[FineChat] Chat history fell behind; " + count + " line(s) were not recorded");
+    }
+
+    private Path segmentFile(long id) {
+        return directory.resolve(String.format(Locale.ROOT, "segment-%08d.dat", id));
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) return new byte[0];
+        if (value.length() > MAX_CHARS) value = value.substring(0, MAX_CHARS);
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
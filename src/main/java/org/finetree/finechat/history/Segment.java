@@ -0,0 +1,316 @@
+package org.finetree.finechat.history;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One history file: a fixed-size, memory-mapped run of records, only ever appended to.
+ *
+ * Record layout (big-endian):
+ * <pre>
+ *   int   length of the whole record
+ *   long  time, epoch millis
+ *   long  sender UUID, most significant bits
+ *   long  sender UUID, least significant bits
+ *   int   offset of the sender's previous record in this segment, or -1
+ *   short name length,    name bytes (UTF-8)
+ *   short world length,   world bytes
+ *   short message length, message bytes
+ * </pre>
+ *
+ * The length is written last, so a record cut short by a crash reads as the end of the
+ * segment. Per player, the previous-record offsets chain the player's lines newest to
+ * oldest, so a player query only touches that player's records; the in-memory
+ * {@code lastByPlayer} map holds the head of each chain. A sparse time index (one entry
+ * every {@link #INDEX_STRIDE} bytes) splits the segment into blocks for time-range
+ * queries.
+ *
+ * Only the store's writer thread appends. Readers may run on any thread: they use
+ * absolute reads only and never look past {@link #end}, which is published after each
+ * record is complete.
+ */
+final class Segment {
+
+    private static final int MAGIC = 0x46434831; // "FCH1"
+    private static final int VERSION = 1;
+    // magic, version, created
+    static final int HEADER = 16;
+
+    private static final int FIXED = 4 + 8 + 8 + 8 + 4 + 2 + 2 + 2;
+    private static final int INDEX_STRIDE = 16 * 1024;
+
+    private final long id;
+    private final Path file;
+    private final MappedByteBuffer map;
+    private final int capacity;
+
+    private final Map<UUID, Integer> lastByPlayer = new ConcurrentHashMap<>();
+    private final TimeIndex index = new TimeIndex();
+
+    private volatile int end = HEADER;
+    private volatile long lastTime = Long.MIN_VALUE;
+
+    // Writer thread only
+    private int lastIndexed = -INDEX_STRIDE;
+
+    private Segment(long id, Path file, MappedByteBuffer map) {
+        this.id = id;
+        this.file = file;
+        this.map = map;
+        this.capacity = map.capacity();
+    }
+
+    /**
+     * Create a new, empty segment file of the given size.
+     */
+    static Segment create(long id, Path file, int capacity) throws IOException {
+        MappedByteBuffer map;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(capacity);
+            // The mapping stays valid after the channel is closed
+            map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        map.putInt(0, MAGIC);
+        map.putInt(4, VERSION);
+        map.putLong(8, System.currentTimeMillis());
+        return new Segment(id, file, map);
+    }
+
+    /**
+     * Map an existing segment and rebuild its indexes by scanning it once.
+     *
+     * @param writable whether records will be appended to it
+     */
+    static Segment open(long id, Path file, boolean writable) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw new IOException("unexpected size " + size);
+            }
+            map = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("not a FineChat history segment");
+        }
+
+        Segment segment = new Segment(id, file, map);
+        int pos = HEADER;
+        while (pos + FIXED <= segment.capacity) {
+            int length = map.getInt(pos);
+            if (length < FIXED || length > segment.capacity - pos || !segment.valid(pos, length)) break;
+            segment.indexed(pos, segment.uuid(pos), segment.time(pos));
+            pos += length;
+        }
+        segment.end = pos;
+        return segment;
+    }
+
+    long id() {
+        return id;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * @return bytes the segment occupies on disk
+     */
+    int bytes() {
+        return capacity;
+    }
+
+    boolean isEmpty() {
+        return end == HEADER;
+    }
+
+    long lastTime() {
+        return lastTime;
+    }
+
+    Map<UUID, Integer> lastByPlayer() {
+        return lastByPlayer;
+    }
+
+    /**
+     * Append a record. Times must not go backwards within a segment.
+     *
+     * @return false if the record does not fit; the segment is then full
+     */
+    boolean append(long time, UUID uuid, byte[] name, byte[] world, byte[] message) {
+        int pos = end;
+        int length = FIXED + name.length + world.length + message.length;
+        if (length > capacity - pos) return false;
+
+        Integer previous = lastByPlayer.get(uuid);
+        map.putLong(pos + 4, time);
+        map.putLong(pos + 12, uuid.getMostSignificantBits());
+        map.putLong(pos + 20, uuid.getLeastSignificantBits());
+        map.putInt(pos + 28, previous != null ? previous : -1);
+        int p = putBytes(pos + 32, name);
+        p = putBytes(p, world);
+        putBytes(p, message);
+        map.putInt(pos, length);
+
+        end = pos + length;
+        indexed(pos, uuid, time);
+        return true;
+    }
+
+    /**
+     * Flush written records to disk.
+     */
+    void force() {
+        map.force();
+    }
+
+    /**
+     * Add the player's records with a time of at least {@code since}, newest first.
+     *
+     * @return how many were added, at most {@code max}
+     */
+    int player(UUID uuid, long since, int max, List<HistoryEntry> newestFirst) {
+        Integer head = lastByPlayer.get(uuid);
+        int added = 0;
+        int pos = head != null ? head : -1;
+        while (pos >= 0 && added < max) {
+            if (time(pos) < since) break;
+            newestFirst.add(read(pos));
+            added++;
+            pos = map.getInt(pos + 28);
+        }
+        return added;
+    }
+
+    /**
+     * Prepend the newest records with a time of at least {@code since}, keeping the
+     * deque in time order, until it holds {@code max}.
+     *
+     * Works back from the end one index block at a time, so only the blocks holding
+     * the lines returned are scanned, however wide the time range.
+     */
+    void range(long since, int max, Deque<HistoryEntry> out) {
+        int limit = end;
+        int blockEnd = limit;
+        int[] found = new int[64];
+        for (int b = index.size() - 1; b >= 0 && out.size() < max; b--) {
+            int blockStart = index.offset(b);
+            if (blockStart >= limit) continue;
+
+            int count = 0;
+            for (int pos = blockStart; pos < blockEnd; pos += map.getInt(pos)) {
+                if (time(pos) < since) continue;
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = pos;
+            }
+            for (int i = count - 1; i >= 0 && out.size() < max; i--) {
+                out.addFirst(read(found[i]));
+            }
+
+            // Every earlier block is older than this one's first record
+            if (index.time(b) < since) break;
+            blockEnd = blockStart;
+        }
+    }
+
+    HistoryEntry read(int pos) {
+        int p = pos + 32;
+        int nameLength = map.getShort(p) & 0xFFFF;
+        String name = string(p + 2, nameLength);
+        p += 2 + nameLength;
+        int worldLength = map.getShort(p) & 0xFFFF;
+        String world = string(p + 2, worldLength);
+        p += 2 + worldLength;
+        int messageLength = map.getShort(p) & 0xFFFF;
+        String message = string(p + 2, messageLength);
+        return new HistoryEntry(time(pos), uuid(pos), name, world, message);
+    }
+
+    private void indexed(int pos, UUID uuid, long time) {
+        // After the record is complete: a reader that finds this offset can read it
+        lastByPlayer.put(uuid, pos);
+        if (pos - lastIndexed >= INDEX_STRIDE) {
+            index.add(time, pos);
+            lastIndexed = pos;
+        }
+        lastTime = time;
+    }
+
+    private boolean valid(int pos, int length) {
+        int p = pos + 32;
+        for (int i = 0; i < 3; i++) {
+            if (p + 2 > pos + length) return false;
+            p += 2 + (map.getShort(p) & 0xFFFF);
+        }
+        return p == pos + length;
+    }
+
+    private long time(int pos) {
+        return map.getLong(pos + 4);
+    }
+
+    private UUID uuid(int pos) {
+        return new UUID(map.getLong(pos + 12), map.getLong(pos + 20));
+    }
+
+    private int putBytes(int p, byte[] bytes) {
+        map.putShort(p, (short) bytes.length);
+        map.put(p + 2, bytes);
+        return p + 2 + bytes.length;
+    }
+
+    private String string(int p, int length) {
+        byte[] bytes = new byte[length];
+        map.get(p, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * (time, offset) pairs in time order. One writer appends; readers take the size
+     * first, and a grown array always holds the entries the old one did. Entry 0 is
+     * always the first record.
+     */
+    private static final class TimeIndex {
+
+        private volatile long[] times = new long[64];
+        private volatile int[] offsets = new int[64];
+        private volatile int size;
+
+        void add(long time, int offset) {
+            int n = size;
+            if (n == times.length) {
+                times = Arrays.copyOf(times, n * 2);
+                offsets = Arrays.copyOf(offsets, n * 2);
+            }
+            times[n] = time;
+            offsets[n] = offset;
+            size = n + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long time(int i) {
+            return times[i];
+        }
+
+        int offset(int i) {
+            return offsets[i];
+        }
+    }
+}
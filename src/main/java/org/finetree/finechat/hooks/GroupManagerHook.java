@@ -2,70 +2,212 @@ package org.finetree.finechat.hooks;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
 import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.meta.MetaProvider;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Optional GroupManager hook.
  *
  * Uses reflection so the plugin can still load/run when GroupManager isn't installed.
+ * The reflective lookups happen once, when GroupManager is (re)enabled, and are kept
+ * as MethodHandles; per-message calls never search for methods or plugins.
  */
-public class GroupManagerHook {
+public class GroupManagerHook implements Listener, MetaProvider {
+
+    private static final String PLUGIN_NAME = "GroupManager";
+
+    // GroupManager fires these after user, group and whole-world (reload/save) changes
+    private static final String[] DATA_CHANGE_EVENTS = {
+            "org.anjocaido.groupmanager.events.GMUserEvent",
+            "org.anjocaido.groupmanager.events.GMGroupEvent",
+            "org.anjocaido.groupmanager.events.GMSystemEvent"
+    };
+
+    private static final MethodType HOLDER_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(Object.class, Object.class, Player.class);
+    private static final MethodType META_TYPE = MethodType.methodType(Object.class, Object.class, String.class);
 
     private final Plugin plugin;
 
+    // null while GroupManager is absent/disabled
+    private volatile Binding binding;
+
+    private final List<Runnable> dataChangeCallbacks = new CopyOnWriteArrayList<>();
+    private final Set<Class<?>> subscribedEvents = ConcurrentHashMap.newKeySet();
+    private final Listener dataChangeListener = new Listener() {};
+
     public GroupManagerHook(Plugin plugin) {
         this.plugin = plugin;
     }
 
+    /**
+     * Bind to GroupManager if it is already enabled, and listen for it being
+     * enabled/disabled later so the handles follow it.
+     *
+     * @return true if GroupManager is present now.
+     */
+    public boolean register() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        Plugin gm = Bukkit.getPluginManager().getPlugin(PLUGIN_NAME);
+        return gm != null && gm.isEnabled() && bind(gm);
+    }
+
     /**
      * @return true if GroupManager plugin is installed and enabled.
      */
     public boolean isPresent() {
+        return binding != null;
+    }
+
+    /**
+     * Run the callback whenever GroupManager reports a data change, and when
+     * GroupManager itself is enabled or disabled.
+     * Event classes are looked up by name so nothing links against GroupManager.
+     */
+    public void onDataChange(Runnable callback) {
+        dataChangeCallbacks.add(callback);
+        if (isPresent()) subscribeDataEvents();
+    }
+
+    @Override
+    public String getName() {
+        return PLUGIN_NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return isPresent();
+    }
+
+    @Override
+    public String getPrefix(Player player) {
+        Binding b = binding;
+        return b == null ? null : b.userMeta(player, b.userPrefix);
+    }
+
+    @Override
+    public String getSuffix(Player player) {
+        Binding b = binding;
+        return b == null ? null : b.userMeta(player, b.userSuffix);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        if (!PLUGIN_NAME.equals(event.getPlugin().getName())) return;
+        if (bind(event.getPlugin())) {
+            plugin.getLogger().info("[FineChat] Hooked GroupManager");
+            subscribeDataEvents();
+            fireDataChange();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        if (!PLUGIN_NAME.equals(event.getPlugin().getName())) return;
+        binding = null;
+        fireDataChange();
+    }
+
+    /**
+     * Resolve the GroupManager API on the given instance.
+     * Package-private so benchmarks can bind a stand-in object.
+     *
+     * @return true if every method was found
+     */
+    boolean bind(Object groupManager) {
         try {
-            Plugin gm = Bukkit.getPluginManager().getPlugin("GroupManager");
-            return gm != null && gm.isEnabled();
+            binding = new Binding(groupManager);
+            return true;
         } catch (Throwable t) {
+            binding = null;
+            plugin.getLogger().warning("[FineChat] GroupManager found but its API could not be bound: " + t);
             return false;
         }
     }
 
-    public String getPrefix(Player player) {
-        return getUserMeta(player, "getUserPrefix");
+    private void subscribeDataEvents() {
+        for (String name : DATA_CHANGE_EVENTS) {
+            try {
+                Class<? extends Event> type = Class.forName(name).asSubclass(Event.class);
+                if (!subscribedEvents.add(type)) continue;
+                Bukkit.getPluginManager().registerEvent(type, dataChangeListener, EventPriority.MONITOR, (l, event) -> {
+                    if (type.isInstance(event)) fireDataChange();
+                }, plugin);
+            } catch (Throwable ignored) {
+                // older/newer GroupManager without this event
+            }
+        }
     }
 
-    public String getSuffix(Player player) {
-        return getUserMeta(player, "getUserSuffix");
+    private void fireDataChange() {
+        for (Runnable callback : dataChangeCallbacks) {
+            callback.run();
+        }
     }
 
-    private String getUserMeta(Player player, String handlerMethodName) {
-        if (player == null) return null;
+    /**
+     * GroupManager#getWorldsHolder() -> WorldsHolder#getWorldPermissions(Player)
+     * -> AnjoPermissionsHandler#getUserPrefix/getUserSuffix(String), resolved once
+     * against the declared types and adapted to Object signatures for invokeExact.
+     */
+    private static final class Binding {
 
-        try {
-            Plugin gm = Bukkit.getPluginManager().getPlugin("GroupManager");
-            if (gm == null || !gm.isEnabled()) return null;
+        private final MethodHandle worldsHolder;
+        private final MethodHandle worldPermissions;
+        private final MethodHandle userPrefix;
+        private final MethodHandle userSuffix;
 
-            // GroupManager#getWorldsHolder()
-            Object worldsHolder = gm.getClass().getMethod("getWorldsHolder").invoke(gm);
-            if (worldsHolder == null) return null;
+        Binding(Object groupManager) throws ReflectiveOperationException {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
 
-            // WorldsHolder#getWorldPermissions(Player)
-            Object handler = worldsHolder.getClass()
-                    .getMethod("getWorldPermissions", Player.class)
-                    .invoke(worldsHolder, player);
+            Method getWorldsHolder = groupManager.getClass().getMethod("getWorldsHolder");
+            MethodHandle holder = lookup.unreflect(getWorldsHolder);
+            // Static in newer GroupManager builds, an instance method in older ones
+            if (!Modifier.isStatic(getWorldsHolder.getModifiers())) {
+                holder = holder.bindTo(groupManager);
+            }
+            this.worldsHolder = holder.asType(HOLDER_TYPE);
 
-            if (handler == null) return null;
+            Method getWorldPermissions = getWorldsHolder.getReturnType().getMethod("getWorldPermissions", Player.class);
+            this.worldPermissions = lookup.unreflect(getWorldPermissions).asType(HANDLER_TYPE);
 
-            // AnjoPermissionsHandler#getUserPrefix(String) or #getUserSuffix(String)
-            Object meta = handler.getClass()
-                    .getMethod(handlerMethodName, String.class)
-                    .invoke(handler, player.getName());
+            Class<?> handlerType = getWorldPermissions.getReturnType();
+            this.userPrefix = lookup.unreflect(handlerType.getMethod("getUserPrefix", String.class)).asType(META_TYPE);
+            this.userSuffix = lookup.unreflect(handlerType.getMethod("getUserSuffix", String.class)).asType(META_TYPE);
+        }
 
-            if (meta == null) return null;
+        String userMeta(Player player, MethodHandle metaHandle) {
+            if (player == null) return null;
 
-            return String.valueOf(meta);
-        } catch (Throwable t) {
-            // silent fail; let other hooks handle it
-            return null;
+            try {
+                Object holder = (Object) worldsHolder.invokeExact();
+                if (holder == null) return null;
+
+                Object handler = (Object) worldPermissions.invokeExact(holder, player);
+                if (handler == null) return null;
+
+                Object meta = (Object) metaHandle.invokeExact(handler, player.getName());
+                return meta == null ? null : String.valueOf(meta);
+            } catch (Throwable t) {
+                // silent fail; let other hooks handle it
+                return null;
+            }
         }
     }
 }
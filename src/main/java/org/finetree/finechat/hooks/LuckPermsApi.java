@@ -0,0 +1,54 @@
+package org.finetree.finechat.hooks;
+
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.cacheddata.CachedMetaData;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import net.luckperms.api.model.user.User;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Everything that touches the LuckPerms API. Only loaded once LuckPerms is enabled,
+ * so {@link LuckPermsHook} (a listener Bukkit reflects over) never names its types.
+ */
+final class LuckPermsApi {
+
+    private final LuckPerms luckPerms;
+
+    private LuckPermsApi(LuckPerms luckPerms) {
+        this.luckPerms = luckPerms;
+    }
+
+    /**
+     * @return the API, or null if LuckPerms hasn't registered it
+     */
+    static LuckPermsApi load() {
+        LuckPerms loaded = Bukkit.getServicesManager().load(LuckPerms.class);
+        return loaded != null ? new LuckPermsApi(loaded) : null;
+    }
+
+    void subscribe(Plugin plugin, Consumer<UUID> listener) {
+        luckPerms.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class,
+                event -> listener.accept(event.getUser().getUniqueId()));
+    }
+
+    String getPrefix(UUID uuid) {
+        CachedMetaData meta = meta(uuid);
+        String prefix = meta != null ? meta.getPrefix() : null;
+        return prefix == null ? "" : prefix;
+    }
+
+    String getSuffix(UUID uuid) {
+        CachedMetaData meta = meta(uuid);
+        String suffix = meta != null ? meta.getSuffix() : null;
+        return suffix == null ? "" : suffix;
+    }
+
+    private CachedMetaData meta(UUID uuid) {
+        User user = luckPerms.getUserManager().getUser(uuid);
+        return user != null ? user.getCachedData().getMetaData() : null;
+    }
+}
@@ -1,23 +1,56 @@
 package org.finetree.finechat.hooks;
 
-import net.luckperms.api.LuckPerms;
-import net.luckperms.api.cacheddata.CachedMetaData;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
 import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.meta.MetaProvider;
 
-public class LuckPermsHook {
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
-    private LuckPerms api;
+/**
+ * LuckPerms meta prefixes/suffixes. Binds when LuckPerms is enabled (now or later)
+ * and lets go when it is disabled; recalculate listeners are re-subscribed on every bind.
+ *
+ * LuckPerms is only a soft dependency: this class never names a LuckPerms type, or
+ * Bukkit could not reflect over it to register the listeners. {@link LuckPermsApi}
+ * holds them.
+ */
+public class LuckPermsHook implements Listener, MetaProvider {
+
+    private static final String PLUGIN_NAME = "LuckPerms";
+
+    private Plugin plugin;
+    private volatile LuckPermsApi api;
+
+    private final List<Consumer<UUID>> recalculateListeners = new CopyOnWriteArrayList<>();
 
     public boolean setup(Plugin plugin) {
+        this.plugin = plugin;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        return bind();
+    }
+
+    private boolean bind() {
         try {
-            api = Bukkit.getServicesManager().load(LuckPerms.class);
-            if (api != null) {
-                plugin.getLogger().info("[FineChat] Hooked LuckPerms API");
-                return true;
+            LuckPermsApi loaded = LuckPermsApi.load();
+            if (loaded == null) return false;
+            api = loaded;
+            plugin.getLogger().info("[FineChat] Hooked LuckPerms API");
+            for (Consumer<UUID> listener : recalculateListeners) {
+                loaded.subscribe(plugin, listener);
             }
-        } catch (Throwable ignored) {}
+            return true;
+        } catch (Throwable ignored) {
+            // LuckPerms API classes not present
+        }
         return false;
     }
 
@@ -25,21 +58,47 @@ public class LuckPermsHook {
         return api != null;
     }
 
+    /**
+     * Call the listener with a user's UUID whenever LuckPerms recalculates their
+     * cached data (permission, group or meta change). Kept across LuckPerms reloads.
+     */
+    public void onUserRecalculate(Consumer<UUID> listener) {
+        recalculateListeners.add(listener);
+        LuckPermsApi current = api;
+        if (current != null) current.subscribe(plugin, listener);
+    }
+
+    @Override
+    public String getName() {
+        return PLUGIN_NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return api != null;
+    }
+
+    @Override
     public String getPrefix(Player player) {
-        if (api == null || player == null) return "";
-        var user = api.getUserManager().getUser(player.getUniqueId());
-        if (user == null) return "";
-        CachedMetaData meta = user.getCachedData().getMetaData();
-        String prefix = meta.getPrefix();
-        return prefix == null ? "" : prefix;
+        LuckPermsApi lp = api;
+        if (lp == null || player == null) return "";
+        return lp.getPrefix(player.getUniqueId());
     }
 
+    @Override
     public String getSuffix(Player player) {
-        if (api == null || player == null) return "";
-        var user = api.getUserManager().getUser(player.getUniqueId());
-        if (user == null) return "";
-        CachedMetaData meta = user.getCachedData().getMetaData();
-        String suffix = meta.getSuffix();
-        return suffix == null ? "" : suffix;
+        LuckPermsApi lp = api;
+        if (lp == null || player == null) return "";
+        return lp.getSuffix(player.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        if (PLUGIN_NAME.equals(event.getPlugin().getName()) && api == null) bind();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        if (PLUGIN_NAME.equals(event.getPlugin().getName())) api = null;
     }
 }
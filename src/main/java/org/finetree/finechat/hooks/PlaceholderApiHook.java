@@ -3,17 +3,79 @@ package org.finetree.finechat.hooks;
 import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.plugin.Plugin;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
-public class PlaceholderApiHook {
+public class PlaceholderApiHook implements Listener {
 
-    // Matches tokens like %something_here% (works even when adjacent: %a%%b%)
-    private static final Pattern PLACEHOLDER_TOKEN = Pattern.compile("%[^%]+%");
+    private static final String PLUGIN_NAME = "PlaceholderAPI";
+
+    // Expansions may return new placeholders; re-scan at most this many times
+    private static final int MAX_PASSES = 3;
+
+    // Resolves a single token; PlaceholderAPI itself, or a stand-in in benchmarks
+    private final BiFunction<Player, String, String> placeholders;
+
+    private volatile boolean hooked;
+
+    // token -> ttl in nanos, for placeholders configured as slow-changing
+    private volatile Map<String, Long> ttls = Map.of();
+
+    // token -> (player -> cached value)
+    private final Map<String, Map<UUID, Cached>> cache = new ConcurrentHashMap<>();
+
+    public PlaceholderApiHook() {
+        this.placeholders = PlaceholderApiHook::setPlaceholders;
+    }
+
+    /**
+     * Already hooked, resolving tokens through the given function instead of
+     * PlaceholderAPI. Lets benchmarks run without a server.
+     */
+    PlaceholderApiHook(BiFunction<Player, String, String> placeholders) {
+        this.placeholders = placeholders;
+        this.hooked = true;
+    }
+
+    public void setup(Plugin plugin) {
+        hooked = Bukkit.getPluginManager().getPlugin(PLUGIN_NAME) != null;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        if (hooked) {
+            plugin.getLogger().info("[FineChat] Hooked PlaceholderAPI");
+        }
+    }
 
     public boolean isHooked() {
-        return Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null;
+        return hooked;
+    }
+
+    /**
+     * Cache these placeholders per player for the given number of seconds instead of
+     * asking PlaceholderAPI on every message. Meant for slow-changing values such as
+     * rank or balance. Replaces any previous configuration.
+     */
+    public void setCacheSeconds(Map<String, Integer> secondsByToken) {
+        Map<String, Long> next = new HashMap<>();
+        if (secondsByToken != null) {
+            for (var e : secondsByToken.entrySet()) {
+                if (e.getKey() == null || e.getValue() == null || e.getValue() <= 0) continue;
+                next.put(e.getKey(), TimeUnit.SECONDS.toNanos(e.getValue()));
+            }
+        }
+        ttls = Map.copyOf(next);
+        cache.clear();
     }
 
     /**
@@ -24,42 +86,137 @@ public class PlaceholderApiHook {
      */
     public String apply(Player player, String input) {
         if (input == null) return "";
-        if (player == null) return input;
-        if (!isHooked()) return input;
+        if (player == null || !hooked || input.indexOf('%') < 0) return input;
+        return resolve(player, input, new HashMap<>());
+    }
+
+    /**
+     * Resolve placeholders in the format segments (in place) and, if given, the
+     * message. Every distinct token is resolved at most once across all of them,
+     * so a format using %vault_rank% twice costs one PlaceholderAPI call.
+     * Strings without a '%' are never handed to PlaceholderAPI.
+     *
+     * @param message the player's message, or null to leave it out
+     * @return the resolved message (null if message was null)
+     */
+    public String applyAll(Player player, String[] segments, String message) {
+        if (player == null || !hooked) return message;
+
+        Map<String, String> resolved = null;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment == null || segment.indexOf('%') < 0) continue;
+            if (resolved == null) resolved = new HashMap<>();
+            segments[i] = resolve(player, segment, resolved);
+        }
+
+        if (message == null || message.indexOf('%') < 0) return message;
+        return resolve(player, message, resolved == null ? new HashMap<>() : resolved);
+    }
 
+    private String resolve(Player player, String input, Map<String, String> resolved) {
         String out = input;
 
         // A couple passes handles nested/returned placeholders without risking infinite loops
-        for (int pass = 0; pass < 3; pass++) {
-            Matcher m = PLACEHOLDER_TOKEN.matcher(out);
-            if (!m.find()) break;
-
-            m.reset();
-            StringBuffer sb = new StringBuffer(out.length());
-
-            while (m.find()) {
-                String token = m.group(); // e.g. "%player_name%"
-                String replaced;
-                try {
-                    // Replace JUST this token
-                    replaced = PlaceholderAPI.setPlaceholders(player, token);
-                    Bukkit.getServer().getLogger().info(token + " " + replaced);
-                } catch (Throwable t) {
-                    replaced = token;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            StringBuilder sb = null;
+            boolean producedPercent = false;
+            int copied = 0;
+
+            int start = out.indexOf('%');
+            while (start >= 0) {
+                int end = out.indexOf('%', start + 1);
+                if (end < 0) break;
+                if (end == start + 1) { // "%%" is not a token; the second '%' may open one
+                    start = end;
+                    continue;
                 }
-                if (replaced == null) replaced = token;
 
-                m.appendReplacement(sb, Matcher.quoteReplacement(replaced));
-            }
+                String token = out.substring(start, end + 1); // e.g. "%player_name%"
+                String replaced = resolved.get(token);
+                if (replaced == null) {
+                    replaced = lookup(player, token);
+                    resolved.put(token, replaced);
+                }
 
-            m.appendTail(sb);
-            String next = sb.toString();
+                if (!replaced.equals(token)) {
+                    if (sb == null) sb = new StringBuilder(out.length() + 16);
+                    sb.append(out, copied, start).append(replaced);
+                    copied = end + 1;
+                    if (replaced.indexOf('%') >= 0) producedPercent = true;
+                }
+                start = out.indexOf('%', end + 1);
+            }
 
             // Stabilized
-            if (next.equals(out)) break;
-            out = next;
+            if (sb == null) break;
+            sb.append(out, copied, out.length());
+            out = sb.toString();
+
+            // Only a replacement that introduced '%' can create a new token
+            if (!producedPercent) break;
         }
 
         return out;
     }
+
+    private String lookup(Player player, String token) {
+        Long ttl = ttls.get(token);
+        if (ttl == null) return placeholder(player, token);
+
+        Map<UUID, Cached> perPlayer = cache.computeIfAbsent(token, t -> new ConcurrentHashMap<>());
+        long now = System.nanoTime();
+        Cached cached = perPlayer.get(player.getUniqueId());
+        if (cached != null && now - cached.resolvedAt < ttl) return cached.value;
+
+        String value = placeholder(player, token);
+        perPlayer.put(player.getUniqueId(), new Cached(value, now));
+        return value;
+    }
+
+    private String placeholder(Player player, String token) {
+        try {
+            // Replace JUST this token
+            String replaced = placeholders.apply(player, token);
+            return replaced == null ? token : replaced;
+        } catch (Throwable t) {
+            return token;
+        }
+    }
+
+    // A method of our own, so PlaceholderAPI classes are only loaded once a token is resolved
+    private static String setPlaceholders(Player player, String token) {
+        return PlaceholderAPI.setPlaceholders(player, token);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        for (Map<UUID, Cached> perPlayer : cache.values()) {
+            perPlayer.remove(uuid);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        if (PLUGIN_NAME.equals(event.getPlugin().getName())) hooked = true;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        if (PLUGIN_NAME.equals(event.getPlugin().getName())) {
+            hooked = false;
+            cache.clear();
+        }
+    }
+
+    private static final class Cached {
+        final String value;
+        final long resolvedAt;
+
+        Cached(String value, long resolvedAt) {
+            this.value = value;
+            this.resolvedAt = resolvedAt;
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package org.finetree.finechat.hooks;
+
+import net.milkbowl.vault.chat.Chat;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+/**
+ * Everything that touches Vault's Chat type. Only loaded once Vault is known to be
+ * there, so {@link VaultChatHook} (a listener Bukkit reflects over) never names it.
+ */
+final class VaultChat {
+
+    static final String SERVICE = "net.milkbowl.vault.chat.Chat";
+
+    private final Chat chat;
+
+    private VaultChat(Chat chat) {
+        this.chat = chat;
+    }
+
+    /**
+     * @param leaving a provider being unregistered, never to be picked
+     * @return the registered Chat provider, or null if there is none
+     */
+    static VaultChat lookup(Object leaving) {
+        var rsp = Bukkit.getServicesManager().getRegistration(Chat.class);
+        if (rsp == null || rsp.getProvider() == leaving) return null;
+        return new VaultChat(rsp.getProvider());
+    }
+
+    boolean sameProvider(VaultChat other) {
+        return other != null && other.chat == chat;
+    }
+
+    String getName() {
+        return chat.getName();
+    }
+
+    String getPrefix(Player player) {
+        String prefix = chat.getPlayerPrefix(player);
+        return prefix == null ? "" : prefix;
+    }
+
+    String getSuffix(Player player) {
+        String suffix = chat.getPlayerSuffix(player);
+        return suffix == null ? "" : suffix;
+    }
+}
@@ -1,40 +1,100 @@
 package org.finetree.finechat.hooks;
 
-import net.milkbowl.vault.chat.Chat;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.ServiceRegisterEvent;
+import org.bukkit.event.server.ServiceUnregisterEvent;
 import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.meta.MetaProvider;
 
-public class VaultChatHook {
+/**
+ * Vault Chat prefixes/suffixes. The Chat service is looked up again whenever a Chat
+ * provider registers or unregisters, so a permissions plugin enabled after FineChat
+ * is still picked up.
+ *
+ * Vault is only a soft dependency: this class never names a Vault type, or Bukkit
+ * could not reflect over it to register the listeners. {@link VaultChat} holds them.
+ */
+public class VaultChatHook implements Listener, MetaProvider {
 
-    private Chat chat;
+    private Plugin plugin;
+    private volatile VaultChat chat;
 
     public boolean setup(Plugin plugin) {
-        if (Bukkit.getPluginManager().getPlugin("Vault") == null) {
-            return false;
-        }
-        var rsp = Bukkit.getServicesManager().getRegistration(Chat.class);
-        if (rsp == null) {
-            return false;
-        }
-        chat = rsp.getProvider();
-        plugin.getLogger().info("[FineChat] Hooked Vault Chat: " + chat.getName());
-        return true;
+        this.plugin = plugin;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        return bind();
     }
 
     public boolean isHooked() {
         return chat != null;
     }
 
+    private boolean bind() {
+        return bind(null);
+    }
+
+    /**
+     * @param leaving a provider being unregistered, never to be picked
+     */
+    private boolean bind(Object leaving) {
+        VaultChat next = Bukkit.getPluginManager().getPlugin("Vault") != null ? VaultChat.lookup(leaving) : null;
+
+        VaultChat previous = chat;
+        chat = next;
+        if (next != null && !next.sameProvider(previous)) {
+            plugin.getLogger().info("[FineChat] Hooked Vault Chat: " + next.getName());
+        }
+        return next != null;
+    }
+
+    @Override
+    public String getName() {
+        return "Vault";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return chat != null;
+    }
+
+    // Vault has no change events
+    @Override
+    public boolean requiresRefresh() {
+        return true;
+    }
+
+    @Override
     public String getPrefix(Player player) {
-        if (chat == null || player == null) return "";
-        String prefix = chat.getPlayerPrefix(player);
-        return prefix == null ? "" : prefix;
+        VaultChat c = chat;
+        if (c == null || player == null) return "";
+        return c.getPrefix(player);
     }
 
+    @Override
     public String getSuffix(Player player) {
-        if (chat == null || player == null) return "";
-        String suffix = chat.getPlayerSuffix(player);
-        return suffix == null ? "" : suffix;
+        VaultChat c = chat;
+        if (c == null || player == null) return "";
+        return c.getSuffix(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceRegister(ServiceRegisterEvent event) {
+        if (isChatService(event.getProvider().getService())) bind();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceUnregister(ServiceUnregisterEvent event) {
+        if (isChatService(event.getProvider().getService())) {
+            bind(event.getProvider().getProvider());
+        }
+    }
+
+    // By name: Chat.class here would fail to resolve on servers without Vault
+    private static boolean isChatService(Class<?> service) {
+        return service.getName().equals(VaultChat.SERVICE);
     }
 }
@@ -0,0 +1,110 @@
+package org.finetree.finechat.log;
+
+import org.finetree.finechat.chat.ChatSnapshot;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Where formatted chat goes besides the recipients: the chat log file and,
+ * optionally, the console.
+ *
+ * {@link #log} runs on the chat workers and only enqueues: a record into the
+ * writer's ring buffer and a line for the next tick's console batch. All file I/O
+ * happens on the writer thread.
+ */
+public class ChatLog {
+
+    // How long shutdown waits for queued lines to be written
+    private static final long STOP_TIMEOUT_MS = 2000L;
+
+    private final Path directory;
+    private final Logger logger;
+    private final ConsoleEcho console;
+
+    private volatile ChatLogWriter writer;
+    // Stopped, but its thread outlived the timeout and may still have the file open
+    private ChatLogWriter stopping;
+    private volatile boolean echo;
+    private int writerCapacity;
+
+    public ChatLog(Path directory, PlatformScheduler scheduler, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+        this.console = new ConsoleEcho(scheduler);
+    }
+
+    public void start(ChatSettings settings) {
+        apply(settings);
+    }
+
+    /**
+     * Settings were reloaded. Format, rotation and gzip apply to the next line; a new
+     * buffer size restarts the writer.
+     */
+    public void reload(ChatSettings settings) {
+        apply(settings);
+    }
+
+    /**
+     * Write out what is queued, to the file and the console, and close the log.
+     */
+    public synchronized void stop() {
+        console.stop();
+        stopWriter();
+    }
+
+    public void log(ChatSnapshot sender, String rawMessage, String formatted) {
+        if (echo) console.add(formatted);
+
+        ChatLogWriter w = writer;
+        if (w != null) {
+            w.submit(new ChatLogRecord(System.currentTimeMillis(), sender.getUniqueId(), sender.getName(),
+                    sender.getWorldName(), rawMessage, formatted));
+        }
+    }
+
+    private synchronized void apply(ChatSettings settings) {
+        echo = settings.isChatLogConsole();
+
+        if (!settings.isChatLogEnabled()) {
+            stopWriter();
+            return;
+        }
+
+        ChatLogWriter.Format format = ChatLogWriter.Format.parse(settings.getChatLogFormat());
+        ChatLogWriter current = writer;
+        if (current != null && writerCapacity == settings.getChatLogBufferSize()) {
+            current.configure(format, settings.getChatLogMaxBytes(), settings.isChatLogGzip());
+            return;
+        }
+
+        // Only one writer may have the file open
+        stopWriter();
+        if (stopping != null) {
+            if (!stopping.stop(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warning("[FineChat] The chat log stays off until the previous writer has stopped; reload again later");
+                return;
+            }
+            stopping = null;
+        }
+        ChatLogWriter next = new ChatLogWriter(settings.getChatLogBufferSize(), directory, logger,
+                format, settings.getChatLogMaxBytes(), settings.isChatLogGzip());
+        next.start();
+        writerCapacity = settings.getChatLogBufferSize();
+        writer = next;
+    }
+
+    private void stopWriter() {
+        ChatLogWriter current = writer;
+        if (current == null) return;
+        writer = null;
+        if (!current.stop(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            stopping = current;
+            logger.warning("[FineChat] Chat log writer did not stop within " + STOP_TIMEOUT_MS + " ms");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.finetree.finechat.log;
+
+import java.util.UUID;
+
+/**
+ * One chat line as handed to the log writer. The formatted line is stripped of
+ * colour on the writer thread, not the chat thread.
+ */
+final class ChatLogRecord {
+
+    final long time;
+    final UUID uuid;
+    final String name;
+    final String world;
+    final String raw;
+    final String formatted;
+
+    ChatLogRecord(long time, UUID uuid, String name, String world, String raw, String formatted) {
+        this.time = time;
+        this.uuid = uuid;
+        this.name = name;
+        this.world = world;
+        this.raw = raw;
+        this.formatted = formatted;
+    }
+}
@@ -0,0 +1,289 @@
+package org.finetree.finechat.log;
+
+import org.finetree.finechat.util.ColorUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Drains the chat log ring buffer on one thread and appends the records to
+ * {@code chat.log} in batches through a FileChannel.
+ *
+ * The active file is rolled to {@code chat-<date>.<n>.log} when the day changes or it
+ * would pass the size limit, and optionally gzipped afterwards, still on this thread.
+ */
+final class ChatLogWriter implements Runnable {
+
+    public enum Format {
+        PLAIN, JSONL;
+
+        static Format parse(String value) {
+            return value != null && value.trim().equalsIgnoreCase("JSONL") ? JSONL : PLAIN;
+        }
+    }
+
+    private static final int BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long DROP_WARN_INTERVAL_MS = 60_000L;
+    private static final DateTimeFormatter PLAIN_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final RingBuffer<ChatLogRecord> buffer;
+    private final Path directory;
+    private final Path active;
+    private final Logger logger;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile Format format;
+    private volatile long maxBytes;
+    private volatile boolean gzip;
+    private volatile boolean running = true;
+    private volatile Thread thread;
+
+    // Writer thread only
+    private FileChannel channel;
+    private long size;
+    private LocalDate day;
+    private long lastDropWarn;
+
+    ChatLogWriter(int capacity, Path directory, Logger logger, Format format, long maxBytes, boolean gzip) {
+        this.buffer = new RingBuffer<>(capacity);
+        this.directory = directory;
+        this.active = directory.resolve("chat.log");
+        this.logger = logger;
+        configure(format, maxBytes, gzip);
+    }
+
+    void configure(Format format, long maxBytes, boolean gzip) {
+        this.format = format;
+        this.maxBytes = maxBytes;
+        this.gzip = gzip;
+    }
+
+    void start() {
+        Thread t = new Thread(this, "FineChat-ChatLog");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+     * Queue a record. Never blocks; if the writer has fallen a full buffer behind the
+     * record is dropped and counted.
+     */
+    void submit(ChatLogRecord record) {
+        if (!buffer.offer(record)) dropped.incrementAndGet();
+    }
+
+    /**
+     * Write what is queued, close the file and stop the thread. Safe to call again to
+     * keep waiting.
+     *
+     * @return false if the thread is still running when the timeout is up
+     */
+    boolean stop(long timeout, TimeUnit unit) {
+        running = false;
+        Thread t = thread;
+        if (t == null) return true;
+        LockSupport.unpark(t);
+        try {
+            t.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !t.isAlive();
+    }
+
+    @Override
+    public void run() {
+        List<ChatLogRecord> batch = new ArrayList<>(BATCH);
+        StringBuilder text = new StringBuilder(BATCH * 128);
+        try {
+            open();
+            while (true) {
+                batch.clear();
+                if (buffer.drainTo(batch, BATCH) == 0) {
+                    if (!running) break;
+                    warnDropped();
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                write(batch, text);
+            }
+        } catch (Throwable t) {
+            logger.warning("[FineChat] Chat log writer stopped: " + t);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void write(List<ChatLogRecord> batch, StringBuilder text) throws IOException {
+        text.setLength(0);
+        for (ChatLogRecord record : batch) {
+            LocalDate recordDay = Instant.ofEpochMilli(record.time).atZone(zone).toLocalDate();
+            int before = text.length();
+            append(text, record);
+
+            // Roll before this record if it starts a new day or would pass the size limit
+            long pending = text.length(); // chars; close enough to bytes for a size limit
+            long limit = maxBytes;
+            boolean newDay = !recordDay.equals(day);
+            if (newDay || (limit > 0 && size + pending > limit && size + before > 0)) {
+                String line = text.substring(before);
+                text.setLength(before);
+                flush(text);
+                text.setLength(0);
+                roll(recordDay);
+                text.append(line);
+            }
+        }
+        flush(text);
+    }
+
+    private void flush(CharSequence text) throws IOException {
+        if (text.length() == 0) return;
+        ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            size += channel.write(bytes);
+        }
+    }
+
+    private void append(StringBuilder out, ChatLogRecord record) {
+        String stripped = ColorUtil.stripColors(record.formatted);
+        if (format == Format.JSONL) {
+            out.append("{\"time\":\"").append(Instant.ofEpochMilli(record.time)).append('"');
+            out.append(",\"uuid\":\"").append(record.uuid).append('"');
+            out.append(",\"name\":"); json(out, record.name);
+            out.append(",\"world\":"); json(out, record.world);
+            out.append(",\"message\":"); json(out, record.raw);
+            out.append(",\"line\":"); json(out, stripped);
+            out.append("}\n");
+        } else {
+            out.append('[').append(PLAIN_TIME.format(Instant.ofEpochMilli(record.time).atZone(zone))).append("] ");
+            out.append('[').append(record.world).append("] ");
+            out.append(record.name).append(" (").append(record.uuid).append("): ");
+            out.append(stripped).append('\n');
+        }
+    }
+
+    private static void json(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    // === Files ===
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        if (Files.exists(active)) {
+            // Left over from an earlier day: roll it before appending today's lines
+            LocalDate modified = Files.getLastModifiedTime(active).toInstant().atZone(zone).toLocalDate();
+            LocalDate today = LocalDate.now(zone);
+            if (!modified.equals(today) && Files.size(active) > 0) {
+                rollFile(modified);
+            }
+        }
+        channel = FileChannel.open(active, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        day = LocalDate.now(zone);
+    }
+
+    private void roll(LocalDate nextDay) throws IOException {
+        if (size > 0) {
+            closeQuietly();
+            rollFile(day);
+            channel = FileChannel.open(active, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            size = channel.size();
+        }
+        day = nextDay;
+    }
+
+    private void rollFile(LocalDate fileDay) throws IOException {
+        Path rolled = nextFreeName(fileDay);
+        Files.move(active, rolled);
+        if (gzip) gzip(rolled);
+    }
+
+    private Path nextFreeName(LocalDate fileDay) {
+        for (int n = 1; ; n++) {
+            Path candidate = directory.resolve("chat-" + fileDay + "." + n + ".log");
+            if (!Files.exists(candidate) && !Files.exists(candidate.resolveSibling(candidate.getFileName() + ".gz"))) {
+                return candidate;
+            }
+        }
+    }
+
+    private void gzip(Path file) {
+        Path target = file.resolveSibling(file.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            logger.warning("[FineChat] Could not gzip " + file + ": " + e);
+            return;
+        }
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            logger.warning("[FineChat] Could not delete " + file + " after gzip: " + e);
+        }
+    }
+
+    private void closeQuietly() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing left to do with it
+        }
+        channel = null;
+    }
+
+    private void warnDropped() {
+        long count = dropped.get();
+        if (count == 0) return;
+        long now = System.currentTimeMillis();
+        if (now - lastDropWarn < DROP_WARN_INTERVAL_MS) return;
+        lastDropWarn = now;
+        dropped.addAndGet(-count);
+        logger.warning("[FineChat] Chat log fell behind; " + count + " line(s) were not logged");
+    }
+}
@@ -0,0 +1,58 @@
+package org.finetree.finechat.log;
+
+import org.bukkit.Bukkit;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Echoes chat lines to the console in batches: at most one global task per tick,
+ * however many messages arrive in it, and none while chat is quiet.
+ */
+final class ConsoleEcho {
+
+    private final PlatformScheduler scheduler;
+    private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    ConsoleEcho(PlatformScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    void add(String line) {
+        lines.add(line);
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.runSyncGlobalLater(this::flush, 1L);
+            } catch (RuntimeException e) {
+                // Refused while the plugin disables; stop() writes what is left
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write out the lines still waiting for a flush that will no longer run. Call
+     * once the chat workers are done.
+     */
+    void stop() {
+        flush();
+    }
+
+    private void flush() {
+        // Clear first: a line added while we drain schedules the next tick's flush
+        scheduled.set(false);
+        List<String> batch = new ArrayList<>();
+        String line;
+        while ((line = lines.poll()) != null) {
+            batch.add(line);
+        }
+        if (!batch.isEmpty()) {
+            Bukkit.getConsoleSender().sendMessage(batch.toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.finetree.finechat.log;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer.
+ *
+ * Each slot carries a sequence number (the Vyukov array-queue scheme): a producer
+ * claims a position with one CAS on the tail, fills the slot and publishes it by
+ * advancing the slot's sequence; the consumer reads slots in order as they become
+ * published. {@link #offer} never blocks and never allocates; when the buffer is
+ * full it returns false and the caller decides what to drop.
+ */
+public final class RingBuffer<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    // Only touched by the consumer thread
+    private long head;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    public boolean offer(T value) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            long diff = sequence - position;
+
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, value);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // The consumer hasn't freed this slot from the previous lap
+                return false;
+            }
+            // else another producer claimed it first; retry with the new tail
+        }
+    }
+
+    /**
+     * Move up to {@code max} published values into {@code out}. Consumer thread only.
+     *
+     * @return how many were moved
+     */
+    public int drainTo(List<? super T> out, int max) {
+        int moved = 0;
+        while (moved < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) break; // not yet published
+            out.add(slots.get(index));
+            slots.lazySet(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * @return true if nothing is waiting. Consumer thread only.
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
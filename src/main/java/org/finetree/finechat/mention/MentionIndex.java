@@ -0,0 +1,368 @@
+package org.finetree.finechat.mention;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.chat.ChatSnapshot;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+import org.finetree.finechat.scheduler.ScheduledTask;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds mentions of online players in a message: "@Name" anywhere a word can start,
+ * and optionally the bare name as a whole word. Names and display names (colours
+ * stripped) are kept in a trie of lower-cased chars, so a message is walked once
+ * however many players are online, rather than every word against every name.
+ *
+ * The trie is immutable. A join, quit or nickname change copies the path to the
+ * changed name and publishes a new root, so chat workers read it without locking;
+ * writers are serialized. Nickname plugins fire no event we can listen for, so the
+ * display name is compared whenever the player chats and on a periodic sweep.
+ */
+public class MentionIndex implements Listener {
+
+    // A bare name shorter than this is too likely to be an ordinary word
+    public static final int MIN_BARE_LENGTH = 3;
+
+    // Most players one message can mention; any after that are plain text
+    public static final int MAX_MENTIONED = 8;
+
+    private static final long SWEEP_TICKS = 30 * 20L;
+
+    private final PlatformScheduler scheduler;
+
+    // What each online player is indexed under; written under the lock with the trie
+    private final Map<UUID, Keys> indexed = new ConcurrentHashMap<>();
+    private volatile Node root = Node.EMPTY;
+
+    private ScheduledTask sweepTask;
+
+    public MentionIndex(PlatformScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void start(Plugin plugin) {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        refreshAll();
+        synchronized (this) {
+            sweepTask = scheduler.runSyncGlobalTimer(this::refreshAll, SWEEP_TICKS, SWEEP_TICKS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        indexed.clear();
+        root = Node.EMPTY;
+    }
+
+    /**
+     * Index the player under their name and current display name, or re-index them if
+     * it changed. Call on the player's own thread.
+     */
+    public void track(Player player) {
+        if (!player.isOnline()) return;
+        update(player, player.getDisplayName(), true);
+    }
+
+    /**
+     * Re-index the sender if their display name changed since it was last read. Any
+     * thread; costs a map get and a string compare when nothing changed.
+     */
+    public void recheck(ChatSnapshot sender) {
+        Keys keys = indexed.get(sender.getUniqueId());
+        // Not indexed: not joined yet, or already gone
+        if (keys == null || Objects.equals(keys.displayName, sender.getDisplayName())) return;
+        update(sender.getPlayer(), sender.getDisplayName(), false);
+    }
+
+    /**
+     * @param sender never counted as mentioned, even by name
+     * @param bareNames also match names without an '@'
+     * @return the mentions in message order, or null if there are none
+     */
+    public List<Mention> find(String message, Player sender, boolean bareNames) {
+        Node root = this.root;
+        if (root.keys.length == 0) return null;
+
+        UUID self = sender.getUniqueId();
+        List<Mention> found = null;
+        List<Player> mentioned = null;
+        int len = message.length();
+        for (int i = 0; i < len; i++) {
+            boolean at = message.charAt(i) == '@';
+            if (!at && !bareNames) continue;
+            if (!startsWord(message, i)) continue;
+
+            // The longest indexed name starting here that also ends a word
+            int from = at ? i + 1 : i;
+            Node node = root;
+            int end = -1;
+            Player[] players = null;
+            for (int j = from; j < len; j++) {
+                node = node.child(Character.toLowerCase(message.charAt(j)));
+                if (node == null) break;
+                if (node.players.length > 0 && (j + 1 == len || !isNameChar(message.charAt(j + 1)))) {
+                    end = j + 1;
+                    players = node.players;
+                }
+            }
+            if (end < 0 || (!at && end - from < MIN_BARE_LENGTH)) continue;
+
+            List<Player> others = new ArrayList<>(players.length);
+            for (Player player : players) {
+                if (player.getUniqueId().equals(self)) continue;
+                if (mentioned == null) mentioned = new ArrayList<>();
+                if (!mentioned.contains(player)) {
+                    if (mentioned.size() == MAX_MENTIONED) continue;
+                    mentioned.add(player);
+                }
+                others.add(player);
+            }
+            if (!others.isEmpty()) {
+                if (found == null) found = new ArrayList<>();
+                found.add(new Mention(i, end, others));
+            }
+            i = end - 1;
+        }
+        return found;
+    }
+
+    /**
+     * @param typed mentions found in what the sender typed
+     * @return the mentions of players that are also mentioned in {@code typed}, or null
+     * if there are none
+     */
+    public static List<Mention> only(List<Mention> found, List<Mention> typed) {
+        if (found == null || typed == null) return null;
+        List<Player> allowed = new ArrayList<>();
+        for (Mention mention : typed) {
+            allowed.addAll(mention.players);
+        }
+
+        List<Mention> out = null;
+        for (Mention mention : found) {
+            List<Player> players = new ArrayList<>(mention.players);
+            players.retainAll(allowed);
+            if (players.isEmpty()) continue;
+            if (out == null) out = new ArrayList<>();
+            out.add(new Mention(mention.start, mention.end, players));
+        }
+        return out;
+    }
+
+    private void refreshAll() {
+        scheduler.runForPlayers(new ArrayList<>(Bukkit.getOnlinePlayers()), this::track);
+    }
+
+    /**
+     * @param add index the player if they aren't yet; otherwise only re-index
+     */
+    private synchronized void update(Player player, String displayName, boolean add) {
+        UUID id = player.getUniqueId();
+        Keys old = indexed.get(id);
+        if (old == null ? !add : Objects.equals(old.displayName, displayName)) return;
+
+        String name = key(player.getName());
+        String display = displayName == null ? "" : key(ColorUtil.stripColors(ColorUtil.colorize(displayName, true)).trim());
+        if (display.isEmpty() || display.equals(name)) display = null;
+
+        Node updated = root;
+        if (old != null) updated = unindex(updated, old, id);
+        if (!name.isEmpty()) updated = insert(updated, name, 0, player);
+        if (display != null) updated = insert(updated, display, 0, player);
+        root = updated;
+        indexed.put(id, new Keys(name, display, displayName));
+    }
+
+    private synchronized void remove(UUID id) {
+        Keys old = indexed.remove(id);
+        if (old != null) root = unindex(root, old, id);
+    }
+
+    private static Node unindex(Node root, Keys keys, UUID id) {
+        root = remove(root, keys.name, 0, id);
+        return keys.display != null ? remove(root, keys.display, 0, id) : root;
+    }
+
+    // LOWEST so a player can be mentioned in the first message after their join
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        track(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        remove(event.getPlayer().getUniqueId());
+    }
+
+    private static Node insert(Node node, String key, int depth, Player player) {
+        if (depth == key.length()) return node.withPlayers(plus(node.players, player));
+        char c = key.charAt(depth);
+        Node child = node.child(c);
+        return node.with(c, insert(child != null ? child : Node.EMPTY, key, depth + 1, player));
+    }
+
+    private static Node remove(Node node, String key, int depth, UUID id) {
+        if (depth == key.length()) return node.withPlayers(minus(node.players, id));
+        char c = key.charAt(depth);
+        Node child = node.child(c);
+        if (child == null) return node;
+        Node updated = remove(child, key, depth + 1, id);
+        return updated.isEmpty() ? node.without(c) : node.with(c, updated);
+    }
+
+    private static Player[] plus(Player[] players, Player player) {
+        Player[] rest = minus(players, player.getUniqueId());
+        Player[] out = Arrays.copyOf(rest, rest.length + 1);
+        out[rest.length] = player;
+        return out;
+    }
+
+    private static Player[] minus(Player[] players, UUID id) {
+        for (int i = 0; i < players.length; i++) {
+            if (!players[i].getUniqueId().equals(id)) continue;
+            Player[] out = new Player[players.length - 1];
+            System.arraycopy(players, 0, out, 0, i);
+            System.arraycopy(players, i + 1, out, i, out.length - i);
+            return out;
+        }
+        return players;
+    }
+
+    // Lower-cased a char at a time, exactly as the scan compares
+    private static String key(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static boolean startsWord(String message, int i) {
+        if (i == 0 || !isNameChar(message.charAt(i - 1))) return true;
+        // "&aSteve": the colour code is not part of the word
+        char code = i >= 2 ? message.charAt(i - 2) : 0;
+        return code == '&' || code == '§';
+    }
+
+    private static boolean isNameChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * A name in a message, as [start, end) chars including any '@', and the players
+     * it mentions (more than one only when names collide).
+     */
+    public static final class Mention {
+        private final int start;
+        private final int end;
+        private final List<Player> players;
+
+        Mention(int start, int end, List<Player> players) {
+            this.start = start;
+            this.end = end;
+            this.players = players;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public List<Player> getPlayers() {
+            return players;
+        }
+    }
+
+    private static final class Keys {
+        final String name;
+        final String display; // null when it is the name, or empty
+        final String displayName;
+
+        Keys(String name, String display, String displayName) {
+            this.name = name;
+            this.display = display;
+            this.displayName = displayName;
+        }
+    }
+
+    /**
+     * A trie node; never changed once published. Children are few, kept sorted by char.
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(new char[0], new Node[0], new Player[0]);
+
+        final char[] keys;
+        final Node[] children;
+        final Player[] players; // whose name or display name ends here
+
+        Node(char[] keys, Node[] children, Player[] players) {
+            this.keys = keys;
+            this.children = children;
+            this.players = players;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        boolean isEmpty() {
+            return keys.length == 0 && players.length == 0;
+        }
+
+        Node withPlayers(Player[] players) {
+            return new Node(keys, children, players);
+        }
+
+        Node with(char c, Node child) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                Node[] updated = children.clone();
+                updated[i] = child;
+                return new Node(keys, updated, players);
+            }
+            i = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            newKeys[i] = c;
+            newChildren[i] = child;
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            return new Node(newKeys, newChildren, players);
+        }
+
+        Node without(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i < 0) return this;
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, newKeys.length - i);
+            System.arraycopy(children, i + 1, newChildren, i, newChildren.length - i);
+            return new Node(newKeys, newChildren, players);
+        }
+    }
+}
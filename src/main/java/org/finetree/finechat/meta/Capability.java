@@ -0,0 +1,41 @@
+package org.finetree.finechat.meta;
+
+import org.bukkit.entity.Player;
+import org.finetree.finechat.config.ChatSettings;
+
+/**
+ * Chat permissions a player may hold, packed into an int so the chat path can test
+ * them with a mask instead of a permission lookup. The node behind each one comes
+ * from {@link ChatSettings#getPermission}.
+ */
+public enum Capability {
+    COLOR,
+    SPECIAL_COLOR,
+    BYPASS_FILTER,
+    BYPASS_SLOWMODE,
+    FILTER_NOTIFY;
+
+    private static final Capability[] VALUES = values();
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean in(int capabilities) {
+        return (capabilities & bit()) != 0;
+    }
+
+    /**
+     * Ask the permission plugin for every capability. Call on the player's own thread.
+     */
+    public static int compute(Player player, ChatSettings settings) {
+        int bits = 0;
+        for (Capability capability : VALUES) {
+            String node = settings.getPermission(capability);
+            if (node != null && !node.isEmpty() && player.hasPermission(node)) {
+                bits |= capability.bit();
+            }
+        }
+        return bits;
+    }
+}
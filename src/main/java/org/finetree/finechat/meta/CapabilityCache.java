@@ -0,0 +1,143 @@
+package org.finetree.finechat.meta;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.hooks.LuckPermsHook;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+import org.finetree.finechat.scheduler.ScheduledTask;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-player {@link Capability} bits, so the chat threads never call hasPermission.
+ *
+ * Bits are computed on the player's own thread:
+ * - at join and on world change (per-world permissions)
+ * - when LuckPerms recalculates the user
+ * - on a periodic sweep, for permission plugins without change events
+ * - for everyone after a reload, since the nodes may have changed
+ * - on a miss, for a player who chats before any of the above has run
+ * Reads are a single ConcurrentHashMap get.
+ */
+public class CapabilityCache implements Listener {
+
+    private final LuckPermsHook luckPerms;
+
+    // Values stay below 128, so Integer.valueOf never allocates
+    private final Map<UUID, Integer> bits = new ConcurrentHashMap<>();
+    // Misses with a refresh already on its way to the player's thread
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    private PlatformScheduler scheduler;
+    private ScheduledTask sweepTask;
+
+    public CapabilityCache(LuckPermsHook luckPerms) {
+        this.luckPerms = luckPerms;
+    }
+
+    public void start(Plugin plugin, PlatformScheduler scheduler) {
+        this.scheduler = scheduler;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+
+        if (luckPerms != null) {
+            // Fired on a LuckPerms thread; hop to the player's before asking for permissions
+            luckPerms.onUserRecalculate(uuid -> {
+                Player player = Bukkit.getPlayer(uuid);
+                if (player != null) scheduler.runSyncPlayer(player, () -> refresh(player));
+            });
+        }
+
+        scheduleSweep(ChatSettings.current());
+        refreshAll();
+    }
+
+    /**
+     * Settings were reloaded: the nodes or sweep interval may have changed.
+     */
+    public void reload(ChatSettings settings) {
+        cancelSweep();
+        scheduleSweep(settings);
+        refreshAll();
+    }
+
+    public void stop() {
+        cancelSweep();
+        bits.clear();
+        pending.clear();
+    }
+
+    /**
+     * @return the player's capability bits. A player not seen yet has none until a
+     * refresh on their own thread has run; before start() there is no such thread and
+     * they are computed on the calling thread.
+     */
+    public int get(Player player) {
+        Integer cached = bits.get(player.getUniqueId());
+        if (cached != null) return cached;
+        if (scheduler == null) return refresh(player);
+
+        if (pending.add(player.getUniqueId())) {
+            scheduler.runSyncPlayer(player, () -> {
+                pending.remove(player.getUniqueId());
+                refresh(player);
+            });
+        }
+        return 0;
+    }
+
+    private int refresh(Player player) {
+        if (!player.isOnline()) return 0;
+        int value = Capability.compute(player, ChatSettings.current());
+        bits.put(player.getUniqueId(), value);
+        return value;
+    }
+
+    private void refreshAll() {
+        if (scheduler == null) return;
+        scheduler.runForPlayers(new ArrayList<>(Bukkit.getOnlinePlayers()), this::refresh);
+    }
+
+    private synchronized void scheduleSweep(ChatSettings settings) {
+        if (scheduler != null && settings.getPermissionRefreshSeconds() > 0) {
+            long period = settings.getPermissionRefreshSeconds() * 20L;
+            sweepTask = scheduler.runSyncGlobalTimer(this::refreshAll, period, period);
+        }
+    }
+
+    private synchronized void cancelSweep() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+    }
+
+    // LOWEST so the bits are ready before anything else reacts to the join
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        bits.remove(event.getPlayer().getUniqueId());
+        // A refresh queued for them may never run now
+        pending.remove(event.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,50 @@
+package org.finetree.finechat.meta;
+
+import org.bukkit.entity.Player;
+
+/**
+ * A source of chat prefixes/suffixes.
+ *
+ * FineChat asks the live providers in configured order; the first non-blank prefix
+ * and the first non-blank suffix win, independently. Other plugins can supply their
+ * own (a town or nation suffix, say) through {@link MetaProviderChain#register}:
+ *
+ * <pre>
+ * MetaProviderChain chain = Bukkit.getServicesManager().load(MetaProviderChain.class);
+ * if (chain != null) chain.register(this, new TownSuffixProvider());
+ * </pre>
+ *
+ * Methods may be called from FineChat's async chat threads.
+ */
+public interface MetaProvider {
+
+    /**
+     * @return the name used in the metaProviders config list, e.g. "Vault".
+     */
+    String getName();
+
+    /**
+     * @return true if the provider can answer right now. Only checked when the chain
+     * is rebuilt (enable/reload/plugin enable or disable), never per message.
+     */
+    boolean isAvailable();
+
+    /**
+     * @return the player's prefix, or null/blank to let later providers answer.
+     */
+    String getPrefix(Player player);
+
+    /**
+     * @return the player's suffix, or null/blank to let later providers answer.
+     */
+    String getSuffix(Player player);
+
+    /**
+     * @return true if this provider has no change notifications, so cached values
+     * must be re-read periodically. Providers that do know about changes should
+     * call {@link MetaProviderChain#invalidate} instead.
+     */
+    default boolean requiresRefresh() {
+        return false;
+    }
+}
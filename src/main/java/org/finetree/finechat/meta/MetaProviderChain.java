@@ -0,0 +1,217 @@
+package org.finetree.finechat.meta;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.ServiceRegisterEvent;
+import org.bukkit.event.server.ServiceUnregisterEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.ServicePriority;
+import org.finetree.finechat.config.ChatSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The ordered list of live {@link MetaProvider}s.
+ *
+ * Registration and availability checks happen here, off the chat path. Whenever
+ * config is reloaded, a plugin is enabled/disabled or a service (such as Vault's
+ * Chat) comes or goes, the chain is rebuilt into a plain array, so resolving a
+ * player's meta is a loop over the providers that can actually answer.
+ *
+ * Published as a Bukkit service so other plugins can register providers without
+ * depending on FineChat at runtime.
+ */
+public class MetaProviderChain implements Listener {
+
+    private static final MetaProvider[] EMPTY = new MetaProvider[0];
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<UUID>> playerListeners = new CopyOnWriteArrayList<>();
+
+    private volatile MetaProvider[] chain = EMPTY;
+    private volatile boolean requiresRefresh;
+
+    /**
+     * Listen for plugins/services coming and going and publish the chain as a service.
+     * Register this after the built-in hooks so they rebind before the chain is rebuilt.
+     */
+    public void start(Plugin plugin) {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        Bukkit.getServicesManager().register(MetaProviderChain.class, this, plugin, ServicePriority.Normal);
+        rebuild();
+    }
+
+    /**
+     * Add a provider. It goes where its name appears in the metaProviders config list,
+     * or after every listed provider if it isn't listed. Removed automatically when
+     * the owning plugin is disabled.
+     */
+    public void register(Plugin owner, MetaProvider provider) {
+        registrations.add(new Registration(owner, provider, false));
+        rebuild();
+    }
+
+    /**
+     * Add one of FineChat's own providers; these are only used when listed in config.
+     */
+    public void registerBuiltIn(Plugin owner, MetaProvider provider) {
+        registrations.add(new Registration(owner, provider, true));
+    }
+
+    public void unregister(MetaProvider provider) {
+        if (registrations.removeIf(r -> r.provider == provider)) rebuild();
+    }
+
+    /**
+     * @return the live providers in priority order. Do not modify.
+     */
+    public MetaProvider[] providers() {
+        return chain;
+    }
+
+    /**
+     * @return true if any live provider needs its values re-read periodically.
+     */
+    public boolean requiresRefresh() {
+        return requiresRefresh;
+    }
+
+    /**
+     * Run the callback after the chain changes and on {@link #invalidateAll}.
+     */
+    public void onChange(Runnable callback) {
+        changeListeners.add(callback);
+    }
+
+    /**
+     * Run the callback with a player's UUID on {@link #invalidate}.
+     */
+    public void onInvalidate(Consumer<UUID> callback) {
+        playerListeners.add(callback);
+    }
+
+    /**
+     * A provider's data changed for one player; cached meta is re-resolved.
+     */
+    public void invalidate(UUID uuid) {
+        for (Consumer<UUID> listener : playerListeners) {
+            listener.accept(uuid);
+        }
+    }
+
+    /**
+     * A provider's data changed for everyone; cached meta is re-resolved.
+     */
+    public void invalidateAll() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Recompile the chain from the current settings and provider availability.
+     */
+    public void rebuild() {
+        rebuild(ChatSettings.current(), null);
+    }
+
+    public void rebuild(ChatSettings settings) {
+        rebuild(settings, null);
+    }
+
+    // PluginDisableEvent fires while the plugin still reports enabled, so it is excluded by hand
+    private synchronized void rebuild(ChatSettings settings, Plugin disabling) {
+        List<MetaProvider> out = new ArrayList<>();
+        Set<Registration> used = new HashSet<>();
+
+        for (String name : settings.getMetaProviderOrder()) {
+            for (Registration r : registrations) {
+                if (!used.contains(r) && r.provider.getName().equalsIgnoreCase(name)) {
+                    used.add(r);
+                    if (isLive(r, disabling)) out.add(r.provider);
+                }
+            }
+        }
+        for (Registration r : registrations) {
+            if (!r.builtIn && !used.contains(r) && isLive(r, disabling)) out.add(r.provider);
+        }
+
+        boolean refresh = false;
+        for (MetaProvider provider : out) {
+            refresh |= provider.requiresRefresh();
+        }
+
+        MetaProvider[] next = out.toArray(EMPTY);
+        requiresRefresh = refresh;
+        if (Arrays.equals(chain, next)) return;
+
+        chain = next;
+        invalidateAll();
+    }
+
+    private static boolean isLive(Registration r, Plugin disabling) {
+        if (r.owner == disabling) return false;
+        try {
+            return r.owner.isEnabled() && r.provider.isAvailable();
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * @return provider names in chain order, for logging.
+     */
+    public String describe() {
+        List<String> names = new ArrayList<>();
+        for (MetaProvider provider : chain) {
+            names.add(provider.getName());
+        }
+        return names.isEmpty() ? "none" : String.join(" > ", names);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        rebuild();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        Plugin plugin = event.getPlugin();
+        registrations.removeIf(r -> !r.builtIn && r.owner == plugin);
+        rebuild(ChatSettings.current(), plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceRegister(ServiceRegisterEvent event) {
+        if (event.getProvider().getService() != MetaProviderChain.class) rebuild();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceUnregister(ServiceUnregisterEvent event) {
+        if (event.getProvider().getService() != MetaProviderChain.class) rebuild();
+    }
+
+    private static final class Registration {
+        final Plugin owner;
+        final MetaProvider provider;
+        final boolean builtIn;
+
+        Registration(Plugin owner, MetaProvider provider, boolean builtIn) {
+            this.owner = owner;
+            this.provider = provider;
+            this.builtIn = builtIn;
+        }
+    }
+}
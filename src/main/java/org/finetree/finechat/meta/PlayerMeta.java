@@ -0,0 +1,39 @@
+package org.finetree.finechat.meta;
+
+/**
+ * Resolved prefix/suffix for one player, after the provider priority rules.
+ * Immutable so it can be shared freely between the chat threads.
+ */
+public final class PlayerMeta {
+
+    public static final PlayerMeta EMPTY = new PlayerMeta("", "");
+
+    private final String prefix;
+    private final String suffix;
+
+    public PlayerMeta(String prefix, String suffix) {
+        this.prefix = prefix == null ? "" : prefix;
+        this.suffix = suffix == null ? "" : suffix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PlayerMeta)) return false;
+        PlayerMeta other = (PlayerMeta) o;
+        return prefix.equals(other.prefix) && suffix.equals(other.suffix);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * prefix.hashCode() + suffix.hashCode();
+    }
+}
@@ -0,0 +1,168 @@
+package org.finetree.finechat.meta;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+import org.finetree.finechat.scheduler.ScheduledTask;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player prefix/suffix cache, so the chat path is a single map read instead of
+ * a round of GroupManager/Vault/LuckPerms lookups per message.
+ *
+ * Entries are filled at join (or lazily on first chat) and dropped when:
+ * - a provider reports a change through the {@link MetaProviderChain}
+ *   (LuckPerms UserDataRecalculateEvent, GroupManager user/group/system events)
+ * - the provider chain itself changes
+ * - the player quits
+ * Providers without change events (Vault) are re-resolved on a timer.
+ */
+public class PlayerMetaCache implements Listener {
+
+    private final MetaProviderChain providers;
+
+    private final Map<UUID, PlayerMeta> cache = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation; a resolve that raced one is not stored
+    private final AtomicLong epoch = new AtomicLong();
+
+    private PlatformScheduler scheduler;
+    private ScheduledTask refreshTask;
+
+    public PlayerMetaCache(MetaProviderChain providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * Register listeners/subscriptions and warm the cache for online players.
+     */
+    public void start(Plugin plugin, PlatformScheduler scheduler) {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+
+        providers.onInvalidate(this::invalidate);
+        providers.onChange(this::invalidateAll);
+
+        this.scheduler = scheduler;
+        scheduleRefresh(ChatSettings.current());
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            load(player);
+        }
+    }
+
+    /**
+     * Settings were reloaded: the source order or Vault refresh interval may have
+     * changed, so drop everything and let entries re-resolve on next use.
+     */
+    public void reload(ChatSettings settings) {
+        cancelRefresh();
+        scheduleRefresh(settings);
+        invalidateAll();
+    }
+
+    public void stop() {
+        cancelRefresh();
+        cache.clear();
+    }
+
+    private synchronized void scheduleRefresh(ChatSettings settings) {
+        // Always scheduled; it idles while no live provider needs polling
+        if (scheduler != null && settings.getVaultMetaRefreshSeconds() > 0) {
+            long period = settings.getVaultMetaRefreshSeconds() * 20L;
+            refreshTask = scheduler.runAsyncTimer(this::refreshAll, period, period);
+        }
+    }
+
+    private synchronized void cancelRefresh() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * @return the cached meta for this player, resolving it on a miss.
+     */
+    public PlayerMeta get(Player player) {
+        if (player == null) return PlayerMeta.EMPTY;
+        PlayerMeta meta = cache.get(player.getUniqueId());
+        return meta != null ? meta : load(player);
+    }
+
+    public void invalidate(UUID uuid) {
+        epoch.incrementAndGet();
+        cache.remove(uuid);
+    }
+
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        cache.clear();
+    }
+
+    private PlayerMeta load(Player player) {
+        long seen = epoch.get();
+        PlayerMeta meta = resolve(player);
+        // invalidate() bumps the epoch before removing, so this never resurrects a stale entry.
+        // An unchanged meta keeps its instance, so what was built from it stays valid.
+        PlayerMeta cached = cache.compute(player.getUniqueId(), (uuid, current) -> {
+            if (epoch.get() != seen) return current;
+            return meta.equals(current) ? current : meta;
+        });
+        return cached != null && cached.equals(meta) ? cached : meta;
+    }
+
+    private void refreshAll() {
+        if (!providers.requiresRefresh()) return;
+        for (UUID uuid : cache.keySet()) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null) {
+                cache.remove(uuid);
+                continue;
+            }
+            load(player);
+        }
+    }
+
+    private PlayerMeta resolve(Player player) {
+        String prefix = "";
+        String suffix = "";
+
+        // Earlier providers win; later ones only fill what is still missing
+        for (MetaProvider provider : providers.providers()) {
+            if (!isBlank(prefix) && !isBlank(suffix)) break;
+            try {
+                if (isBlank(prefix)) prefix = provider.getPrefix(player);
+                if (isBlank(suffix)) suffix = provider.getSuffix(player);
+            } catch (Throwable ignored) {
+                // a broken provider shouldn't break chat; later ones can still answer
+            }
+        }
+
+        return new PlayerMeta(prefix, suffix);
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        load(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        cache.remove(event.getPlayer().getUniqueId());
+    }
+}
@@ -5,6 +5,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
 public class BukkitPlatformScheduler implements PlatformScheduler {
 
     private final Plugin plugin;
@@ -32,6 +37,19 @@ public class BukkitPlatformScheduler implements PlatformScheduler {
         Bukkit.getScheduler().runTask(plugin, task);
     }
 
+    @Override
+    public void runForPlayers(Collection<? extends Player> players, Consumer<Player> action) {
+        if (players.isEmpty()) return;
+
+        // Everything lives on the main thread here, so one task covers every player
+        List<Player> batch = new ArrayList<>(players);
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            for (Player player : batch) {
+                if (player.isOnline()) action.accept(player);
+            }
+        });
+    }
+
     // === Delayed/Timer tasks ===
 
     @Override
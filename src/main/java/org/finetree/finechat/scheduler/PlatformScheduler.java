@@ -2,6 +2,9 @@ package org.finetree.finechat.scheduler;
 
 import org.bukkit.entity.Player;
 
+import java.util.Collection;
+import java.util.function.Consumer;
+
 /**
  * Scheduler abstraction so the rest of the plugin doesn't care
  * whether we're on Spigot, Paper, or Folia.
@@ -10,6 +13,7 @@ import org.bukkit.entity.Player;
  * - runAsync: background work
  * - runSyncGlobal: safe place for server/console operations
  * - runSyncPlayer: safe place for player operations (Folia region-safe)
+ * - runForPlayers: one action per player, batched into as few tasks as possible
  *
  * Delayed/Timer tasks (return ScheduledTask for cancellation):
  * - runAsyncLater: delayed background work
@@ -28,6 +32,17 @@ public interface PlatformScheduler {
 
     void runSyncPlayer(Player player, Runnable task);
 
+    /**
+     * Run the action once for each player, on a thread that owns that player.
+     * Players are batched: a single global task on Spigot/Paper, one task per
+     * occupied region section on Folia. Broadcasts therefore cost O(regions)
+     * tasks rather than O(players).
+     *
+     * @param players the players to visit (snapshot; not retained after scheduling)
+     * @param action  called once per player that is still online
+     */
+    void runForPlayers(Collection<? extends Player> players, Consumer<Player> action);
+
     // === Delayed tasks (return ScheduledTask for cancellation) ===
 
     /**
@@ -7,8 +7,9 @@ public final class PlatformSchedulers {
     private PlatformSchedulers() {}
 
     public static PlatformScheduler create(Plugin plugin) {
-        // Prefer Paper/Folia region schedulers if present, else Bukkit.
-        if (ReflectiveRegionScheduler.isSupported()) {
+        // Folia needs its region schedulers. Paper has them too, but still runs everything
+        // on one main thread, so Bukkit's scheduler (one task per broadcast) suits it better.
+        if (isFolia() && ReflectiveRegionScheduler.isSupported()) {
             try {
                 return new ReflectiveRegionScheduler(plugin);
             } catch (Throwable ignored) {
@@ -17,4 +18,13 @@ public final class PlatformSchedulers {
         }
         return new BukkitPlatformScheduler(plugin);
     }
+
+    private static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
 }
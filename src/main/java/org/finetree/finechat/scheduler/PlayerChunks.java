@@ -0,0 +1,87 @@
+package org.finetree.finechat.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The chunk each online player was last in, for {@link RegionBatches}. Recorded from
+ * the player's own events, so on the thread that owns them; read from any thread.
+ * A player not recorded yet (online before the plugin enabled, until their seed
+ * task runs) has no chunk and is delivered to on their own entity scheduler.
+ */
+public final class PlayerChunks implements Listener {
+
+    private final Map<UUID, RegionBatches.Chunk> chunks = new ConcurrentHashMap<>();
+
+    PlayerChunks() {}
+
+    RegionBatches.Chunk get(Player player) {
+        return chunks.get(player.getUniqueId());
+    }
+
+    /**
+     * Call on the player's own thread.
+     */
+    void record(Player player) {
+        if (player.isOnline()) record(player, player.getLocation());
+    }
+
+    private void record(Player player, Location location) {
+        RegionBatches.Chunk chunk = RegionBatches.Chunk.of(location);
+        if (chunk == null) return;
+        RegionBatches.Chunk old = chunks.get(player.getUniqueId());
+        if (!chunk.same(old)) chunks.put(player.getUniqueId(), chunk);
+    }
+
+    void clear() {
+        chunks.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        record(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        chunks.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent event) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        // Almost every move stays inside one chunk
+        if (to == null || ((from.getBlockX() >> 4) == (to.getBlockX() >> 4)
+                && (from.getBlockZ() >> 4) == (to.getBlockZ() >> 4) && from.getWorld() == to.getWorld())) return;
+        record(event.getPlayer(), to);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent event) {
+        record(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        record(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        record(event.getPlayer());
+    }
+}
@@ -2,20 +2,35 @@ package org.finetree.finechat.scheduler;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
- * Uses Paper/Folia threaded-region schedulers via reflection.
+ * Uses Folia's threaded-region schedulers via reflection. Only picked on Folia (see
+ * {@link PlatformSchedulers}): Paper has the same API but a single main thread, where
+ * BukkitPlatformScheduler's one task per broadcast is cheaper than one per region.
  *
  * Why reflection?
  * - We build against Spigot API so the jar runs on Spigot.
- * - Paper/Folia expose extra scheduler methods not present in Spigot.
+ * - Folia exposes extra scheduler methods not present in Spigot.
+ *
+ * Reflection only happens in the constructor: every scheduler method is resolved
+ * once against its API interface and bound (scheduler instance and plugin included)
+ * into a MethodHandle with a fixed Object-based signature, so calls are plain
+ * invokeExact with no lookup, no varargs array and no Method.invoke.
  *
  * This class is intentionally tiny and defensive: if any reflection fails,
  * you should fall back to BukkitPlatformScheduler.
@@ -27,18 +42,22 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
     private final Plugin plugin;
     private final BukkitPlatformScheduler fallback;
 
-    private final Object asyncScheduler;          // Server.getAsyncScheduler()
-    private final Object globalRegionScheduler;   // Server.getGlobalRegionScheduler()
+    // Where players are, for batching deliveries by region without reading entities off-thread
+    private final PlayerChunks chunks = new PlayerChunks();
+
+    private final MethodHandle asyncRunNow;             // AsyncScheduler.runNow(plugin, Consumer)
+    private final MethodHandle asyncRunDelayed;         // AsyncScheduler.runDelayed(plugin, Consumer, long, TimeUnit)
+    private final MethodHandle asyncRunAtFixedRate;     // AsyncScheduler.runAtFixedRate(plugin, Consumer, long, long, TimeUnit)
 
-    private final Method asyncRunNow;             // AsyncScheduler.runNow(Plugin, Consumer)
-    private final Method asyncRunDelayed;         // AsyncScheduler.runDelayed(Plugin, Consumer, long, TimeUnit)
-    private final Method asyncRunAtFixedRate;     // AsyncScheduler.runAtFixedRate(Plugin, Consumer, long, long, TimeUnit)
+    private final MethodHandle globalExecute;           // GlobalRegionScheduler.execute(plugin, Runnable)
+    private final MethodHandle globalRunDelayed;        // GlobalRegionScheduler.runDelayed(plugin, Consumer, long)
+    private final MethodHandle globalRunAtFixedRate;    // GlobalRegionScheduler.runAtFixedRate(plugin, Consumer, long, long)
 
-    private final Method globalExecute;           // GlobalRegionScheduler.execute(Plugin, Runnable)
-    private final Method globalRunDelayed;        // GlobalRegionScheduler.runDelayed(Plugin, Consumer, long)
-    private final Method globalRunAtFixedRate;    // GlobalRegionScheduler.runAtFixedRate(Plugin, Consumer, long, long)
+    private final MethodHandle regionExecute;           // RegionScheduler.execute(plugin, World, int, int, Runnable)
+    private final MethodHandle isOwnedByCurrentRegion;  // Server.isOwnedByCurrentRegion(Entity)
 
-    private final Method playerGetScheduler;      // Entity.getScheduler() (Player implements Entity)
+    private final MethodHandle entityExecute;           // player.getScheduler().execute(plugin, Runnable, Runnable, long)
+    private final MethodHandle entityRun;               // player.getScheduler().run(plugin, Consumer, Runnable, long)
 
     public ReflectiveRegionScheduler(Plugin plugin) throws ReflectiveOperationException {
         this.plugin = Objects.requireNonNull(plugin, "plugin");
@@ -46,24 +65,81 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
 
         Server server = Bukkit.getServer();
 
-        Method getAsyncScheduler = server.getClass().getMethod("getAsyncScheduler");
-        Method getGlobalRegionScheduler = server.getClass().getMethod("getGlobalRegionScheduler");
-
-        this.asyncScheduler = getAsyncScheduler.invoke(server);
-        this.globalRegionScheduler = getGlobalRegionScheduler.invoke(server);
-
         // AsyncScheduler methods
-        this.asyncRunNow = asyncScheduler.getClass().getMethod("runNow", Plugin.class, Consumer.class);
-        this.asyncRunDelayed = asyncScheduler.getClass().getMethod("runDelayed", Plugin.class, Consumer.class, long.class, TimeUnit.class);
-        this.asyncRunAtFixedRate = asyncScheduler.getClass().getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
+        Method getAsyncScheduler = server.getClass().getMethod("getAsyncScheduler");
+        Object asyncScheduler = getAsyncScheduler.invoke(server);
+        Class<?> asyncType = getAsyncScheduler.getReturnType();
+        this.asyncRunNow = bind(asyncType, asyncScheduler, "runNow",
+                MethodType.methodType(Object.class, Consumer.class),
+                Plugin.class, Consumer.class);
+        this.asyncRunDelayed = bind(asyncType, asyncScheduler, "runDelayed",
+                MethodType.methodType(Object.class, Consumer.class, long.class, TimeUnit.class),
+                Plugin.class, Consumer.class, long.class, TimeUnit.class);
+        this.asyncRunAtFixedRate = bind(asyncType, asyncScheduler, "runAtFixedRate",
+                MethodType.methodType(Object.class, Consumer.class, long.class, long.class, TimeUnit.class),
+                Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
 
         // GlobalRegionScheduler methods
-        this.globalExecute = globalRegionScheduler.getClass().getMethod("execute", Plugin.class, Runnable.class);
-        this.globalRunDelayed = globalRegionScheduler.getClass().getMethod("runDelayed", Plugin.class, Consumer.class, long.class);
-        this.globalRunAtFixedRate = globalRegionScheduler.getClass().getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+        Method getGlobalRegionScheduler = server.getClass().getMethod("getGlobalRegionScheduler");
+        Object globalRegionScheduler = getGlobalRegionScheduler.invoke(server);
+        Class<?> globalType = getGlobalRegionScheduler.getReturnType();
+        this.globalExecute = bind(globalType, globalRegionScheduler, "execute",
+                MethodType.methodType(void.class, Runnable.class),
+                Plugin.class, Runnable.class);
+        this.globalRunDelayed = bind(globalType, globalRegionScheduler, "runDelayed",
+                MethodType.methodType(Object.class, Consumer.class, long.class),
+                Plugin.class, Consumer.class, long.class);
+        this.globalRunAtFixedRate = bind(globalType, globalRegionScheduler, "runAtFixedRate",
+                MethodType.methodType(Object.class, Consumer.class, long.class, long.class),
+                Plugin.class, Consumer.class, long.class, long.class);
+
+        // RegionScheduler methods
+        Method getRegionScheduler = server.getClass().getMethod("getRegionScheduler");
+        Object regionScheduler = getRegionScheduler.invoke(server);
+        this.regionExecute = bind(getRegionScheduler.getReturnType(), regionScheduler, "execute",
+                MethodType.methodType(void.class, World.class, int.class, int.class, Runnable.class),
+                Plugin.class, World.class, int.class, int.class, Runnable.class);
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        this.isOwnedByCurrentRegion = lookup
+                .unreflect(server.getClass().getMethod("isOwnedByCurrentRegion", Entity.class))
+                .bindTo(server)
+                .asType(MethodType.methodType(boolean.class, Entity.class));
+
+        // Player#getScheduler() -> EntityScheduler, folded into the entity calls so
+        // one handle goes from Player straight to the scheduled task
+        Method getScheduler = Player.class.getMethod("getScheduler");
+        MethodHandle playerScheduler = lookup.unreflect(getScheduler);
+        Class<?> entityType = getScheduler.getReturnType();
+
+        MethodHandle execute = lookup.unreflect(entityType.getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class));
+        execute = MethodHandles.insertArguments(execute, 1, plugin);
+        this.entityExecute = MethodHandles.filterArguments(execute, 0, playerScheduler)
+                .asType(MethodType.methodType(boolean.class, Player.class, Runnable.class, Runnable.class, long.class));
+
+        MethodHandle run = lookup.unreflect(entityType.getMethod("run", Plugin.class, Consumer.class, Runnable.class, long.class));
+        run = MethodHandles.insertArguments(run, 1, plugin);
+        this.entityRun = MethodHandles.filterArguments(run, 0, playerScheduler)
+                .asType(MethodType.methodType(Object.class, Player.class, Consumer.class, Runnable.class, long.class));
+
+        // ScheduledTask#cancel/isCancelled, resolved once against the API type
+        ScheduledTask.bindFoliaTaskType(asyncType.getMethod("runNow", Plugin.class, Consumer.class).getReturnType());
+
+        // Last, once nothing above can fail: players already online are seeded on their own threads
+        Bukkit.getPluginManager().registerEvents(chunks, plugin);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            runSyncPlayer(player, () -> chunks.record(player));
+        }
+    }
 
-        // Player#getScheduler() -> EntityScheduler
-        this.playerGetScheduler = Player.class.getMethod("getScheduler");
+    /**
+     * Resolve name(params) on the API type, bind the scheduler instance and our plugin,
+     * and adapt the result to the given call-site type.
+     */
+    private MethodHandle bind(Class<?> apiType, Object target, String name, MethodType callType, Class<?>... params)
+            throws ReflectiveOperationException {
+        MethodHandle handle = MethodHandles.publicLookup().unreflect(apiType.getMethod(name, params));
+        return MethodHandles.insertArguments(handle, 0, target, plugin).asType(callType);
     }
 
     public static boolean isSupported() {
@@ -71,6 +147,7 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
             Server server = Bukkit.getServer();
             server.getClass().getMethod("getAsyncScheduler");
             server.getClass().getMethod("getGlobalRegionScheduler");
+            server.getClass().getMethod("getRegionScheduler");
             Player.class.getMethod("getScheduler");
             return true;
         } catch (Throwable t) {
@@ -84,7 +161,7 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
     public void runAsync(Runnable task) {
         try {
             Consumer<Object> consumer = ignored -> task.run();
-            asyncRunNow.invoke(asyncScheduler, plugin, consumer);
+            Object ignored = (Object) asyncRunNow.invokeExact((Consumer) consumer);
         } catch (Throwable t) {
             // Fallback to Bukkit async if something goes wrong
             Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
@@ -94,7 +171,7 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
     @Override
     public void runSyncGlobal(Runnable task) {
         try {
-            globalExecute.invoke(globalRegionScheduler, plugin, task);
+            globalExecute.invokeExact(task);
         } catch (Throwable t) {
             Bukkit.getScheduler().runTask(plugin, task);
         }
@@ -107,19 +184,52 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
             return;
         }
         try {
-            Object entityScheduler = playerGetScheduler.invoke(player);
-
             // EntityScheduler#execute(Plugin, Runnable, Runnable retired, long delay)
-            Method execute = entityScheduler.getClass().getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class);
-
             // delay 1 tick (Folia treats <1 as 1)
-            execute.invoke(entityScheduler, plugin, task, null, 1L);
+            boolean ignored = (boolean) entityExecute.invokeExact(player, task, (Runnable) null, 1L);
         } catch (Throwable t) {
             // Last resort fallback
             Bukkit.getScheduler().runTask(plugin, task);
         }
     }
 
+    @Override
+    public void runForPlayers(Collection<? extends Player> players, Consumer<Player> action) {
+        if (players.isEmpty()) return;
+
+        List<Player> unplaced = new ArrayList<>();
+        for (RegionBatches.Batch batch : RegionBatches.group(players, chunks::get, unplaced)) {
+            Runnable task = () -> {
+                for (Player player : batch.players()) {
+                    if (!player.isOnline()) continue;
+                    if (ownedByCurrentRegion(player)) {
+                        action.accept(player);
+                    } else {
+                        // Moved to another region since grouping
+                        runSyncPlayer(player, () -> action.accept(player));
+                    }
+                }
+            };
+            try {
+                regionExecute.invokeExact(batch.world(), batch.chunkX(), batch.chunkZ(), task);
+            } catch (Throwable t) {
+                unplaced.addAll(batch.players());
+            }
+        }
+
+        for (Player player : unplaced) {
+            runSyncPlayer(player, () -> action.accept(player));
+        }
+    }
+
+    private boolean ownedByCurrentRegion(Player player) {
+        try {
+            return (boolean) isOwnedByCurrentRegion.invokeExact((Entity) player);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
     // === Delayed/Timer tasks ===
 
     @Override
@@ -127,7 +237,7 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
         try {
             Consumer<Object> consumer = ignored -> task.run();
             long delayMs = delayTicks * MS_PER_TICK;
-            Object foliaTask = asyncRunDelayed.invoke(asyncScheduler, plugin, consumer, delayMs, TimeUnit.MILLISECONDS);
+            Object foliaTask = (Object) asyncRunDelayed.invokeExact((Consumer) consumer, delayMs, TimeUnit.MILLISECONDS);
             return new ScheduledTask(foliaTask);
         } catch (Throwable t) {
             return fallback.runAsyncLater(task, delayTicks);
@@ -140,7 +250,7 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
             Consumer<Object> consumer = ignored -> task.run();
             long delayMs = Math.max(1, delayTicks * MS_PER_TICK); // Folia requires initialDelayTicks > 0
             long periodMs = periodTicks * MS_PER_TICK;
-            Object foliaTask = asyncRunAtFixedRate.invoke(asyncScheduler, plugin, consumer, delayMs, periodMs, TimeUnit.MILLISECONDS);
+            Object foliaTask = (Object) asyncRunAtFixedRate.invokeExact((Consumer) consumer, delayMs, periodMs, TimeUnit.MILLISECONDS);
             return new ScheduledTask(foliaTask);
         } catch (Throwable t) {
             return fallback.runAsyncTimer(task, delayTicks, periodTicks);
@@ -151,7 +261,7 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
     public ScheduledTask runSyncGlobalLater(Runnable task, long delayTicks) {
         try {
             Consumer<Object> consumer = ignored -> task.run();
-            Object foliaTask = globalRunDelayed.invoke(globalRegionScheduler, plugin, consumer, delayTicks);
+            Object foliaTask = (Object) globalRunDelayed.invokeExact((Consumer) consumer, delayTicks);
             return new ScheduledTask(foliaTask);
         } catch (Throwable t) {
             return fallback.runSyncGlobalLater(task, delayTicks);
@@ -162,7 +272,7 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
     public ScheduledTask runSyncGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
         try {
             Consumer<Object> consumer = ignored -> task.run();
-            Object foliaTask = globalRunAtFixedRate.invoke(globalRegionScheduler, plugin, consumer, delayTicks, periodTicks);
+            Object foliaTask = (Object) globalRunAtFixedRate.invokeExact((Consumer) consumer, delayTicks, periodTicks);
             return new ScheduledTask(foliaTask);
         } catch (Throwable t) {
             return fallback.runSyncGlobalTimer(task, delayTicks, periodTicks);
@@ -175,13 +285,9 @@ public class ReflectiveRegionScheduler implements PlatformScheduler {
             return runSyncGlobalLater(task, delayTicks);
         }
         try {
-            Object entityScheduler = playerGetScheduler.invoke(player);
-
             // EntityScheduler#run(Plugin, Consumer<ScheduledTask>, Runnable retired, long delayTicks)
-            Method run = entityScheduler.getClass().getMethod("run", Plugin.class, Consumer.class, Runnable.class, long.class);
-
             Consumer<Object> consumer = ignored -> task.run();
-            Object foliaTask = run.invoke(entityScheduler, plugin, consumer, null, delayTicks);
+            Object foliaTask = (Object) entityRun.invokeExact(player, (Consumer) consumer, (Runnable) null, delayTicks);
 
             // EntityScheduler.run returns null if entity is retired, wrap safely
             if (foliaTask != null) {
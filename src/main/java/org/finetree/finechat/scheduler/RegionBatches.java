@@ -0,0 +1,119 @@
+package org.finetree.finechat.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Groups players by the Folia region section they stand in, so a broadcast can be
+ * delivered with one region task per occupied section instead of one entity task
+ * per player.
+ *
+ * Positions come from a snapshot recorded on each player's own thread (see
+ * {@link PlayerChunks}); grouping runs on chat workers, which must not read live
+ * entity state. Folia never splits a region section between two regions, so
+ * everyone in a batch was owned by the same region when last recorded. Players can
+ * still have moved since; callers must re-check ownership inside the task.
+ */
+final class RegionBatches {
+
+    // Folia's default region section is 16x16 chunks (chunk coordinate >> 4)
+    private static final int SECTION_SHIFT = 4;
+
+    private RegionBatches() {}
+
+    /**
+     * The chunk a player was in; replaced, never changed.
+     */
+    static final class Chunk {
+        final World world;
+        final int x;
+        final int z;
+
+        Chunk(World world, int x, int z) {
+            this.world = world;
+            this.x = x;
+            this.z = z;
+        }
+
+        /**
+         * @return null if the location has no world
+         */
+        static Chunk of(Location location) {
+            World world = location == null ? null : location.getWorld();
+            if (world == null) return null;
+            return new Chunk(world, location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        }
+
+        boolean same(Chunk other) {
+            return other != null && other.world == world && other.x == x && other.z == z;
+        }
+    }
+
+    static final class Batch {
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final List<Player> players = new ArrayList<>();
+
+        private Batch(World world, int chunkX, int chunkZ) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        World world() {
+            return world;
+        }
+
+        // Any chunk inside the section; used to address the owning region
+        int chunkX() {
+            return chunkX;
+        }
+
+        int chunkZ() {
+            return chunkZ;
+        }
+
+        List<Player> players() {
+            return players;
+        }
+    }
+
+    /**
+     * @param chunks where each player is; null if not known
+     * @param unplaced receives players with no known chunk
+     */
+    static Collection<Batch> group(Collection<? extends Player> players, Function<? super Player, Chunk> chunks,
+                                   List<Player> unplaced) {
+        Map<World, Map<Long, Batch>> byWorld = new HashMap<>();
+        List<Batch> batches = new ArrayList<>();
+
+        for (Player player : players) {
+            Chunk chunk = chunks.apply(player);
+            if (chunk == null) {
+                unplaced.add(player);
+                continue;
+            }
+
+            long section = ((long) (chunk.x >> SECTION_SHIFT) << 32) | ((chunk.z >> SECTION_SHIFT) & 0xFFFFFFFFL);
+
+            Map<Long, Batch> sections = byWorld.computeIfAbsent(chunk.world, w -> new HashMap<>());
+            Batch batch = sections.get(section);
+            if (batch == null) {
+                batch = new Batch(chunk.world, chunk.x, chunk.z);
+                sections.put(section, batch);
+                batches.add(batch);
+            }
+            batch.players.add(player);
+        }
+        return batches;
+    }
+}
@@ -2,15 +2,24 @@ package org.finetree.finechat.scheduler;
 
 import org.bukkit.scheduler.BukkitTask;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 /**
  * Platform-agnostic wrapper for scheduled tasks.
- * Handles both Bukkit's BukkitTask and Folia's ScheduledTask via reflection.
+ * Handles both Bukkit's BukkitTask and Folia's ScheduledTask via reflection;
+ * the Folia methods are bound once by {@link #bindFoliaTaskType} rather than looked up per call.
  *
  * This allows code to schedule tasks and cancel them without knowing
  * whether the server is running Bukkit/Spigot/Paper or Folia.
  */
 public class ScheduledTask {
 
+    // Folia ScheduledTask#cancel() / #isCancelled(), as (Object)Object and (Object)boolean; null until bound
+    private static volatile MethodHandle foliaCancel;
+    private static volatile MethodHandle foliaIsCancelled;
+
     private final Object foliaTask;    // io.papermc.paper.threadedregions.scheduler.ScheduledTask
     private final BukkitTask bukkitTask;
 
@@ -30,6 +39,19 @@ public class ScheduledTask {
         this.bukkitTask = bukkitTask;
     }
 
+    /**
+     * Resolve cancel/isCancelled once against Folia's ScheduledTask interface.
+     * Called by ReflectiveRegionScheduler with the declared return type of the scheduler methods.
+     */
+    static void bindFoliaTaskType(Class<?> taskType) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        // cancel() returns a CancelledState enum; we only care that it ran
+        foliaCancel = lookup.unreflect(taskType.getMethod("cancel"))
+                .asType(MethodType.methodType(Object.class, Object.class));
+        foliaIsCancelled = lookup.unreflect(taskType.getMethod("isCancelled"))
+                .asType(MethodType.methodType(boolean.class, Object.class));
+    }
+
     /**
      * Cancel this task.
      * Safe to call even if the task is null, already cancelled, or already completed.
@@ -38,7 +60,12 @@ public class ScheduledTask {
         if (foliaTask != null) {
             try {
                 // io.papermc.paper.threadedregions.scheduler.ScheduledTask#cancel()
-                foliaTask.getClass().getMethod("cancel").invoke(foliaTask);
+                MethodHandle cancel = foliaCancel;
+                if (cancel != null) {
+                    Object ignored = (Object) cancel.invokeExact(foliaTask);
+                } else {
+                    foliaTask.getClass().getMethod("cancel").invoke(foliaTask);
+                }
             } catch (Throwable ignored) {
                 // Task may already be cancelled or completed
             }
@@ -57,6 +84,10 @@ public class ScheduledTask {
         if (foliaTask != null) {
             try {
                 // ScheduledTask#isCancelled()
+                MethodHandle isCancelled = foliaIsCancelled;
+                if (isCancelled != null) {
+                    return (boolean) isCancelled.invokeExact(foliaTask);
+                }
                 return (boolean) foliaTask.getClass().getMethod("isCancelled").invoke(foliaTask);
             } catch (Throwable t) {
                 return false;
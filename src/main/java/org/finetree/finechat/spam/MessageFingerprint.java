@@ -0,0 +1,67 @@
+package org.finetree.finechat.spam;
+
+/**
+ * A 64-bit hash of what a message says, so a repeat matches even when it is dressed
+ * up differently. Only letters and digits count, letters lower-cased with runs of
+ * the same letter collapsed; colour codes, tags, spaces and punctuation are skipped.
+ * "Hello!!", "&aHELLO" and "h e l l l o" all hash the same, but "wave 1" and
+ * "wave 2", or "10" and "100", don't.
+ *
+ * One pass over the chars, no allocation.
+ */
+final class MessageFingerprint {
+
+    // No letters or digits at all: nothing to compare
+    static final long NONE = 0L;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Longest <tag> skipped whole; a lone '<' in normal text is just text
+    private static final int MAX_TAG = 40;
+
+    private MessageFingerprint() {}
+
+    static long of(String message) {
+        long hash = FNV_OFFSET;
+        int last = -1;
+        int len = message.length();
+        for (int i = 0; i < len; ) {
+            char c = message.charAt(i);
+            if ((c == '&' || c == '§') && i + 1 < len && isCode(message.charAt(i + 1))) {
+                // &#RRGGBB is one code too
+                i += message.charAt(i + 1) == '#' ? Math.min(8, len - i) : 2;
+                continue;
+            }
+            if (c == '<') {
+                int close = message.indexOf('>', i + 1);
+                if (close > 0 && close - i <= MAX_TAG) {
+                    i = close + 1;
+                    continue;
+                }
+            }
+
+            int cp = Character.codePointAt(message, i);
+            i += Character.charCount(cp);
+            if (Character.isDigit(cp)) {
+                // Every digit counts: a repeated one changes the number
+                last = cp;
+                hash = (hash ^ cp) * FNV_PRIME;
+                continue;
+            }
+            if (!Character.isLetter(cp)) continue;
+            cp = Character.toLowerCase(cp);
+            if (cp == last) continue;
+            last = cp;
+            hash = (hash ^ cp) * FNV_PRIME;
+        }
+        if (last == -1) return NONE;
+        return hash == NONE ? 1L : hash;
+    }
+
+    private static boolean isCode(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                || (c >= 'k' && c <= 'o') || (c >= 'K' && c <= 'O')
+                || c == 'r' || c == 'R' || c == 'x' || c == 'X' || c == '#';
+    }
+}
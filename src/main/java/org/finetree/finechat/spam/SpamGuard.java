@@ -0,0 +1,227 @@
+package org.finetree.finechat.spam;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.finetree.finechat.channel.Channel;
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.meta.Capability;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Turns spam away on the chat event thread, before a message is queued, formatted
+ * or scheduled anywhere:
+ *  - a token bucket per player: a burst, then a steady rate
+ *  - repeats of one of the player's last few messages, compared by
+ *    {@link MessageFingerprint} so case, colours and spacing don't hide them
+ *  - slow mode: a minimum gap between a player's messages, server-wide or per channel
+ *
+ * The bucket is a single long (the time the bucket is next full, GCRA style)
+ * updated with CAS; recent messages are fingerprints in a small atomic ring. After a
+ * player's first message a check allocates nothing. Players with the slowmode
+ * bypass capability skip all of it, as do channels with the spam guard turned off.
+ */
+public class SpamGuard implements Listener {
+
+    public enum Verdict {
+        ALLOWED,
+        TOO_FAST,
+        DUPLICATE,
+        SLOW_MODE
+    }
+
+    // Most recent messages remembered per player; the configured count is capped to this
+    public static final int MAX_DUPLICATE_HISTORY = 16;
+
+    // A spammer is told at most this often
+    private static final long NOTICE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Map<UUID, PlayerState> players = new ConcurrentHashMap<>();
+
+    // Set by /finechat slowmode until the next reload; -1 = use the config
+    private volatile long slowModeOverrideNanos = -1L;
+
+    public void start(Plugin plugin) {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /**
+     * Settings were reloaded: slow mode goes back to the configured value.
+     */
+    public void reload(ChatSettings settings) {
+        slowModeOverrideNanos = -1L;
+    }
+
+    public void stop() {
+        players.clear();
+    }
+
+    /**
+     * Change the server-wide slow mode until the next reload. Channels with their own
+     * slow mode keep it.
+     *
+     * @param seconds 0 to turn it off
+     */
+    public void setSlowMode(int seconds) {
+        slowModeOverrideNanos = TimeUnit.SECONDS.toNanos(Math.max(0, seconds));
+    }
+
+    /**
+     * @return the server-wide slow mode in effect, in seconds; 0 = off
+     */
+    public long getSlowModeSeconds(ChatSettings settings) {
+        return TimeUnit.NANOSECONDS.toSeconds(globalSlowModeNanos(settings));
+    }
+
+    /**
+     * Check a message and, if it is allowed, count it against the player. Any thread.
+     *
+     * @param channel the channel it is sent in, or null without channels
+     * @param capabilities the sender's cached {@link Capability} bits
+     */
+    public Verdict check(Player sender, String message, Channel channel, int capabilities, ChatSettings settings) {
+        if (!settings.isSpamGuardEnabled()) return Verdict.ALLOWED;
+        if (channel != null && !channel.isSpamGuard()) return Verdict.ALLOWED;
+        if (Capability.BYPASS_SLOWMODE.in(capabilities)) return Verdict.ALLOWED;
+
+        long now = System.nanoTime();
+        PlayerState state = players.get(sender.getUniqueId());
+        if (state == null) {
+            state = players.computeIfAbsent(sender.getUniqueId(), id -> new PlayerState(now));
+        }
+
+        long slowMode = channel != null && channel.getSlowModeSeconds() >= 0
+                ? TimeUnit.SECONDS.toNanos(channel.getSlowModeSeconds())
+                : globalSlowModeNanos(settings);
+        long lastAccepted = state.lastAccepted.get();
+        if (slowMode > 0 && now - lastAccepted < slowMode) return Verdict.SLOW_MODE;
+
+        long fingerprint = MessageFingerprint.NONE;
+        int history = settings.getSpamDuplicateHistory();
+        if (history > 0) {
+            fingerprint = MessageFingerprint.of(message);
+            if (fingerprint != MessageFingerprint.NONE
+                    && state.repeats(fingerprint, history, now, settings.getSpamDuplicateNanos())) {
+                return Verdict.DUPLICATE;
+            }
+        }
+
+        if (!state.take(now, settings.getSpamIntervalNanos(), settings.getSpamBurst())) return Verdict.TOO_FAST;
+
+        if (slowMode > 0) {
+            // Two messages racing through slow mode: only one may win the gap
+            if (!state.lastAccepted.compareAndSet(lastAccepted, now)) return Verdict.SLOW_MODE;
+        } else {
+            state.lastAccepted.set(now);
+        }
+        if (fingerprint != MessageFingerprint.NONE) state.remember(fingerprint, now);
+        return Verdict.ALLOWED;
+    }
+
+    /**
+     * Tell the sender why their message went nowhere, at most once every couple of
+     * seconds so a flood doesn't turn into a flood of replies. Safe on the chat
+     * event thread, like the chat message itself would have been.
+     */
+    public void warn(Player sender, Verdict verdict, Channel channel, ChatSettings settings) {
+        PlayerState state = players.get(sender.getUniqueId());
+        if (state == null) return;
+        long now = System.nanoTime();
+        long last = state.lastNotice.get();
+        if (now - last < NOTICE_INTERVAL_NANOS || !state.lastNotice.compareAndSet(last, now)) return;
+
+        String notice;
+        switch (verdict) {
+            case TOO_FAST:
+                notice = "&cYou are sending messages too quickly.";
+                break;
+            case DUPLICATE:
+                notice = "&cPlease don't repeat yourself.";
+                break;
+            case SLOW_MODE:
+                long slowMode = channel != null && channel.getSlowModeSeconds() >= 0
+                        ? TimeUnit.SECONDS.toNanos(channel.getSlowModeSeconds())
+                        : globalSlowModeNanos(settings);
+                long wait = slowMode - (now - state.lastAccepted.get());
+                notice = "&cSlow mode is on: you can talk again in "
+                        + Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L)) + "s.";
+                break;
+            default:
+                return;
+        }
+        sender.sendMessage(ColorUtil.colorize(notice, true));
+    }
+
+    private long globalSlowModeNanos(ChatSettings settings) {
+        long override = slowModeOverrideNanos;
+        return override >= 0 ? override : settings.getSlowModeNanos();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        players.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * One player's spam state. Written from whichever thread their chat arrives on.
+     */
+    private static final class PlayerState {
+        // When the bucket would be full again; a message adds one interval
+        final AtomicLong fullAt;
+        final AtomicLong lastAccepted;
+        final AtomicLong lastNotice;
+
+        final AtomicLongArray fingerprints = new AtomicLongArray(MAX_DUPLICATE_HISTORY);
+        final AtomicLongArray sentAt = new AtomicLongArray(MAX_DUPLICATE_HISTORY);
+        final AtomicInteger next = new AtomicInteger();
+
+        PlayerState(long now) {
+            long longAgo = now - TimeUnit.DAYS.toNanos(1);
+            fullAt = new AtomicLong(now);
+            lastAccepted = new AtomicLong(longAgo);
+            lastNotice = new AtomicLong(longAgo);
+        }
+
+        /**
+         * Take a token: allowed while fewer than {@code burst} intervals are owed.
+         */
+        boolean take(long now, long interval, int burst) {
+            if (interval <= 0) return true;
+            long limit = interval * burst;
+            while (true) {
+                long current = fullAt.get();
+                long from = current - now > 0 ? current : now;
+                long updated = from + interval;
+                if (updated - now > limit) return false;
+                if (fullAt.compareAndSet(current, updated)) return true;
+            }
+        }
+
+        boolean repeats(long fingerprint, int history, long now, long window) {
+            int newest = next.get();
+            for (int i = 1; i <= history; i++) {
+                int slot = Math.floorMod(newest - i, MAX_DUPLICATE_HISTORY);
+                if (fingerprints.get(slot) == fingerprint && now - sentAt.get(slot) <= window) return true;
+            }
+            return false;
+        }
+
+        void remember(long fingerprint, long now) {
+            int slot = Math.floorMod(next.getAndIncrement(), MAX_DUPLICATE_HISTORY);
+            sentAt.set(slot, now);
+            fingerprints.set(slot, fingerprint);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.finetree.finechat.stats;
+
+/**
+ * A timed step of the chat pipeline, in the order a message goes through them.
+ */
+public enum Stage {
+    EVENT("event", "chat event handler, on the thread that fired it"),
+    QUEUE("queue", "waiting for a chat worker"),
+    META("meta", "prefix/suffix lookup"),
+    SANITIZE("sanitize", "stripping disallowed codes/tags"),
+    FILTER("filter", "word filter"),
+    HEADER("header", "cached format lookup (render on a miss)"),
+    PAPI("papi", "PlaceholderAPI"),
+    COLOUR("colour", "colourizing"),
+    MENTIONS("mentions", "finding @mentions, lines for the players mentioned"),
+    FORMAT("format", "the whole formatter"),
+    FAN_OUT("fan-out", "grouping recipients and scheduling delivery"),
+    DELIVERY("delivery", "region hop and sendMessage, per recipient"),
+    TOTAL("total", "chat event to a recipient's screen, per recipient");
+
+    private final String label;
+    private final String description;
+
+    Stage(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String description() {
+        return description;
+    }
+}
@@ -0,0 +1,90 @@
+package org.finetree.finechat.stats;
+
+import org.finetree.finechat.config.ChatSettings;
+import org.finetree.finechat.scheduler.PlatformScheduler;
+import org.finetree.finechat.scheduler.ScheduledTask;
+import org.finetree.finechat.util.ColorUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Periodically writes the {@link ChatStats} report to a plain text file, replacing
+ * the previous one, so it can be read or scraped without running a command.
+ */
+public class StatsFile {
+
+    private final ChatStats stats;
+    private final Path file;
+    private final Logger logger;
+
+    private PlatformScheduler scheduler;
+    private ScheduledTask task;
+    private boolean warned;
+
+    public StatsFile(ChatStats stats, Path file, Logger logger) {
+        this.stats = stats;
+        this.file = file;
+        this.logger = logger;
+    }
+
+    public void start(PlatformScheduler scheduler, ChatSettings settings) {
+        this.scheduler = scheduler;
+        schedule(settings);
+    }
+
+    /**
+     * Settings were reloaded: the interval may have changed.
+     */
+    public void reload(ChatSettings settings) {
+        cancel();
+        schedule(settings);
+    }
+
+    public void stop() {
+        cancel();
+    }
+
+    private synchronized void schedule(ChatSettings settings) {
+        if (scheduler != null && settings.getStatsFileSeconds() > 0) {
+            long period = settings.getStatsFileSeconds() * 20L;
+            task = scheduler.runAsyncTimer(this::write, period, period);
+        }
+    }
+
+    private synchronized void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void write() {
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + Instant.now());
+        for (String line : stats.report()) {
+            lines.add(ColorUtil.stripColors(ColorUtil.colorize(line, true)));
+        }
+
+        // Write beside the target and swap, so a reader never sees half a report
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            warned = false;
+        } catch (IOException e) {
+            if (!warned) {
+                logger.warning("[FineChat] Could not write " + file + ": " + e);
+                warned = true;
+            }
+        }
+    }
+}
@@ -2,11 +2,7 @@ package org.finetree.finechat.util;
 
 import org.bukkit.ChatColor;
 
-import java.awt.Color;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Supports:
@@ -16,34 +12,84 @@ import java.util.regex.Pattern;
  *  - <gradient,#from,#to> ... </gradient>
  *
  * Not a full MiniMessage replacement - intentionally small & dependency-free.
+ *
+ * The input is lexed once, left to right. Hex tags expand in place, gradient and
+ * rainbow bodies are buffered until their closing tag (or the end of the string)
+ * and then coloured into the single output buffer. Precedence matches the old
+ * pass order (hex, then gradient, then rainbow): tags inside a gradient body are
+ * plain text, and a gradient inside a rainbow body is coloured first and then
+ * recoloured by the rainbow.
+ *
+ * Stray closing tags are dropped, as the old passes dropped them. One difference:
+ * those passes removed them with a replaceAll after each pass, which could splice
+ * the text around one into a tag for a later pass ("<rain</hex>bow>" became a
+ * rainbow). Here that text stays literal, the same rule MessageSanitizer follows,
+ * so a tag is never assembled from pieces.
  */
 public final class ColorUtil {
 
-    private static final Pattern HEX_TAG = Pattern.compile("(?i)<hex\\s*,\\s*#?([0-9a-f]{6})\\s*>", Pattern.CASE_INSENSITIVE);
-    private static final Pattern GRADIENT_TAG = Pattern.compile("(?i)<gradient\\s*,\\s*#?([0-9a-f]{6})\\s*,\\s*#?([0-9a-f]{6})\\s*>", Pattern.CASE_INSENSITIVE);
-    private static final Pattern RAINBOW_TAG = Pattern.compile("(?i)<rainbow\\s*>", Pattern.CASE_INSENSITIVE);
-
-    private static final Pattern CLOSE_HEX = Pattern.compile("(?i)</hex\\s*>", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSE_GRADIENT = Pattern.compile("(?i)</gradient\\s*>", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSE_RAINBOW = Pattern.compile("(?i)</rainbow\\s*>", Pattern.CASE_INSENSITIVE);
+    private static final String LEGACY_CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+
+    // Tag kinds returned by the lexer
+    private static final int TAG_NONE = 0;
+    private static final int TAG_HEX = 1;
+    private static final int TAG_HEX_CLOSE = 2;
+    private static final int TAG_GRADIENT = 3;
+    private static final int TAG_GRADIENT_CLOSE = 4;
+    private static final int TAG_RAINBOW = 5;
+    private static final int TAG_RAINBOW_CLOSE = 6;
+
+    private static final int LEGACY_HEX_LENGTH = 14;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // For each byte value b: '§', hi nibble, '§', lo nibble at [b * 4, b * 4 + 4)
+    private static final char[] LEGACY_BYTES = new char[256 * 4];
+
+    private static final int RAINBOW_CACHE_SIZE = 512;
+    // Filled lazily; all of them up front would be 130k ints. The array publishes each ramp safely.
+    private static final AtomicReferenceArray<int[]> RAINBOW_RAMPS = new AtomicReferenceArray<>(RAINBOW_CACHE_SIZE);
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            LEGACY_BYTES[b * 4] = ChatColor.COLOR_CHAR;
+            LEGACY_BYTES[b * 4 + 1] = HEX_DIGITS[b >> 4];
+            LEGACY_BYTES[b * 4 + 2] = ChatColor.COLOR_CHAR;
+            LEGACY_BYTES[b * 4 + 3] = HEX_DIGITS[b & 0xF];
+        }
+    }
 
     private ColorUtil() {}
 
     public static String colorize(String input, boolean translateAmpersand) {
         if (input == null) return "";
+        if (input.indexOf('<') < 0 && (!translateAmpersand || input.indexOf('&') < 0)) return input;
 
-        String out = input;
-
-        // Process advanced tags first
-        out = applyHex(out);
-        out = applyGradient(out);
-        out = applyRainbow(out);
+        StringBuilder out = new StringBuilder(input.length() + 16);
+        new Lexer(input).emit(out);
 
         // Translate & -> §
         if (translateAmpersand) {
-            out = ChatColor.translateAlternateColorCodes('&', out);
+            translateAmpersand(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Colorize text that will be concatenated with other, separately colorized text.
+     * Returns null unless the result is exactly what this text contributes when the
+     * whole line is colorized in one go, whatever follows it. It isn't when the text
+     * leaves a gradient/rainbow open, ends in a '<' that later text could complete
+     * into a tag, or colorizes to something ending in '&'.
+     */
+    public static String colorizeSelfContained(String input) {
+        if (input == null || input.isEmpty()) return "";
+        int lastOpen = input.lastIndexOf('<');
+        if (lastOpen >= 0) {
+            if (lastOpen > input.lastIndexOf('>')) return null;
+            if (new Lexer(input).leavesOpen()) return null;
         }
-        return out;
+        String out = colorize(input, true);
+        return out.isEmpty() || out.charAt(out.length() - 1) != '&' ? out : null;
     }
 
     public static String stripColors(String input) {
@@ -51,97 +97,252 @@ public final class ColorUtil {
         return ChatColor.stripColor(input);
     }
 
-    private static String applyHex(String in) {
-        String out = in;
-        while (true) {
-            Matcher m = HEX_TAG.matcher(out);
-            if (!m.find()) break;
-
-            String hex = m.group(1);
-            int start = m.start();
-            int afterOpen = m.end();
-
-            int closeIndex = indexOfRegex(out, CLOSE_HEX, afterOpen);
-            String inner;
-            int endIndex;
-            if (closeIndex >= 0) {
-                inner = out.substring(afterOpen, closeIndex);
-                endIndex = closeIndex + matchLength(out, CLOSE_HEX, closeIndex);
-            } else {
-                inner = out.substring(afterOpen);
-                endIndex = out.length();
+    /**
+     * Same rules as ChatColor#translateAlternateColorCodes('&', ...), applied in place.
+     */
+    private static void translateAmpersand(StringBuilder sb) {
+        for (int i = 0; i < sb.length() - 1; i++) {
+            if (sb.charAt(i) == '&' && LEGACY_CODES.indexOf(sb.charAt(i + 1)) > -1) {
+                sb.setCharAt(i, ChatColor.COLOR_CHAR);
+                sb.setCharAt(i + 1, Character.toLowerCase(sb.charAt(i + 1)));
             }
-
-            String colored = legacyHex(hex) + inner;
-            out = out.substring(0, start) + colored + out.substring(endIndex);
         }
-        // Remove any stray closing tags
-        out = CLOSE_HEX.matcher(out).replaceAll("");
-        return out;
     }
 
-    private static String applyGradient(String in) {
-        String out = in;
-        while (true) {
-            Matcher m = GRADIENT_TAG.matcher(out);
-            if (!m.find()) break;
-
-            Color from = Color.decode("#" + m.group(1));
-            Color to = Color.decode("#" + m.group(2));
-            int start = m.start();
-            int afterOpen = m.end();
-
-            int closeIndex = indexOfRegex(out, CLOSE_GRADIENT, afterOpen);
-            String inner;
-            int endIndex;
-            if (closeIndex >= 0) {
-                inner = out.substring(afterOpen, closeIndex);
-                endIndex = closeIndex + matchLength(out, CLOSE_GRADIENT, closeIndex);
-            } else {
-                inner = out.substring(afterOpen);
-                endIndex = out.length();
+    /**
+     * Single-pass tag lexer. Each call to {@link #emit} walks the input once; a '<'
+     * is the only character that triggers a tag match attempt.
+     */
+    private static final class Lexer {
+
+        private final String in;
+
+        // Result of the last successful tag match
+        private int tagEnd;
+        private int colorA;
+        private int colorB;
+
+        // Open gradient/rainbow bodies, buffered until closed
+        private StringBuilder gradientBody;
+        private StringBuilder rainbowBody;
+        private int gradientFrom;
+        private int gradientTo;
+
+        Lexer(String in) {
+            this.in = in;
+        }
+
+        void emit(StringBuilder out) {
+            boolean inGradient = false;
+            boolean inRainbow = false;
+
+            int i = 0;
+            int len = in.length();
+            while (i < len) {
+                char c = in.charAt(i);
+                int tag = c == '<' ? matchTag(i) : TAG_NONE;
+
+                if (tag == TAG_NONE) {
+                    target(out, inGradient, inRainbow).append(c);
+                    i++;
+                    continue;
+                }
+
+                if (tag == TAG_HEX) {
+                    appendLegacyHex(target(out, inGradient, inRainbow), colorA);
+                } else if (tag == TAG_HEX_CLOSE) {
+                    // hex closes are always dropped
+                } else if (inGradient) {
+                    if (tag == TAG_GRADIENT_CLOSE) {
+                        inGradient = false;
+                        applyGradientToText(gradientBody, gradientFrom, gradientTo, target(out, false, inRainbow));
+                    } else {
+                        // Other tags inside a gradient body are coloured as plain text
+                        gradientBody.append(in, i, tagEnd);
+                    }
+                } else if (tag == TAG_GRADIENT) {
+                    inGradient = true;
+                    gradientFrom = colorA;
+                    gradientTo = colorB;
+                    gradientBody = reset(gradientBody);
+                } else if (tag == TAG_GRADIENT_CLOSE) {
+                    // stray close
+                } else if (inRainbow) {
+                    if (tag == TAG_RAINBOW_CLOSE) {
+                        inRainbow = false;
+                        applyRainbowToText(rainbowBody, out);
+                    } else {
+                        rainbowBody.append(in, i, tagEnd);
+                    }
+                } else if (tag == TAG_RAINBOW) {
+                    inRainbow = true;
+                    rainbowBody = reset(rainbowBody);
+                }
+                // else: stray rainbow close
+
+                i = tagEnd;
             }
 
-            String colored = applyGradientToText(inner, from, to);
-            out = out.substring(0, start) + colored + out.substring(endIndex);
+            // Unclosed tags apply to the rest of the string
+            if (inGradient) {
+                applyGradientToText(gradientBody, gradientFrom, gradientTo, target(out, false, inRainbow));
+            }
+            if (inRainbow) {
+                applyRainbowToText(rainbowBody, out);
+            }
         }
-        out = CLOSE_GRADIENT.matcher(out).replaceAll("");
-        return out;
-    }
 
-    private static String applyRainbow(String in) {
-        String out = in;
-        while (true) {
-            Matcher m = RAINBOW_TAG.matcher(out);
-            if (!m.find()) break;
-
-            int start = m.start();
-            int afterOpen = m.end();
-
-            int closeIndex = indexOfRegex(out, CLOSE_RAINBOW, afterOpen);
-            String inner;
-            int endIndex;
-            if (closeIndex >= 0) {
-                inner = out.substring(afterOpen, closeIndex);
-                endIndex = closeIndex + matchLength(out, CLOSE_RAINBOW, closeIndex);
-            } else {
-                inner = out.substring(afterOpen);
-                endIndex = out.length();
+        /**
+         * Walk the tags the way {@link #emit} does, without producing output.
+         *
+         * @return true if a gradient or rainbow is still open at the end
+         */
+        boolean leavesOpen() {
+            boolean inGradient = false;
+            boolean inRainbow = false;
+
+            int i = in.indexOf('<');
+            while (i >= 0) {
+                int tag = matchTag(i);
+                if (tag == TAG_NONE) {
+                    i = in.indexOf('<', i + 1);
+                    continue;
+                }
+
+                if (tag == TAG_HEX || tag == TAG_HEX_CLOSE) {
+                    // stateless
+                } else if (inGradient) {
+                    if (tag == TAG_GRADIENT_CLOSE) inGradient = false;
+                } else if (tag == TAG_GRADIENT) {
+                    inGradient = true;
+                } else if (tag == TAG_GRADIENT_CLOSE) {
+                    // stray close
+                } else if (inRainbow) {
+                    if (tag == TAG_RAINBOW_CLOSE) inRainbow = false;
+                } else if (tag == TAG_RAINBOW) {
+                    inRainbow = true;
+                }
+
+                i = in.indexOf('<', tagEnd);
+            }
+            return inGradient || inRainbow;
+        }
+
+        private StringBuilder target(StringBuilder out, boolean inGradient, boolean inRainbow) {
+            if (inGradient) return gradientBody;
+            if (inRainbow) return rainbowBody;
+            return out;
+        }
+
+        private StringBuilder reset(StringBuilder sb) {
+            if (sb == null) return new StringBuilder(Math.min(in.length(), 256));
+            sb.setLength(0);
+            return sb;
+        }
+
+        /**
+         * Try to match a tag starting at the '<' at index {@code at}.
+         * Matching follows the old patterns: ASCII case-insensitive names, optional
+         * whitespace around commas and before '>', optional '#' before colours.
+         */
+        private int matchTag(int at) {
+            int p = at + 1;
+            boolean close = p < in.length() && in.charAt(p) == '/';
+            if (close) p++;
+
+            if (matchWord(p, "hex")) {
+                p = skipSpace(p + 3);
+                if (close) return closeTag(p, TAG_HEX_CLOSE);
+                if ((p = comma(p)) < 0) return TAG_NONE;
+                if ((p = color(p)) < 0) return TAG_NONE;
+                colorA = colorB;
+                return closeTag(skipSpace(p), TAG_HEX);
+            }
+            if (matchWord(p, "gradient")) {
+                p = skipSpace(p + 8);
+                if (close) return closeTag(p, TAG_GRADIENT_CLOSE);
+                if ((p = comma(p)) < 0) return TAG_NONE;
+                if ((p = color(p)) < 0) return TAG_NONE;
+                int from = colorB;
+                if ((p = comma(skipSpace(p))) < 0) return TAG_NONE;
+                if ((p = color(p)) < 0) return TAG_NONE;
+                colorA = from;
+                return closeTag(skipSpace(p), TAG_GRADIENT);
+            }
+            if (matchWord(p, "rainbow")) {
+                p = skipSpace(p + 7);
+                return closeTag(p, close ? TAG_RAINBOW_CLOSE : TAG_RAINBOW);
+            }
+            return TAG_NONE;
+        }
+
+        private int closeTag(int p, int tag) {
+            if (p < in.length() && in.charAt(p) == '>') {
+                tagEnd = p + 1;
+                return tag;
+            }
+            return TAG_NONE;
+        }
+
+        private boolean matchWord(int p, String lowerWord) {
+            if (p + lowerWord.length() > in.length()) return false;
+            for (int k = 0; k < lowerWord.length(); k++) {
+                char c = in.charAt(p + k);
+                if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+                if (c != lowerWord.charAt(k)) return false;
             }
+            return true;
+        }
+
+        // regex \s: [ \t\n\x0B\f\r]
+        private int skipSpace(int p) {
+            while (p < in.length()) {
+                char c = in.charAt(p);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r') break;
+                p++;
+            }
+            return p;
+        }
 
-            String colored = applyRainbowToText(inner);
-            out = out.substring(0, start) + colored + out.substring(endIndex);
+        private int comma(int p) {
+            if (p < in.length() && in.charAt(p) == ',') return skipSpace(p + 1);
+            return -1;
         }
-        out = CLOSE_RAINBOW.matcher(out).replaceAll("");
-        return out;
+
+        /**
+         * Parse "#?RRGGBB" into colorB.
+         *
+         * @return the index after the colour, or -1
+         */
+        private int color(int p) {
+            if (p < in.length() && in.charAt(p) == '#') p++;
+            if (p + 6 > in.length()) return -1;
+            int rgb = 0;
+            for (int k = 0; k < 6; k++) {
+                int d = hexDigit(in.charAt(p + k));
+                if (d < 0) return -1;
+                rgb = (rgb << 4) | d;
+            }
+            colorB = rgb;
+            return p + 6;
+        }
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
     }
 
-    private static String applyGradientToText(String text, Color from, Color to) {
-        List<Integer> indexes = visibleCharIndexes(text);
-        int n = indexes.size();
-        if (n == 0) return text;
+    private static void applyGradientToText(CharSequence text, int fromRgb, int toRgb, StringBuilder sb) {
+        int n = visibleCharCount(text);
+        if (n == 0) {
+            sb.append(text);
+            return;
+        }
 
-        StringBuilder sb = new StringBuilder(text.length() * 2);
+        sb.ensureCapacity(sb.length() + text.length() + n * LEGACY_HEX_LENGTH);
         int visiblePos = 0;
 
         for (int i = 0; i < text.length(); i++) {
@@ -162,23 +363,24 @@ public final class ColorUtil {
 
             if (isVisibleChar(c)) {
                 double t = (n == 1) ? 0 : (visiblePos / (double) (n - 1));
-                Color col = lerp(from, to, t);
-                sb.append(legacyHex(col));
+                appendLegacyHex(sb, lerp(fromRgb, toRgb, t));
                 sb.append(c);
                 visiblePos++;
             } else {
                 sb.append(c);
             }
         }
-        return sb.toString();
     }
 
-    private static String applyRainbowToText(String text) {
-        List<Integer> indexes = visibleCharIndexes(text);
-        int n = indexes.size();
-        if (n == 0) return text;
+    private static void applyRainbowToText(CharSequence text, StringBuilder sb) {
+        int n = visibleCharCount(text);
+        if (n == 0) {
+            sb.append(text);
+            return;
+        }
 
-        StringBuilder sb = new StringBuilder(text.length() * 2);
+        sb.ensureCapacity(sb.length() + text.length() + n * LEGACY_HEX_LENGTH);
+        int[] ramp = rainbowRamp(n);
         int visiblePos = 0;
 
         for (int i = 0; i < text.length(); i++) {
@@ -196,24 +398,21 @@ public final class ColorUtil {
             }
 
             if (isVisibleChar(c)) {
-                float hue = (n == 1) ? 0f : (visiblePos / (float) n);
-                Color col = Color.getHSBColor(hue, 1f, 1f);
-                sb.append(legacyHex(col));
+                appendLegacyHex(sb, ramp[visiblePos]);
                 sb.append(c);
                 visiblePos++;
             } else {
                 sb.append(c);
             }
         }
-        return sb.toString();
     }
 
     private static boolean isVisibleChar(char c) {
         return c != '\n' && c != '\r';
     }
 
-    private static List<Integer> visibleCharIndexes(String text) {
-        List<Integer> idx = new ArrayList<>();
+    private static int visibleCharCount(CharSequence text) {
+        int count = 0;
         for (int i = 0; i < text.length(); i++) {
             char c = text.charAt(i);
 
@@ -225,47 +424,119 @@ public final class ColorUtil {
                 i++;
                 continue;
             }
-            if (isVisibleChar(c)) idx.add(i);
+            if (isVisibleChar(c)) count++;
         }
-        return idx;
+        return count;
+    }
+
+    // === Packed 0xRRGGBB colour math ===
+
+    private static int lerp(int a, int b, double t) {
+        int r = (int) Math.round(red(a) + (red(b) - red(a)) * t);
+        int g = (int) Math.round(green(a) + (green(b) - green(a)) * t);
+        int bl = (int) Math.round(blue(a) + (blue(b) - blue(a)) * t);
+        return (clamp(r) << 16) | (clamp(g) << 8) | clamp(bl);
     }
 
-    private static Color lerp(Color a, Color b, double t) {
-        int r = (int) Math.round(a.getRed() + (b.getRed() - a.getRed()) * t);
-        int g = (int) Math.round(a.getGreen() + (b.getGreen() - a.getGreen()) * t);
-        int bl = (int) Math.round(a.getBlue() + (b.getBlue() - a.getBlue()) * t);
-        return new Color(clamp(r), clamp(g), clamp(bl));
+    private static int red(int rgb) {
+        return (rgb >> 16) & 0xFF;
+    }
+
+    private static int green(int rgb) {
+        return (rgb >> 8) & 0xFF;
+    }
+
+    private static int blue(int rgb) {
+        return rgb & 0xFF;
     }
 
     private static int clamp(int v) {
         return Math.max(0, Math.min(255, v));
     }
 
-    public static String legacyHex(String hex6) {
-        Color c = Color.decode("#" + hex6);
-        return legacyHex(c);
+    /**
+     * Hue ramp for a rainbow over n visible characters: entry i is the full
+     * saturation/brightness colour at hue i/n. Ramps up to RAINBOW_CACHE_SIZE
+     * characters are computed once and shared; longer ones are built per call.
+     */
+    private static int[] rainbowRamp(int n) {
+        if (n >= RAINBOW_CACHE_SIZE) return buildRainbowRamp(n);
+
+        int[] ramp = RAINBOW_RAMPS.get(n);
+        if (ramp == null) {
+            // Two threads may both build it; either copy is the same, and the first one set is kept
+            ramp = buildRainbowRamp(n);
+            if (!RAINBOW_RAMPS.compareAndSet(n, null, ramp)) ramp = RAINBOW_RAMPS.get(n);
+        }
+        return ramp;
     }
 
-    public static String legacyHex(Color c) {
-        String hex = String.format("%02x%02x%02x", c.getRed(), c.getGreen(), c.getBlue());
-        StringBuilder sb = new StringBuilder("§x");
-        for (char ch : hex.toCharArray()) {
-            sb.append('§').append(ch);
+    private static int[] buildRainbowRamp(int n) {
+        int[] ramp = new int[n];
+        for (int i = 0; i < n; i++) {
+            float hue = (n == 1) ? 0f : (i / (float) n);
+            ramp[i] = hueToRgb(hue);
         }
-        return sb.toString();
+        return ramp;
     }
 
-    private static int indexOfRegex(String text, Pattern pattern, int fromIndex) {
-        Matcher m = pattern.matcher(text);
-        if (m.find(fromIndex)) return m.start();
-        return -1;
+    /**
+     * HSB to RGB at saturation 1 and brightness 1, with the same float rounding
+     * as java.awt.Color#HSBtoRGB so colours match what older versions produced.
+     */
+    private static int hueToRgb(float hue) {
+        float h = (hue - (float) Math.floor(hue)) * 6.0f;
+        float f = h - (float) Math.floor(h);
+        int full = 255;
+        int zero = 0;
+        int q = (int) ((1.0f - f) * 255.0f + 0.5f);
+        int t = (int) ((1.0f - (1.0f - f)) * 255.0f + 0.5f);
+
+        switch ((int) h) {
+            case 0: return rgb(full, t, zero);
+            case 1: return rgb(q, full, zero);
+            case 2: return rgb(zero, full, t);
+            case 3: return rgb(zero, q, full);
+            case 4: return rgb(t, zero, full);
+            case 5: return rgb(full, zero, q);
+            default: return 0;
+        }
     }
 
-    private static int matchLength(String text, Pattern pattern, int startIndex) {
-        Matcher m = pattern.matcher(text);
-        if (m.find(startIndex) && m.start() == startIndex) {
-            return m.end() - m.start();
+    private static int rgb(int r, int g, int b) {
+        return (r << 16) | (g << 8) | b;
+    }
+
+    // === Legacy §x§r§r§g§g§b§b encoding ===
+
+    private static void appendLegacyHex(StringBuilder sb, int rgb) {
+        sb.append(ChatColor.COLOR_CHAR).append('x');
+        sb.append(LEGACY_BYTES, red(rgb) * 4, 4);
+        sb.append(LEGACY_BYTES, green(rgb) * 4, 4);
+        sb.append(LEGACY_BYTES, blue(rgb) * 4, 4);
+    }
+
+    /**
+     * @param hex6 colour as "RRGGBB" (no leading '#')
+     * @return the 14-char legacy sequence, e.g. "§x§f§f§0§0§0§0"
+     */
+    public static String legacyHex(String hex6) {
+        int rgb = 0;
+        for (int k = 0; k < 6; k++) {
+            int d = hexDigit(hex6.charAt(k));
+            if (d < 0) throw new NumberFormatException("Not a hex colour: " + hex6);
+            rgb = (rgb << 4) | d;
         }
-        return 0;
+        return legacyHex(rgb);
+    }
+
+    /**
+     * @param rgb packed 0xRRGGBB colour
+     * @return the 14-char legacy sequence, e.g. "§x§f§f§0§0§0§0"
+     */
+    public static String legacyHex(int rgb) {
+        StringBuilder sb = new StringBuilder(LEGACY_HEX_LENGTH);
+        appendLegacyHex(sb, rgb);
+        return sb.toString();
     }
 }
@@ -0,0 +1,34 @@
+package org.finetree.finechat.chat;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory for the chat workers.
+ *
+ * Java 21+ version (META-INF/versions/21): virtual threads when asked for,
+ * platform threads otherwise. Keep the signatures in sync with src/main/java.
+ */
+final class ChatThreads {
+
+    private ChatThreads() {}
+
+    /**
+     * @return true if {@link #factory} can create virtual threads on this JVM.
+     */
+    static boolean supportsVirtual() {
+        return true;
+    }
+
+    static ThreadFactory factory(String name, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name + "-", 0).factory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
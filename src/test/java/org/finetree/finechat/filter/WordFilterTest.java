@@ -0,0 +1,116 @@
+package org.finetree.finechat.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WordFilterTest {
+
+    private static String censor(WordFilter filter, String message) {
+        WordFilter.Result result = filter.apply(message);
+        return result != null ? result.getMessage() : message;
+    }
+
+    @Test
+    void doubleLetterEntriesDoNotMatchTheShorterWord() {
+        WordFilter filter = WordFilter.compile(List.of("ass", "kkk", "boob"), List.of(), List.of());
+
+        assertNull(filter.apply("as long as it works"));
+        assertNull(filter.apply("ok k thanks"));
+        assertNull(filter.apply("bob is here"));
+    }
+
+    @Test
+    void doubleLetterEntriesMatchAtLeastTwice() {
+        WordFilter filter = WordFilter.compile(List.of("ass", "boob"), List.of(), List.of());
+
+        assertEquals("***", censor(filter, "ass"));
+        assertEquals("*** hat", censor(filter, "a$$ hat"));
+        assertEquals("******* here", censor(filter, "booooob here"));
+    }
+
+    @Test
+    void singleLetterEntriesStillMatchRepeats() {
+        WordFilter filter = WordFilter.compile(List.of("fuck"), List.of(), List.of());
+
+        assertEquals("******* you", censor(filter, "fuuuuck you"));
+        assertEquals("****", censor(filter, "FUCK"));
+    }
+
+    @Test
+    void doubleLetterInAMatchAnywhereEntry() {
+        WordFilter filter = WordFilter.compile(List.of(), List.of(), List.of("*ass*"));
+
+        assertEquals(WordFilter.Action.BLOCK, filter.apply("the bass").getAction());
+        assertNull(filter.apply("the base"));
+    }
+
+    @Test
+    void prefixEntryMatchesWordsStartingWithIt() {
+        WordFilter filter = WordFilter.compile(List.of("hell*"), List.of(), List.of());
+
+        assertEquals("**** yes", censor(filter, "hell yes"));
+        assertEquals("****o there", censor(filter, "hello there"));
+        assertNull(filter.apply("shell"));
+    }
+
+    @Test
+    void suffixEntryMatchesWordsEndingWithIt() {
+        WordFilter filter = WordFilter.compile(List.of("*hole"), List.of(), List.of());
+
+        assertEquals("a ****", censor(filter, "a hole"));
+        assertEquals("ass****", censor(filter, "asshole"));
+        assertNull(filter.apply("holes"));
+    }
+
+    @Test
+    void colourCodesAndTagsInsideAWordAreSkipped() {
+        WordFilter filter = WordFilter.compile(List.of("fuck"), List.of(), List.of());
+
+        assertEquals("****** off", censor(filter, "f&cuck off"));
+        assertEquals("******", censor(filter, "fu§lck"));
+        assertEquals("*************</rainbow> it", censor(filter, "f<rainbow>uck</rainbow> it"));
+    }
+
+    @Test
+    void exclamationMarkOnlyReadsAsALetterBeforeOne() {
+        WordFilter filter = WordFilter.compile(List.of("damn", "shit"), List.of(), List.of());
+
+        assertEquals("****!", censor(filter, "damn!"));
+        assertEquals("****! ok", censor(filter, "damn! ok"));
+        assertEquals("****", censor(filter, "sh!t"));
+        assertNull(filter.apply("shi!"));
+    }
+
+    @Test
+    void flagSendsTheMessageAndNamesTheEntry() {
+        WordFilter filter = WordFilter.compile(List.of("damn"), List.of("idiot"), List.of());
+
+        WordFilter.Result flagged = filter.apply("idiot");
+        assertEquals(WordFilter.Action.FLAG, flagged.getAction());
+        assertEquals("idiot", flagged.getMessage());
+        assertEquals("idiot", flagged.getEntry());
+
+        // Censored entries are still replaced in a flagged message
+        WordFilter.Result both = filter.apply("damn idiot");
+        assertEquals(WordFilter.Action.FLAG, both.getAction());
+        assertEquals("**** idiot", both.getMessage());
+    }
+
+    @Test
+    void blockIsTheMostSevereAction() {
+        WordFilter filter = WordFilter.compile(List.of("damn"), List.of("noob"), List.of("scam*", "noob"));
+
+        WordFilter.Result blocked = filter.apply("scammer here");
+        assertEquals(WordFilter.Action.BLOCK, blocked.getAction());
+        assertEquals("scam*", blocked.getEntry());
+
+        // An entry in both lists takes the more severe one, over anything else in the message
+        WordFilter.Result both = filter.apply("damn noob");
+        assertEquals(WordFilter.Action.BLOCK, both.getAction());
+        assertEquals("noob", both.getEntry());
+    }
+}
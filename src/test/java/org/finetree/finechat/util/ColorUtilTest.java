@@ -0,0 +1,28 @@
+package org.finetree.finechat.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColorUtilTest {
+
+    @Test
+    void strayCloseTagsAreDropped() {
+        assertEquals("ab", ColorUtil.colorize("a</hex>b", true));
+        assertEquals("ab", ColorUtil.colorize("a</gradient>b", true));
+        assertEquals("xy", ColorUtil.colorize("x</rainbow>y", true));
+    }
+
+    @Test
+    void droppedCloseTagStillJoinsACode() {
+        // Unchanged from the old passes: the '&' and 'c' meet once the tag is gone
+        assertEquals("§cred", ColorUtil.colorize("&</hex>cred", true));
+    }
+
+    @Test
+    void droppedCloseTagNeverAssemblesATag() {
+        // The old passes turned this one into a rainbow
+        assertEquals("<rainbow>hi", ColorUtil.colorize("<rain</hex>bow>hi", true));
+        assertEquals("<hex,#ff0000>z", ColorUtil.colorize("<he</hex>x,#ff0000>z", true));
+    }
+}